@@ -0,0 +1,126 @@
+package main;
+
+import model.Face;
+import model.ModelBootstrap;
+import model.MorphableModel;
+
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.WindowConstants;
+import java.awt.Color;
+import java.awt.Component;
+
+import static main.Main.L;
+
+/**
+ * Provides a way to synthesise a {@link Face} from any number of components.
+ * The user enters the non-zero coefficients as index:coefficient pairs,
+ * with indexes as in the CSV file names, such as "001:0.5 012:0.25 040:0.25".
+ * Only the entered components are passed to the {@link MorphableModel},
+ * once it is loaded, without the Swing event thread waiting for it.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public class ComponentMixer extends JDialog {
+
+    /** The number of columns of the {@link #coefficients} field. */
+    private static final int FIELD_COLUMNS = 40;
+
+    /**
+     * Parses index:coefficient pairs.
+     *
+     * @param pairs      the pairs to parse
+     * @param components the array to store the index of each component in, starting at 0
+     * @param values     the array to store the coefficient of each component in
+     *
+     * @throws NumberFormatException if a pair is not an index and a coefficient
+     */
+    private static void parse(final String[] pairs, final int[] components,
+                              final double[] values) {
+        for (int i = 0; i < pairs.length; i++) {
+            String[] parts = pairs[i].split(":");
+            if (parts.length != 2) {
+                throw new NumberFormatException("Expected index:coefficient, got " + pairs[i]);
+            }
+            components[i] = Integer.parseInt(parts[0]) - 1;
+            values[i] = Double.parseDouble(parts[1]);
+        }
+    }
+
+    /** The field to enter the coefficients in. */
+    private JTextField coefficients = new JTextField(FIELD_COLUMNS);
+
+    /** The button that causes a new Face to be synthesised and displayed. */
+    private JButton synthesise = new JButton("Synthesise");
+
+    /** Creates a {@link ComponentMixer} with default configuration. */
+    public ComponentMixer() {
+        this.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        this.setTitle("Component Mixer");
+        this.getContentPane().setLayout(
+                new BoxLayout(this.getContentPane(), BoxLayout.Y_AXIS));
+        JLabel hint = new JLabel("Enter index:coefficient pairs, such as 001:0.5 012:0.5");
+        hint.setAlignmentX(Component.CENTER_ALIGNMENT);
+        this.add(hint);
+        coefficients.addActionListener(e -> synthesiseEntered());
+        this.add(coefficients);
+        synthesise.setAlignmentX(Component.CENTER_ALIGNMENT);
+        synthesise.addActionListener(e -> synthesiseEntered());
+        this.add(synthesise);
+        this.pack();
+    }
+
+    /**
+     * Synthesises a {@link Face} from the entered coefficients and displays it,
+     * once the {@link MorphableModel} is loaded.
+     * If they cannot be parsed, the error is logged and the field is shown in red.
+     */
+    private void synthesiseEntered() {
+        String text = coefficients.getText().trim();
+        String[] pairs = text.isEmpty() ? new String[0] : text.split("[\\s,]+");
+        int[] components = new int[pairs.length];
+        double[] values = new double[pairs.length];
+        try {
+            parse(pairs, components, values);
+        } catch (NumberFormatException e) {
+            L.log(e);
+            coefficients.setForeground(Color.RED);
+            return;
+        }
+        ModelBootstrap.loadMorphableModel().thenAcceptAsync(
+                model -> showSynthesis(model, pairs, components, values),
+                SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Synthesises a {@link Face} from parsed coefficients and displays it.
+     * If they do not match the model,
+     * the error is logged and the field is shown in red.
+     *
+     * @param model      the loaded {@link MorphableModel}
+     * @param pairs      the entered index:coefficient pairs, for the title
+     * @param components the index of each component, starting at 0
+     * @param values     the coefficient of each component
+     */
+    private void showSynthesis(final MorphableModel model, final String[] pairs,
+                               final int[] components, final double[] values) {
+        Face synthesised;
+        try {
+            synthesised = model.synthesise(components, values);
+        } catch (IllegalArgumentException e) {
+            L.log(e);
+            coefficients.setForeground(Color.RED);
+            return;
+        }
+        coefficients.setForeground(Color.BLACK);
+        SynthesisedExplorer explorer = new SynthesisedExplorer(synthesised);
+        explorer.setTitle("Synthesis of " + String.join(" + ", pairs));
+        explorer.setVisible(true);
+    }
+
+}
@@ -1,20 +1,39 @@
 package main;
 
 import model.Face;
+import model.FacePool;
+import model.ModelBootstrap;
+import model.MorphableModel;
+import model.Synthesis;
+import model.SynthesisCache;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
+import java.awt.Color;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static main.Main.L;
 import static main.Main.PROPS;
 
 /**
  * Represents an interpolator between Faces.
+ * Faces can also be mixed from any number of components through a {@link ComponentMixer}.
+ * The last opened {@link SynthesisedExplorer} follows the weights as they change,
+ * including while dragging in the {@link TriangleSelector}.
+ * While dragging, it shows a preview of only the strongest components,
+ * which is refined to every component once the weights stop changing,
+ * if it left any out.
+ * Previews are synthesised into {@link Face}s from a {@link FacePool},
+ * which are returned to it once replaced, so dragging allocates no new {@link Face}s.
+ * The Swing event thread never waits for the {@link MorphableModel} to load.
  *
  * @author 150009974
- * @version 1.4
+ * @version 1.16
  */
 public class FaceInterpolator extends JDialog {
 
@@ -34,6 +53,12 @@ public class FaceInterpolator extends JDialog {
     private static final double SYNTHESISE_BUTTON_HEIGTH =
             PROPS.getDouble("synthesise button height");
 
+    /** The text of the {@link #synthesise} button, once everything is loaded. */
+    private static final String SYNTHESISE_TEXT = "Synthesise";
+
+    /** The number of components kept while the weights are being changed. */
+    private static final int PREVIEW_RANK = PROPS.getInt("preview synthesis rank");
+
     /** The {@link FaceSelector} at the top of the triangle. */
     private FaceSelector top;
 
@@ -47,7 +72,36 @@ public class FaceInterpolator extends JDialog {
     private TriangleSelector trianglePane = new TriangleSelector();
 
     /** The button that causes a new Face to be synthesised and displayed. */
-    private JButton synthesise = new JButton("Synthesise");
+    private JButton synthesise = new JButton(SYNTHESISE_TEXT);
+
+    /** The button that opens a {@link ComponentMixer}. */
+    private JButton mix = new JButton("Mix components");
+
+    /**
+     * The last {@link Synthesis}, which is updated with the components
+     * whose weights changed, rather than synthesised again.
+     */
+    private Synthesis synthesis;
+
+    /** Held while the {@link #synthesis} is used, by one thread at a time. */
+    private final ReentrantLock synthesisLock = new ReentrantLock();
+
+    /** The recently synthesised {@link Face}s, by their weights. */
+    private final SynthesisCache cache = new SynthesisCache(
+            PROPS.getLong("synthesis cache budget"),
+            PROPS.getDouble("synthesis cache resolution"));
+
+    /** The {@link Face}s replaced in the {@link #live} explorer, to synthesise previews into. */
+    private final FacePool pool = new FacePool(PROPS.getInt("synthesis pool capacity"));
+
+    /** The last opened {@link SynthesisedExplorer}, which follows the weights. */
+    private SynthesisedExplorer live;
+
+    /** Synthesises {@link Face}s for the {@link #live} explorer in the background. */
+    private final LiveSynthesiser liveSynthesiser = new LiveSynthesiser(
+            coefficients -> preview(ModelBootstrap.loadMorphableModel().join(), coefficients),
+            coefficients -> synthesise(ModelBootstrap.loadMorphableModel().join(), coefficients),
+            this::showLive);
 
     /** Creates a {@link FaceInterpolator} with default configuration. */
     public FaceInterpolator() {
@@ -57,6 +111,7 @@ public class FaceInterpolator extends JDialog {
         configureBottomRightFace();
         configureTriangle();
         configureSynthesise();
+        configureMix();
     }
 
     /** Updates all the previews. */
@@ -144,24 +199,197 @@ public class FaceInterpolator extends JDialog {
         int y = 0;
         synthesise.setLocation(x, y);
         synthesise.setSize(w, h);
-        synthesise.addActionListener(e -> {
-            Face[] faces = {
-                    top.restoreFace(), left.restoreFace(), right.restoreFace()};
-            double[] weights = {
-                    top.getWeight(), left.getWeight(), right.getWeight()};
-            Face synthesised = Face.synthesise(faces, weights);
-            SynthesisedExplorer explorer = new SynthesisedExplorer(synthesised);
-            String title = "Synthesis of " + top.getContribution() + " + "
-                    + left.getContribution() + " + " + right.getContribution();
-            explorer.setTitle(title);
-            explorer.setVisible(true);
-            top.updatePreview();
-            left.updatePreview();
-            right.updatePreview();
-        });
+        ModelBootstrap.setOnProgress(() -> SwingUtilities.invokeLater(this::showProgress));
+        ModelBootstrap.loadMorphableModel();
+        showProgress();
+        // Continue on the event thread once loaded, rather than wait on it
+        synthesise.addActionListener(e -> ModelBootstrap.loadMorphableModel()
+                .thenAcceptAsync(this::openExplorer, SwingUtilities::invokeLater)
+                .exceptionally(error -> {
+                    L.log(error);
+                    return null;
+                }));
         this.add(synthesise);
     }
 
+    /**
+     * Synthesises a {@link Face} of the selected weights
+     * and opens a {@link SynthesisedExplorer} of it, which becomes the {@link #live} one.
+     * If a selected index is not a component of the model,
+     * the error is logged and the {@link #synthesise} button is shown in red.
+     *
+     * @param model the loaded {@link MorphableModel}
+     */
+    private void openExplorer(final MorphableModel model) {
+        double[] coefficients;
+        try {
+            coefficients = selectedCoefficients(model);
+        } catch (IllegalArgumentException e) {
+            L.log(e);
+            synthesise.setForeground(Color.RED);
+            return;
+        }
+        synthesise.setForeground(Color.BLACK);
+        Face synthesised = synthesise(model, coefficients);
+        SynthesisedExplorer explorer = new SynthesisedExplorer(synthesised);
+        explorer.setTitle(getSynthesisTitle());
+        explorer.setVisible(true);
+        live = explorer;
+    }
+
+    /** Configures the {@link #mix} button, below the {@link #synthesise} button. */
+    private void configureMix() {
+        mix.setLocation(synthesise.getX(), synthesise.getY() + synthesise.getHeight());
+        mix.setSize(synthesise.getSize());
+        mix.addActionListener(e -> {
+            ComponentMixer mixer = new ComponentMixer();
+            mixer.setLocationRelativeTo(this);
+            mixer.setVisible(true);
+        });
+        this.add(mix);
+    }
+
+    /** @return the title of a {@link SynthesisedExplorer} of the selected weights */
+    private String getSynthesisTitle() {
+        return "Synthesis of " + top.getContribution() + " + "
+                + left.getContribution() + " + " + right.getContribution();
+    }
+
+    /**
+     * Turns the selected {@link Face}s and weights into coefficients
+     * of the {@link MorphableModel}.
+     * Each weight becomes the coefficient of the selected component,
+     * so the previews stay as they are.
+     *
+     * @param model the {@link MorphableModel} to synthesise from
+     *
+     * @return the coefficient of each component
+     *
+     * @throws IllegalArgumentException if a selected index is not a component of the model
+     */
+    private double[] selectedCoefficients(final MorphableModel model) {
+        double[] coefficients = new double[model.getComponentCount()];
+        for (FaceSelector selector : new FaceSelector[]{top, left, right}) {
+            String index = selector.getFaceIndex().trim();
+            int component = Integer.parseInt(index) - 1;
+            if (component < 0 || component >= coefficients.length) {
+                throw new IllegalArgumentException("Face " + index + " is not one of the "
+                        + coefficients.length + " components of the model");
+            }
+            coefficients[component] += selector.getWeight();
+        }
+        return coefficients;
+    }
+
+    /**
+     * Synthesises a {@link Face} through the {@link MorphableModel}.
+     * Weights synthesised recently are taken from the {@link #cache}.
+     * Otherwise, only the components whose coefficient changed
+     * since the last {@link #synthesis} are calculated.
+     * If another thread is updating the {@link #synthesis},
+     * the {@link Face} is synthesised in full instead of waiting for it,
+     * so this may be called from any thread.
+     *
+     * @param model        the {@link MorphableModel} to synthesise from
+     * @param coefficients the coefficient of each component
+     *
+     * @return the synthesised {@link Face}
+     */
+    private Face synthesise(final MorphableModel model, final double[] coefficients) {
+        return cache.get(coefficients, rounded -> {
+            if (!synthesisLock.tryLock()) {
+                return model.synthesise(rounded);
+            }
+            try {
+                if (synthesis == null) {
+                    synthesis = model.startSynthesis(rounded);
+                } else {
+                    synthesis.setCoefficients(rounded);
+                }
+                return synthesis.toFace();
+            } finally {
+                synthesisLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Synthesises a {@link Face} from at most {@link #PREVIEW_RANK} components,
+     * bypassing the {@link #cache} and the {@link #synthesis},
+     * which both hold {@link Face}s of every component.
+     * The {@link Face} is taken from the {@link #pool} and overwritten.
+     * Only the three selected components are read, rather than the whole basis.
+     * Unless the rank is below three, the preview is then already complete,
+     * and is not synthesised again once the weights stop changing.
+     *
+     * @param model        the {@link MorphableModel} to synthesise from
+     * @param coefficients the coefficient of each component
+     *
+     * @return the synthesised preview
+     */
+    private LiveSynthesiser.Preview preview(final MorphableModel model,
+                                            final double[] coefficients) {
+        Face face = pool.acquire(model.getPointCount());
+        boolean truncated = model.synthesiseInto(coefficients, PREVIEW_RANK, face);
+        return new LiveSynthesiser.Preview(face, !truncated);
+    }
+
+    /**
+     * Requests a {@link Face} of the selected weights for the {@link #live} explorer,
+     * if it is still open and the {@link MorphableModel} is loaded.
+     * Called whenever the weights change, so the explorer follows them.
+     * If a selected index is not a component of the model, the error is logged.
+     */
+    private void updateLive() {
+        CompletableFuture<MorphableModel> model = ModelBootstrap.loadMorphableModel();
+        if (live == null || !live.isDisplayable()
+                || !model.isDone() || model.isCompletedExceptionally()) {
+            return;
+        }
+        double[] coefficients;
+        try {
+            coefficients = selectedCoefficients(model.join());
+        } catch (IllegalArgumentException e) {
+            L.log(e);
+            return;
+        }
+        liveSynthesiser.request(coefficients);
+    }
+
+    /**
+     * Shows the given {@link Face} in the {@link #live} explorer,
+     * and returns the {@link Face} it replaces to the {@link #pool}.
+     * If the explorer was closed meanwhile, the given {@link Face} is returned instead.
+     *
+     * @param face the synthesised {@link Face}
+     */
+    private void showLive(final Face face) {
+        if (live == null || !live.isDisplayable()) {
+            pool.release(face);
+            return;
+        }
+        Face previous = live.updateFace(face);
+        if (previous != null) {
+            pool.release(previous);
+        }
+        live.setTitle(getSynthesisTitle());
+    }
+
+    /**
+     * Shows the progress of {@link ModelBootstrap} on the {@link #synthesise} button.
+     * The button is disabled until all {@link Face}s are loaded.
+     */
+    private void showProgress() {
+        if (ModelBootstrap.isDone()) {
+            synthesise.setText(SYNTHESISE_TEXT);
+            synthesise.setEnabled(true);
+        } else {
+            synthesise.setText("Loading " + ModelBootstrap.getCompleted()
+                    + " of " + ModelBootstrap.getSubmitted());
+            synthesise.setEnabled(false);
+        }
+    }
+
     /** Adjusts the weights of the faces, anchoring the top weight. */
     private void adjustWeightsTopAnchor() {
         double tw = top.getWeight();
@@ -185,6 +413,7 @@ public class FaceInterpolator extends JDialog {
             right.setWeight(1 - tw - lw);
         }
         trianglePane.changeSelection(left.getWeight(), right.getWeight());
+        updateLive();
     }
 
     /** Adjusts the weights of the faces, anchoring the left weight. */
@@ -210,6 +439,7 @@ public class FaceInterpolator extends JDialog {
             top.setWeight(1 - lw - rw);
         }
         trianglePane.changeSelection(left.getWeight(), right.getWeight());
+        updateLive();
     }
 
     /** Adjusts the weights of the faces, anchoring the right weight. */
@@ -235,6 +465,7 @@ public class FaceInterpolator extends JDialog {
             left.setWeight(1 - rw - tw);
         }
         trianglePane.changeSelection(left.getWeight(), right.getWeight());
+        updateLive();
     }
 
     /** Determines the weights given the alpha and beta 2D interpolation. */
@@ -243,6 +474,7 @@ public class FaceInterpolator extends JDialog {
             top.setWeight(1 - alpha - beta);
             left.setWeight(alpha);
             right.setWeight(beta);
+            updateLive();
         }
     }
 
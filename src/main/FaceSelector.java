@@ -1,12 +1,16 @@
 package main;
 
 import model.Face;
+import model.FacePrefetcher;
+import model.FaceRepository;
+import model.ModelBootstrap;
 import renderers.PreviewRenderer;
 
 import javax.swing.BoxLayout;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.event.ActionListener;
@@ -19,7 +23,7 @@ import static main.Main.PROPS;
  * showing the three {@link Face}s to interpolate.
  *
  * @author 150009974
- * @version 1.4
+ * @version 1.11
  */
 public class FaceSelector extends JPanel {
 
@@ -31,18 +35,6 @@ public class FaceSelector extends JPanel {
     private static final double FACE_SCALING =
             PROPS.getDouble("face selector face scaling");
 
-    /** The prefix before a shape filename. */
-    private static final String SHAPE_PREFIX =
-            PROPS.getString("shape prefix");
-
-    /** The prefix before a texture filename. */
-    private static final String TEXTURE_PREFIX =
-            PROPS.getString("texture prefix");
-
-    /** The suffix after a filename (extension). */
-    private static final String FILENAME_SUFFIX =
-            PROPS.getString("filename suffix");
-
     /** The initial weight of a {@link Face}. */
     private static final double INITIAL_WEIGHT =
             PROPS.getDouble("face selector initial weight");
@@ -50,12 +42,25 @@ public class FaceSelector extends JPanel {
     /** The weight of this {@link Face} for synthesising. */
     private JTextField weight = new JTextField();
 
-    /** The panel where a preview will be shown. */
-    private PreviewRenderer preview = new PreviewRenderer();
+    /**
+     * The panel where a preview will be shown.
+     * It inverts the {@link Face} (account for upside-down by default)
+     * and scales it by {@link #FACE_SCALING}.
+     */
+    private PreviewRenderer preview = new PreviewRenderer(-FACE_SCALING);
 
     /** The {@link JTextField} to enter a file name. */
     private JTextField faceIndex = new JTextField();
 
+    /**
+     * The number of previews requested so far.
+     * A loaded {@link Face} is only shown if no later one was requested.
+     */
+    private int requests = 0;
+
+    /** Loads the neighbours of the previewed {@link Face} in the background. */
+    private FacePrefetcher prefetcher = new FacePrefetcher(FaceRepository.SHARED);
+
     /** Creates a {@link FaceSelector} with a vertical {@link BoxLayout}. */
     public FaceSelector(final String initialFaceIndex) {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
@@ -90,33 +95,42 @@ public class FaceSelector extends JPanel {
 
     /**
      * Updates the preview face.
-     * Parses the {@link Face} identified by the index in {@link #faceIndex}.
-     * Then inverts it (account for upside-down by default)
-     * and scales it by {@link #FACE_SCALING}.
-     * Finally, passes it to {@link #preview} to do a quick render.
+     * Starts loading the {@link Face} identified by the index in {@link #faceIndex}
+     * through {@link ModelBootstrap}, and returns straight away.
+     * Recently previewed {@link Face}s are kept by {@link FaceRepository},
+     * and the neighbouring indexes are loaded into it by {@link #prefetcher}.
+     * Once loaded, it is shown by {@link #showPreview(Face, int)}.
+     * Failures are logged by {@link ModelBootstrap}.
      */
     public void updatePreview() {
+        int request = ++requests;
         String index = faceIndex.getText();
-        String shapeFile = SHAPE_PREFIX + index + FILENAME_SUFFIX;
-        String textureFile = TEXTURE_PREFIX + index + FILENAME_SUFFIX;
-        int weightIndex = Integer.parseInt(index) - 1;
-        Face current = Face.parse(shapeFile, textureFile, weightIndex);
-        current.scale(-FACE_SCALING);
-        preview.setFace(current);
-        this.validate();
-        this.repaint();
+        ModelBootstrap.load(index).thenAccept(face ->
+                SwingUtilities.invokeLater(() -> showPreview(face, request)));
+        prefetcher.prefetch(index);
     }
 
     /**
-     * Undoes all transformation done on the {@link Face} when it was previewed,
-     * returns it and forgets about it.
+     * Passes the given {@link Face} to {@link #preview} to do a quick render.
+     * The previously previewed {@link Face}, if any, is closed.
+     * If a later preview was requested in the meantime,
+     * the given {@link Face} is closed instead.
      *
-     * @return the originally parsed {@link Face}
+     * @param current the loaded {@link Face}
+     * @param request the number of the request it was loaded for
      */
-    public Face restoreFace() {
-        Face f = preview.restoreFace();
-        f.scale(-1 / FACE_SCALING);
-        return f;
+    private void showPreview(final Face current, final int request) {
+        if (request != requests) {
+            current.close();
+            return;
+        }
+        Face previous = preview.getFace();
+        preview.setFace(current);
+        if (previous != null) {
+            previous.close();
+        }
+        this.validate();
+        this.repaint();
     }
 
     /**
@@ -130,6 +144,11 @@ public class FaceSelector extends JPanel {
         return String.format("%.2f", getWeight()) + "*" + faceIndex.getText();
     }
 
+    /** @return the index of the previewed {@link Face}, as in the CSV file names */
+    public String getFaceIndex() {
+        return faceIndex.getText();
+    }
+
     /** @return the selected weight of the {@link Face} in the synthetic one */
     public double getWeight() {
         return Double.parseDouble((weight.getText()));
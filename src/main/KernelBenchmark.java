@@ -0,0 +1,242 @@
+package main;
+
+import model.Homogeneous3DPoint;
+import model.VertexBuffer;
+import util.math.Kernels;
+import util.math.Mat4;
+import util.math.PointTransform;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static main.Main.L;
+
+/**
+ * Measures the array kernels of {@link Kernels} and {@link PointTransform}
+ * against the loops over points that they replace.
+ * Synthesis, transformation, and shading are each timed
+ * on meshes of growing size, point by point and as a kernel.
+ * HotSpot picks the SIMD width of the kernels from the processor,
+ * so to compare widths, run this again with a narrower limit,
+ * such as -XX:MaxVectorSize=16 or -XX:UseAVX=0.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class KernelBenchmark {
+
+    /** The numbers of points in the meshes to measure. */
+    private static final int[] MESH_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    /** The number of points to process per mesh size. */
+    private static final long POINTS_PER_MEASUREMENT = 20_000_000L;
+
+    /** The number of faces synthesised together. */
+    private static final int FACES = 3;
+
+    /** Receives results, so that the work is not optimised away. */
+    private static double sink;
+
+    public static void main(final String[] args) {
+        Random random = new Random(0);
+        Mat4 m = new Mat4().rotationX(random.nextDouble()).mul(
+                new Mat4().translation(random.nextDouble(), 1, 2));
+        System.out.println("Time per point, in ns, and speed-up of the kernel:");
+        System.out.println(String.format("%-10s %9s %12s %12s %9s",
+                "kernel", "n", "per point", "kernel", "speed-up"));
+        for (int n : MESH_SIZES) {
+            int repetitions = (int) Math.max(1, POINTS_PER_MEASUREMENT / n);
+            benchmarkSynthesis(n, repetitions, random);
+            benchmarkTransform(m, n, repetitions, random);
+            benchmarkShading(n, repetitions, random);
+        }
+        System.out.println("(checksum " + sink + ")");
+        // Reading the settings started the logger
+        L.close();
+    }
+
+    /**
+     * Times adding up weighted coordinates of {@link #FACES} faces,
+     * through getters as Face.synthesise did,
+     * and with {@link VertexBuffer#addCoordinates}, which uses {@link Kernels#axpy}.
+     *
+     * @param n           the number of points per face
+     * @param repetitions the number of times to synthesise
+     * @param random      the source of the coordinates
+     */
+    private static void benchmarkSynthesis(final int n, final int repetitions,
+                                           final Random random) {
+        VertexBuffer[] faces = new VertexBuffer[FACES];
+        double[] weights = new double[FACES];
+        for (int j = 0; j < FACES; j++) {
+            faces[j] = VertexBuffer.wrap(randomArray(n * VertexBuffer.COORDINATES, random),
+                    new int[n]);
+            weights[j] = random.nextDouble();
+        }
+        int length = n * VertexBuffer.COORDINATES;
+        double[] dest = new double[length];
+        double points = time(() -> {
+            for (int i = 0; i < length; i++) {
+                double sum = 0;
+                for (int j = 0; j < FACES; j++) {
+                    sum += faces[j].getCoordinate(i) * weights[j];
+                }
+                dest[i] = sum;
+            }
+            sink += dest[0];
+        }, repetitions) / n;
+        double kernel = time(() -> {
+            Arrays.fill(dest, 0);
+            for (int j = 0; j < FACES; j++) {
+                faces[j].addCoordinates(weights[j], dest, 0, n);
+            }
+            sink += dest[0];
+        }, repetitions) / n;
+        print("synthesis", n, points, kernel);
+    }
+
+    /**
+     * Times transforming a mesh through getters and setters,
+     * as the default {@link VertexBuffer#transform} does,
+     * and with {@link PointTransform#transform}.
+     *
+     * @param m           the transformation
+     * @param n           the number of points
+     * @param repetitions the number of times to transform
+     * @param random      the source of the coordinates
+     */
+    private static void benchmarkTransform(final Mat4 m, final int n, final int repetitions,
+                                           final Random random) {
+        double[] src = randomArray(n * VertexBuffer.COORDINATES, random);
+        double[] dest = new double[src.length];
+        VertexBuffer source = VertexBuffer.wrap(src, new int[n]);
+        VertexBuffer target = VertexBuffer.wrap(dest, new int[n]);
+        double points = time(() -> {
+            for (int i = 0; i < src.length; i += VertexBuffer.COORDINATES) {
+                double x = source.getCoordinate(i);
+                double y = source.getCoordinate(i + 1);
+                double z = source.getCoordinate(i + 2);
+                target.setCoordinate(i, m.transformX(x, y, z));
+                target.setCoordinate(i + 1, m.transformY(x, y, z));
+                target.setCoordinate(i + 2, m.transformZ(x, y, z));
+            }
+            sink += dest[0];
+        }, repetitions) / n;
+        double kernel = time(() -> {
+            PointTransform.transform(m, src, dest, n);
+            sink += dest[0];
+        }, repetitions) / n;
+        print("transform", n, points, kernel);
+    }
+
+    /**
+     * Times the Lambertian dot products for a directional light,
+     * with a point per normal and light as before,
+     * and with {@link Kernels#dot} over arrays.
+     *
+     * @param n           the number of triangles
+     * @param repetitions the number of times to shade
+     * @param random      the source of the normals
+     */
+    private static void benchmarkShading(final int n, final int repetitions,
+                                         final Random random) {
+        double[] normals = randomArray(n * VertexBuffer.COORDINATES, random);
+        double[] directions = new double[normals.length];
+        double[] facing = new double[n];
+        double[] dots = new double[n];
+        double[] intensities = new double[n];
+        Homogeneous3DPoint light = new Homogeneous3DPoint(0.3, 0.4, -1, 0);
+        Homogeneous3DPoint view = new Homogeneous3DPoint(0, 0, -1, 0);
+        double points = time(() -> {
+            for (int t = 0; t < n; t++) {
+                int offset = t * VertexBuffer.COORDINATES;
+                Homogeneous3DPoint normal = new Homogeneous3DPoint(normals[offset],
+                        normals[offset + 1], normals[offset + 2], 0);
+                if (normal.dot(view) <= 0) {
+                    normal = new Homogeneous3DPoint(-normal.getX(), -normal.getY(),
+                            -normal.getZ(), 0);
+                }
+                double length = light.getLength();
+                Homogeneous3DPoint wi = new Homogeneous3DPoint(light.getX() / length,
+                        light.getY() / length, light.getZ() / length, 0);
+                double dot = Homogeneous3DPoint.dot(normal, wi);
+                intensities[t] = dot > 0 ? dot : 0;
+            }
+            sink += intensities[0];
+        }, repetitions) / n;
+        double kernel = time(() -> {
+            double length = light.getLength();
+            double x = light.getX() / length;
+            double y = light.getY() / length;
+            double z = light.getZ() / length;
+            for (int i = 0; i < directions.length; i += VertexBuffer.COORDINATES) {
+                directions[i] = x;
+                directions[i + 1] = y;
+                directions[i + 2] = z;
+            }
+            Kernels.dot(normals, view.getX(), view.getY(), view.getZ(), facing, n);
+            Kernels.dot(normals, directions, dots, n);
+            for (int t = 0; t < n; t++) {
+                double dot = facing[t] > 0 ? dots[t] : -dots[t];
+                intensities[t] = dot > 0 ? dot : 0;
+            }
+            sink += intensities[0];
+        }, repetitions) / n;
+        print("shading", n, points, kernel);
+    }
+
+    /**
+     * Creates an array with random values between -1 and 1.
+     *
+     * @param length the length of the array
+     * @param random the source of the values
+     *
+     * @return the array
+     */
+    private static double[] randomArray(final int length, final Random random) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+
+    /**
+     * Runs the given kernel the given number of times to warm up,
+     * then times another such number of runs.
+     *
+     * @param kernel      the work to time
+     * @param repetitions the number of times to run it
+     *
+     * @return the mean time of a single run, in nanoseconds
+     */
+    private static double time(final Runnable kernel, final int repetitions) {
+        for (int i = 0; i < repetitions; i++) {
+            kernel.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            kernel.run();
+        }
+        return (System.nanoTime() - start) / (double) repetitions;
+    }
+
+    /**
+     * Prints the times of a kernel and the loop it replaces.
+     *
+     * @param name   the name of the kernel
+     * @param n      the number of points
+     * @param points the time per point of the loop over points, in nanoseconds
+     * @param kernel the time per point of the kernel, in nanoseconds
+     */
+    private static void print(final String name, final int n, final double points,
+                              final double kernel) {
+        System.out.println(String.format("%-10s %9d %12.2f %12.2f %8.1fx",
+                name, n, points, kernel, points / kernel));
+    }
+
+    /** Hides the constructor for this utility class. */
+    private KernelBenchmark() {
+    }
+
+}
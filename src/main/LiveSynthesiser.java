@@ -0,0 +1,168 @@
+package main;
+
+import model.Face;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+
+/**
+ * Synthesises {@link Face}s on a background thread while the weights change.
+ * Requests that arrive while a {@link Face} is being synthesised are coalesced,
+ * so only the latest coefficients are synthesised next
+ * and the {@link Face}s shown never fall behind the mouse.
+ * Synthesised {@link Face}s are passed on on the Swing event thread.
+ * While requests keep coming, {@link Face}s are synthesised as cheap previews.
+ * Once none have come for {@link #REFINEMENT_DELAY} milliseconds,
+ * the latest coefficients are synthesised again in full,
+ * unless their preview already was the full {@link Face}.
+ *
+ * @author 150009974
+ * @version 1.2
+ */
+public final class LiveSynthesiser {
+
+    /** The thread that synthesises, shared by all {@link LiveSynthesiser}s. */
+    private static final ScheduledExecutorService THREAD =
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "Live synthesiser");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** The time without requests after which a preview is refined, in milliseconds. */
+    private static final long REFINEMENT_DELAY = PROPS.getLong("synthesis refinement delay");
+
+    /** Synthesises a preview {@link Face} from coefficients. */
+    private final Function<double[], Preview> previewer;
+
+    /** Synthesises a full {@link Face} from coefficients. */
+    private final Function<double[], Face> synthesiser;
+
+    /** Receives each synthesised {@link Face}, on the Swing event thread. */
+    private final Consumer<Face> onSynthesised;
+
+    /** The latest coefficients not yet synthesised, or null if there are none. */
+    private final AtomicReference<double[]> pending = new AtomicReference<>();
+
+    /** The full synthesis of the latest coefficients, once requests stop. */
+    private final AtomicReference<ScheduledFuture<?>> refinement = new AtomicReference<>();
+
+    /**
+     * The coefficients of the last preview, if it was complete, or null.
+     * Only used on the {@link #THREAD}.
+     */
+    private double[] complete;
+
+    /**
+     * Creates a {@link LiveSynthesiser} that has nothing to synthesise.
+     *
+     * @param previewer     synthesises a {@link Preview} from coefficients
+     * @param synthesiser   synthesises a full {@link Face} from coefficients
+     * @param onSynthesised receives each synthesised {@link Face},
+     *                      and becomes responsible for closing it
+     */
+    public LiveSynthesiser(final Function<double[], Preview> previewer,
+                           final Function<double[], Face> synthesiser,
+                           final Consumer<Face> onSynthesised) {
+        this.previewer = previewer;
+        this.synthesiser = synthesiser;
+        this.onSynthesised = onSynthesised;
+    }
+
+    /**
+     * Requests a {@link Face} for the given coefficients and returns straight away.
+     * If earlier coefficients are still waiting, they are replaced,
+     * and their refinement is cancelled.
+     *
+     * @param coefficients the coefficient of each component
+     */
+    public void request(final double[] coefficients) {
+        if (pending.getAndSet(coefficients) == null) {
+            THREAD.execute(this::previewLatest);
+        }
+        ScheduledFuture<?> previous = refinement.getAndSet(THREAD.schedule(
+                () -> refine(coefficients), REFINEMENT_DELAY, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Previews the latest requested coefficients, if they were not already,
+     * and remembers whether the preview needs refining.
+     */
+    private void previewLatest() {
+        double[] coefficients = pending.getAndSet(null);
+        if (coefficients != null) {
+            complete = null;
+            deliver(() -> {
+                Preview preview = previewer.apply(coefficients);
+                if (preview.complete) {
+                    complete = coefficients;
+                }
+                return preview.face;
+            });
+        }
+    }
+
+    /**
+     * Synthesises the given coefficients in full,
+     * unless newer coefficients are waiting, which are refined later anyway,
+     * or their preview already was complete.
+     * The refinement runs on the {@link #THREAD} after the preview of the same coefficients.
+     *
+     * @param coefficients the latest requested coefficients
+     */
+    private void refine(final double[] coefficients) {
+        if (pending.get() == null && coefficients != complete) {
+            deliver(() -> synthesiser.apply(coefficients));
+        }
+    }
+
+    /**
+     * Synthesises a {@link Face} and passes it on, on the Swing event thread.
+     * A failure is logged, so that later requests are still synthesised.
+     *
+     * @param synthesis synthesises the {@link Face}
+     */
+    private void deliver(final Supplier<Face> synthesis) {
+        try {
+            Face face = synthesis.get();
+            SwingUtilities.invokeLater(() -> onSynthesised.accept(face));
+        } catch (RuntimeException e) {
+            L.log(e);
+        }
+    }
+
+    /** A preview {@link Face}, and whether it already is the full synthesis. */
+    public static final class Preview {
+
+        /** The synthesised {@link Face}. */
+        private final Face face;
+
+        /** Whether the {@link #face} is the same as a full synthesis. */
+        private final boolean complete;
+
+        /**
+         * @param face     the synthesised {@link Face}
+         * @param complete whether it is the same as a full synthesis,
+         *                 so it needs no refinement
+         */
+        public Preview(final Face face, final boolean complete) {
+            this.face = face;
+            this.complete = complete;
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package main;
 
+import model.ModelBootstrap;
 import util.log.Logger;
 import util.properties.GraphicsProps;
 
@@ -9,7 +10,7 @@ import java.io.FileNotFoundException;
  * Provides the main method to run the system.
  *
  * @author 150009974
- * @version 1.1
+ * @version 1.2
  */
 public final class Main {
 
@@ -29,6 +30,8 @@ public final class Main {
     }
 
     public static void main(final String[] args) {
+        // Load the model while the user interface is created
+        ModelBootstrap.start();
         FaceInterpolator interpolator = new FaceInterpolator();
         interpolator.setVisible(true);
         interpolator.updatePreviews();
@@ -0,0 +1,232 @@
+package main;
+
+import org.jblas.DoubleMatrix;
+import util.math.Mat4;
+import util.math.PointTransform;
+import util.math.Vec4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures where jblas becomes faster than plain Java for matrix products.
+ * First the 4x4 products used when rendering are compared
+ * against {@link Mat4}.
+ * Then square products of growing size are compared
+ * against a simple loop over the same column-major arrays,
+ * and the smallest size at which jblas wins is reported.
+ * Finally, whole meshes of growing size are transformed
+ * point by point, as a single loop, and as a single jblas product,
+ * to choose the gemm transform threshold.
+ * The result depends on the native BLAS that jblas loads,
+ * so it should be run on the machine in question.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class MatrixBenchmark {
+
+    /** The sizes of the square matrices to compare. */
+    private static final int[] SIZES = {4, 8, 16, 32, 64, 128, 256};
+
+    /** The number of floating point operations to time per size. */
+    private static final long FLOPS_PER_MEASUREMENT = 400_000_000L;
+
+    /** The numbers of points in the meshes to transform. */
+    private static final int[] MESH_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    /** The number of points to transform per mesh size. */
+    private static final long POINTS_PER_MEASUREMENT = 20_000_000L;
+
+    /** The number of times to repeat a 4x4 product. */
+    private static final int SMALL_REPETITIONS = 5_000_000;
+
+    /** Receives results, so that the work is not optimised away. */
+    private static double sink;
+
+    public static void main(final String[] args) {
+        Random random = new Random(0);
+        Mat4 m4 = new Mat4().rotationX(random.nextDouble()).mul(
+                new Mat4().translation(random.nextDouble(), 1, 2));
+        Mat4 product4 = new Mat4();
+        Vec4 v4 = new Vec4();
+        DoubleMatrix m = randomMatrix(4, 4, random);
+        DoubleMatrix v = randomMatrix(4, 1, random);
+        DoubleMatrix mv = new DoubleMatrix(4, 1);
+        DoubleMatrix mm = new DoubleMatrix(4, 4);
+
+        System.out.println("4x4 by 4x1, as when transforming a vertex, in ns:");
+        print("Mat4.transform", time(() ->
+                sink += m4.transform(1, 2, 3, 1, v4).getX(), SMALL_REPETITIONS));
+        print("DoubleMatrix.mmuli", time(() ->
+                sink += m.mmuli(v, mv).get(0), SMALL_REPETITIONS));
+        print("DoubleMatrix.mmul", time(() ->
+                sink += m.mmul(v).get(0), SMALL_REPETITIONS));
+
+        System.out.println("4x4 by 4x4, as when composing transformations, in ns:");
+        print("Mat4.mul", time(() ->
+                sink += m4.mul(m4, product4).get(0, 0), SMALL_REPETITIONS));
+        print("DoubleMatrix.mmuli", time(() ->
+                sink += m.mmuli(m, mm).get(0), SMALL_REPETITIONS));
+        print("DoubleMatrix.mmul", time(() ->
+                sink += m.mmul(m).get(0), SMALL_REPETITIONS));
+
+        System.out.println("n x n by n x n, in ns:");
+        System.out.println(String.format("%6s %14s %14s", "n", "Java", "jblas"));
+        int crossover = -1;
+        for (int n : SIZES) {
+            DoubleMatrix a = randomMatrix(n, n, random);
+            DoubleMatrix b = randomMatrix(n, n, random);
+            DoubleMatrix c = new DoubleMatrix(n, n);
+            int repetitions = (int) Math.max(1, FLOPS_PER_MEASUREMENT / (2L * n * n * n));
+            double java = time(() -> {
+                multiply(a.data, b.data, c.data, n);
+                sink += c.data[0];
+            }, repetitions);
+            double jblas = time(() -> sink += a.mmuli(b, c).get(0), repetitions);
+            System.out.println(String.format("%6d %14.1f %14.1f", n, java, jblas));
+            if (crossover < 0 && jblas < java) {
+                crossover = n;
+            }
+        }
+        if (crossover < 0) {
+            System.out.println("Plain Java was faster at all measured sizes.");
+        } else {
+            System.out.println("jblas is faster from n = " + crossover + ".");
+        }
+        benchmarkMeshes(m4, random);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Times transforming meshes of each of the {@link #MESH_SIZES},
+     * and prints the smallest size at which jblas wins.
+     *
+     * @param m      the transformation
+     * @param random the source of the coordinates
+     */
+    private static void benchmarkMeshes(final Mat4 m, final Random random) {
+        DoubleMatrix perPoint = new DoubleMatrix(4, 4);
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                perPoint.put(row, column, m.get(row, column));
+            }
+        }
+        System.out.println("Transforming a mesh of n points, in ns per point:");
+        System.out.println(String.format("%9s %12s %12s %12s",
+                "n", "per point", "Java loop", "jblas"));
+        int crossover = -1;
+        for (int n : MESH_SIZES) {
+            double[] src = randomMatrix(PointTransform.COORDINATES, n, random).data;
+            double[] dest = new double[src.length];
+            int repetitions = (int) Math.max(1, POINTS_PER_MEASUREMENT / n);
+            double points = time(() -> {
+                // As Face.transform was done before: one 4x4 by 4x1 product per point
+                for (int i = 0; i < src.length; i += PointTransform.COORDINATES) {
+                    DoubleMatrix p = new DoubleMatrix(4, 1, src[i], src[i + 1], src[i + 2], 1);
+                    DoubleMatrix q = perPoint.mmul(p);
+                    dest[i] = q.get(0);
+                    dest[i + 1] = q.get(1);
+                    dest[i + 2] = q.get(2);
+                }
+                sink += dest[0];
+            }, repetitions) / n;
+            double loop = time(() -> {
+                PointTransform.transform(m, src, dest, n);
+                sink += dest[0];
+            }, repetitions) / n;
+            double gemm = time(() -> {
+                PointTransform.gemm(m, src, dest, n);
+                sink += dest[0];
+            }, repetitions) / n;
+            System.out.println(String.format("%9d %12.2f %12.2f %12.2f",
+                    n, points, loop, gemm));
+            if (crossover < 0 && gemm < loop) {
+                crossover = n;
+            }
+        }
+        if (crossover < 0) {
+            System.out.println("The Java loop was faster at all measured sizes.");
+        } else {
+            System.out.println("Set the gemm transform threshold to " + crossover + ".");
+        }
+    }
+
+    /**
+     * Creates a matrix with random entries between 0 and 1.
+     *
+     * @param rows    the number of rows
+     * @param columns the number of columns
+     * @param random  the source of the entries
+     *
+     * @return the matrix
+     */
+    private static DoubleMatrix randomMatrix(final int rows, final int columns,
+                                             final Random random) {
+        DoubleMatrix m = new DoubleMatrix(rows, columns);
+        for (int i = 0; i < rows * columns; i++) {
+            m.put(i, random.nextDouble());
+        }
+        return m;
+    }
+
+    /**
+     * Multiplies two square column-major matrices, (a * b),
+     * and stores the result in c.
+     * The innermost loop runs down a column, so it reads memory in order.
+     *
+     * @param a the first matrix to multiply
+     * @param b the second matrix to multiply
+     * @param c the matrix to store the product in
+     * @param n the number of rows and columns
+     */
+    private static void multiply(final double[] a, final double[] b,
+                                 final double[] c, final int n) {
+        Arrays.fill(c, 0, n * n, 0);
+        for (int j = 0; j < n; j++) {
+            int cColumn = j * n;
+            for (int k = 0; k < n; k++) {
+                double bkj = b[k + j * n];
+                int aColumn = k * n;
+                for (int i = 0; i < n; i++) {
+                    c[cColumn + i] += a[aColumn + i] * bkj;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given kernel the given number of times to warm up,
+     * then times another such number of runs.
+     *
+     * @param kernel      the work to time
+     * @param repetitions the number of times to run it
+     *
+     * @return the mean time of a single run, in nanoseconds
+     */
+    private static double time(final Runnable kernel, final int repetitions) {
+        for (int i = 0; i < repetitions; i++) {
+            kernel.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            kernel.run();
+        }
+        return (System.nanoTime() - start) / (double) repetitions;
+    }
+
+    /**
+     * Prints the name and time of a kernel.
+     *
+     * @param name the name of the kernel
+     * @param time the mean time of a single run, in nanoseconds
+     */
+    private static void print(final String name, final double time) {
+        System.out.println(String.format("  %-20s %8.1f", name, time));
+    }
+
+    /** Hides the constructor for this utility class. */
+    private MatrixBenchmark() {
+    }
+
+}
@@ -0,0 +1,125 @@
+package main;
+
+import model.Mesh;
+import model.ModelFile;
+import util.file.editing.NumericReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+import static model.VertexBuffer.COORDINATES;
+
+/**
+ * Converts the model from the CSV files into a single {@link ModelFile}.
+ * The CSV files are the ones named in the settings.
+ * Components are numbered from 001, as in the file names,
+ * and are read until one is missing or there are no more weights for it.
+ * The model file is written to the configured "model file",
+ * or to the path given as the first argument.
+ * Once it exists, it is read instead of the CSV files.
+ * The components are stored in the configured encoding, optionally compressed,
+ * and the largest error this introduces in each component is printed.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class ModelConverter {
+
+    public static void main(final String[] args) throws IOException {
+        String output = args.length == 0 ? PROPS.getString("model file") : args[0];
+        int[] indexes = NumericReader.readInts(PROPS.getString("mesh file"), L);
+        double[] averageShape = NumericReader.readDoubles(
+                PROPS.getString("average face shape"), L);
+        double[] averageColor = NumericReader.readDoubles(
+                PROPS.getString("average face color"), L);
+        double[] shapeWeights = NumericReader.readDoubles(
+                PROPS.getString("shape weights"), L);
+        double[] colorWeights = NumericReader.readDoubles(
+                PROPS.getString("color weights"), L);
+
+        int components = 0;
+        int maxComponents = Math.min(shapeWeights.length, colorWeights.length);
+        while (components < maxComponents
+                && Files.isRegularFile(Paths.get(shapeFile(components)))
+                && Files.isRegularFile(Paths.get(colorFile(components)))) {
+            components++;
+        }
+
+        int points = averageShape.length / COORDINATES;
+        int triangles = indexes.length / Mesh.CORNERS;
+        for (int i = 0; i < indexes.length; i++) {
+            // Account for indexes starting at 1.
+            indexes[i]--;
+        }
+        ModelFile.Encoding encoding = ModelFile.Encoding.valueOf(
+                PROPS.getString("model basis encoding").toUpperCase());
+        boolean compressed = PROPS.isTrue("compress model basis");
+        System.out.println("Component  max shape error  max color error");
+        try (ModelFile.Writer writer = ModelFile.create(output, points, triangles,
+                components, encoding, compressed)) {
+            writer.putIndexes(indexes);
+            writer.putAverage(averageShape, averageColor);
+            writer.putWeights(shapeWeights, colorWeights);
+            for (int c = 0; c < components; c++) {
+                double shapeError = writer.putShapeComponent(c, read(shapeFile(c), points));
+                double colorError = writer.putColorComponent(c, read(colorFile(c), points));
+                System.out.println(String.format("%9d  %15.6g  %15.6g",
+                        c + 1, shapeError, colorError));
+            }
+        }
+        long doubles = 2L * components * points * COORDINATES * Double.BYTES;
+        System.out.println("Wrote " + points + " points, " + triangles
+                + " triangles, and " + components + " components to " + output);
+        System.out.println(String.format("Stored as %s%s: %d bytes, %d as doubles",
+                encoding, compressed ? ", compressed" : "",
+                Files.size(Paths.get(output)), doubles));
+        L.close();
+    }
+
+    /**
+     * @param component the index of a component, starting at 0
+     *
+     * @return the name of the CSV file with its shape
+     */
+    private static String shapeFile(final int component) {
+        return PROPS.getString("shape prefix") + String.format("%03d", component + 1)
+                + PROPS.getString("filename suffix");
+    }
+
+    /**
+     * @param component the index of a component, starting at 0
+     *
+     * @return the name of the CSV file with its color
+     */
+    private static String colorFile(final int component) {
+        return PROPS.getString("texture prefix") + String.format("%03d", component + 1)
+                + PROPS.getString("filename suffix");
+    }
+
+    /**
+     * Reads all numbers from the given CSV file of a component.
+     *
+     * @param filename the name of the CSV file
+     * @param points   the number of points of a face
+     *
+     * @return the x,y,z or r,g,b of each point
+     *
+     * @throws IllegalStateException if the file has a different number of points
+     */
+    private static double[] read(final String filename, final int points) {
+        double[] values = NumericReader.readDoubles(filename, L);
+        if (values.length != points * COORDINATES) {
+            throw new IllegalStateException(filename
+                    + " does not have the same number of points as the average face");
+        }
+        return values;
+    }
+
+    /** Hides the constructor for this utility class. */
+    private ModelConverter() {
+    }
+
+}
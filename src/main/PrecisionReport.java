@@ -0,0 +1,125 @@
+package main;
+
+import model.Face;
+import model.FaceRepository;
+import model.Homogeneous3DPoint;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+
+/**
+ * Reports how far single precision vertex storage
+ * deviates from double precision.
+ * The given faces (by default 001, 002, and 003) are parsed
+ * and synthesised with equal weights, once in each precision.
+ * Both results are then fitted on a screen,
+ * the same way {@link renderers.SynthesisedRenderer} does.
+ * Must be run with single precision vertexes disabled,
+ * so that the reference is parsed in double precision.
+ *
+ * @author 150009974
+ * @version 1.2
+ */
+public final class PrecisionReport {
+
+    /** The face scaling factor for fitting on screen. */
+    private static final double SCREEN_FIT_FACTOR =
+            PROPS.getDouble("synthesised screen fit factor");
+
+    /** The width of the screen the faces are fitted on. */
+    private static final int SCREEN_WIDTH = 1920;
+
+    /** The height of the screen the faces are fitted on. */
+    private static final int SCREEN_HEIGHT = 1080;
+
+    public static void main(final String[] args) {
+        String[] indexes = args.length == 0 ? new String[]{"001", "002", "003"} : args;
+        Face[] doubles = new Face[indexes.length];
+        Face[] floats = new Face[indexes.length];
+        double[] weights = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            doubles[i] = FaceRepository.SHARED.get(indexes[i]);
+            floats[i] = doubles[i].copy(true);
+            weights[i] = 1.0 / indexes.length;
+        }
+        if (doubles[0].isSinglePrecision()) {
+            System.out.println("Disable single precision vertexes to run this report.");
+            L.close();
+            return;
+        }
+
+        report("Parsed " + indexes[0], doubles[0], floats[0]);
+        Face expected = Face.synthesise(doubles, weights);
+        Face actual = Face.synthesise(floats, weights);
+        report("Synthesised", expected, actual);
+        fitOnScreen(expected);
+        fitOnScreen(actual);
+        report("On screen, in pixels", expected, actual);
+        int[] expectedOrder = expected.getTrianglesByDepth();
+        int[] actualOrder = actual.getTrianglesByDepth();
+        int reordered = 0;
+        for (int i = 0; i < expectedOrder.length; i++) {
+            if (expectedOrder[i] != actualOrder[i]) {
+                reordered++;
+            }
+        }
+        System.out.println("Triangles drawn in a different order: "
+                + reordered + " of " + expectedOrder.length);
+
+        for (int i = 0; i < indexes.length; i++) {
+            doubles[i].close();
+            floats[i].close();
+        }
+        expected.close();
+        actual.close();
+        L.close();
+    }
+
+    /**
+     * Scales and centers the given {@link Face}
+     * like {@link renderers.SynthesisedRenderer#setFace(Face)}.
+     *
+     * @param f the {@link Face} to fit on the screen
+     */
+    private static void fitOnScreen(final Face f) {
+        f.scale(-SCREEN_FIT_FACTOR);
+        f.setCenter(new Homogeneous3DPoint(SCREEN_WIDTH / 2, SCREEN_HEIGHT / 2, 0));
+    }
+
+    /**
+     * Prints the largest and mean absolute difference in coordinates
+     * between the given {@link Face}s,
+     * as well as the largest difference relative to the coordinate's magnitude.
+     *
+     * @param title    the title of the comparison
+     * @param expected the double precision {@link Face}
+     * @param actual   the single precision {@link Face}
+     */
+    private static void report(final String title, final Face expected,
+                               final Face actual) {
+        double max = 0;
+        double sum = 0;
+        double maxRelative = 0;
+        int n = expected.size();
+        for (int i = 0; i < n; i++) {
+            double[] e = {expected.getX(i), expected.getY(i), expected.getZ(i)};
+            double[] a = {actual.getX(i), actual.getY(i), actual.getZ(i)};
+            for (int axis = 0; axis < e.length; axis++) {
+                double error = Math.abs(e[axis] - a[axis]);
+                max = Math.max(max, error);
+                sum += error;
+                if (e[axis] != 0) {
+                    maxRelative = Math.max(maxRelative, error / Math.abs(e[axis]));
+                }
+            }
+        }
+        System.out.println(String.format("%s: max error %.3g, mean error %.3g,"
+                        + " max relative error %.3g",
+                title, max, sum / (n * 3), maxRelative));
+    }
+
+    /** Hides the constructor for this utility class. */
+    private PrecisionReport() {
+    }
+
+}
@@ -2,13 +2,14 @@ package main;
 
 import model.Face;
 import model.Homogeneous3DPoint;
-import model.Homogeneous3DPolygon;
 import renderers.DirectionalLightSource;
+import renderers.FaceView;
 import renderers.IlluminationModel;
 import renderers.LambertianIlluminationModel;
 import renderers.LightSource;
 import renderers.OrthographicProjector;
 import renderers.Projector;
+import util.math.Mat4;
 
 import javax.swing.JDialog;
 import javax.swing.JPanel;
@@ -21,8 +22,6 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.Collections;
 
 import static main.Main.L;
 
@@ -30,12 +29,12 @@ import static main.Main.L;
  * Represents a QuickVisualisation.
  *
  * @author 150009974
- * @version 2.0
+ * @version 2.4
  */
 public final class QuickVisualisation extends JDialog {
 
     public static void main(final String[] args) {
-        Face face = Face.parse("data/sh_001.csv", "data/tx_001.csv", 0);
+        Face face = Face.load("001");
         face.scale(-1);
         face.scale(0.003);
         QuickVisualisation quick = new QuickVisualisation();
@@ -46,6 +45,17 @@ public final class QuickVisualisation extends JDialog {
         L.close();
     }
 
+    /**
+     * Creates a matrix that translates by the given offset.
+     *
+     * @param offset the offset to translate by
+     *
+     * @return the translation matrix
+     */
+    private static Mat4 translation(final Homogeneous3DPoint offset) {
+        return new Mat4().translation(offset.getX(), offset.getY(), offset.getZ());
+    }
+
     /** The main drawing area. */
     private JPanel canvas = new JPanel();
 
@@ -55,8 +65,11 @@ public final class QuickVisualisation extends JDialog {
     /** The currently used {@link IlluminationModel}. */
     private IlluminationModel illuminationModel;
 
-    /** The currently displayed face. */
-    private Face current;
+    /** The currently displayed face, as seen on the {@link #canvas}. */
+    private FaceView current = new FaceView();
+
+    /** The point on the {@link #canvas} where the face is centered. */
+    private Homogeneous3DPoint center;
 
     /** Creates an application window with default configuration. */
     private QuickVisualisation() {
@@ -103,32 +116,36 @@ public final class QuickVisualisation extends JDialog {
 
             @Override
             public void mousePressed(final MouseEvent e) {
-                int x = e.getX();
-                int y = e.getY();
-                int z = 0;
-                Homogeneous3DPoint center = new Homogeneous3DPoint(x, y, z);
-                current.setCenter(center);
+                Homogeneous3DPoint click = new Homogeneous3DPoint(e.getX(), e.getY(), 0);
+                current.transform(translation(Homogeneous3DPoint.subtract(click, center)));
+                center = click;
                 repaint();
             }
         });
         canvas.addMouseWheelListener(e -> {
-            Homogeneous3DPoint center = current.getCenter();
-            current.setCenter(new Homogeneous3DPoint(0, 0, 0));
-            current.scale(1 - 0.1 * e.getPreciseWheelRotation());
-            current.setCenter(center);
+            // Move center to origin, scale, move back
+            double factor = 1 - 0.1 * e.getPreciseWheelRotation();
+            Mat4 scaling = new Mat4().scaling(factor, factor, factor);
+            Homogeneous3DPoint origin = new Homogeneous3DPoint(0, 0, 0);
+            Mat4 toOrigin = translation(Homogeneous3DPoint.subtract(origin, center));
+            current.transform(translation(center).mul(scaling).mul(toOrigin));
             repaint();
         });
         this.add(canvas);
     }
 
-    /** @param f the face to draw */
+    /**
+     * Sets the face to draw, centered on the {@link #canvas}.
+     * The face itself is not modified.
+     *
+     * @param f the face to draw
+     */
     public void setFace(final Face f) {
-        current = f;
+        current.setFace(f);
         double x = this.getWidth() / 2.0;
         double y = this.getHeight() / 2.0;
-        Homogeneous3DPoint center = new Homogeneous3DPoint(x, y, 0);
-        current.setCenter(center);
-        Collections.sort(current.getPolygons());
+        center = new Homogeneous3DPoint(x, y, 0);
+        current.setModel(translation(Homogeneous3DPoint.subtract(center, f.getCenter())));
     }
 
     @Override
@@ -144,10 +161,10 @@ public final class QuickVisualisation extends JDialog {
      * @param g the {@link Graphics2D} to use
      */
     public void paintFace(final Graphics2D g) {
-        ArrayList<Homogeneous3DPolygon> polygons = current.getPolygons();
-        for (Homogeneous3DPolygon polygon : polygons) {
-            illuminationModel.configure(g, polygon);
-            Shape projection = projector.project(polygon);
+        Face view = current.getView();
+        for (int triangle : view.getTrianglesByDepth()) {
+            illuminationModel.configure(g, view, triangle);
+            Shape projection = projector.project(view, triangle);
             g.fill(projection);
         }
     }
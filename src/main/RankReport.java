@@ -0,0 +1,99 @@
+package main;
+
+import model.Face;
+import model.MorphableModel;
+
+import java.util.Random;
+
+import static main.Main.L;
+
+/**
+ * Reports what synthesising at a reduced rank costs and loses.
+ * A face is synthesised from random coefficients for every component,
+ * once in full and once at each rank.
+ * For each rank, the fraction of the shape and color variance of the face captured,
+ * the time per synthesis, and the largest difference in coordinates
+ * from the full {@link Face} are printed.
+ * The seed of the coefficients can be given as the only argument.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class RankReport {
+
+    /** The number of times each rank is synthesised, after as many to warm up. */
+    private static final int REPETITIONS = 20;
+
+    public static void main(final String[] args) {
+        long seed = args.length == 0 ? 0 : Long.parseLong(args[0]);
+        MorphableModel model = MorphableModel.load();
+        int components = model.getComponentCount();
+        Random random = new Random(seed);
+        double[] coefficients = new double[components];
+        for (int k = 0; k < components; k++) {
+            coefficients[k] = random.nextGaussian();
+        }
+
+        Face full = model.synthesise(coefficients);
+        System.out.println(String.format("%d components, %d points",
+                components, model.getPointCount()));
+        System.out.println(String.format("%6s %8s %8s %12s %12s",
+                "rank", "shape", "color", "ms", "max error"));
+        for (int rank = 1; ; rank *= 2) {
+            rank = Math.min(rank, components);
+            int r = rank;
+            double ms = time(() -> model.synthesise(coefficients, r).close()) / 1e6;
+            Face preview = model.synthesise(coefficients, rank);
+            System.out.println(String.format("%6d %7.2f%% %7.2f%% %12.3f %12.4g",
+                    rank, 100 * model.getShapeEnergy(coefficients, rank),
+                    100 * model.getColorEnergy(coefficients, rank),
+                    ms, maxError(full, preview)));
+            preview.close();
+            if (rank == components) {
+                break;
+            }
+        }
+        full.close();
+        L.close();
+    }
+
+    /**
+     * Runs the given synthesis {@link #REPETITIONS} times to warm up,
+     * then times another such number of runs.
+     *
+     * @param synthesis the synthesis to time
+     *
+     * @return the mean time of a single run, in nanoseconds
+     */
+    private static double time(final Runnable synthesis) {
+        for (int i = 0; i < REPETITIONS; i++) {
+            synthesis.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            synthesis.run();
+        }
+        return (System.nanoTime() - start) / (double) REPETITIONS;
+    }
+
+    /**
+     * @param expected the {@link Face} synthesised in full
+     * @param actual   the {@link Face} synthesised at a reduced rank
+     *
+     * @return the largest absolute difference in coordinates between them
+     */
+    private static double maxError(final Face expected, final Face actual) {
+        double max = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            max = Math.max(max, Math.abs(expected.getX(i) - actual.getX(i)));
+            max = Math.max(max, Math.abs(expected.getY(i) - actual.getY(i)));
+            max = Math.max(max, Math.abs(expected.getZ(i) - actual.getZ(i)));
+        }
+        return max;
+    }
+
+    /** Hides the constructor for this utility class. */
+    private RankReport() {
+    }
+
+}
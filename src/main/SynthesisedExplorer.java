@@ -7,22 +7,52 @@ import javax.swing.JDialog;
 import javax.swing.WindowConstants;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
  * Provides a way to interact with a Synthesised Face.
  *
  * @author 150009974
- * @version 1.0
+ * @version 1.4
  */
 public class SynthesisedExplorer extends JDialog {
 
     /** The renderer for synthesised faces. */
     private SynthesisedRenderer renderer = new SynthesisedRenderer();
 
+    /**
+     * Creates a {@link SynthesisedExplorer} for the given {@link Face}.
+     * The {@link Face} is closed when the explorer is closed.
+     *
+     * @param synthesised the {@link Face} to explore
+     */
     public SynthesisedExplorer(final Face synthesised) {
         configureBasic();
         configureRenderer();
         renderer.setFace(synthesised);
+        addWindowListener(new WindowAdapter() {
+
+            @Override
+            public void windowClosed(final WindowEvent e) {
+                renderer.restoreFace().close();
+            }
+        });
+    }
+
+    /**
+     * Replaces the explored {@link Face}, keeping the rotation and zoom.
+     * The previous {@link Face} is returned, so that it can be reused.
+     *
+     * @param synthesised the {@link Face} to explore
+     *
+     * @return the previously explored {@link Face}, which the caller must close,
+     * or null if there was none
+     */
+    public Face updateFace(final Face synthesised) {
+        Face previous = renderer.replaceFace(synthesised);
+        renderer.repaint();
+        return previous;
     }
 
     /** Sets the basic configuration. */
@@ -15,11 +15,11 @@ import static main.Main.PROPS;
 
 /**
  * Represents a Triangle-style Selector.
- * The user clicks within a triangle to set weights
+ * The user clicks or drags within a triangle to set weights
  * for the face synthesiser.
  *
  * @author 150009974
- * @version 1.0
+ * @version 1.1
  */
 public class TriangleSelector extends JPanel {
 
@@ -56,23 +56,41 @@ public class TriangleSelector extends JPanel {
         setLayout(null);
         setFocusable(true);
         setBackground(Color.WHITE);
-        addMouseListener(new MouseAdapter() {
+        MouseAdapter mouse = new MouseAdapter() {
 
             @Override
             public void mouseClicked(final MouseEvent e) {
-                DoubleMatrix Q = new DoubleMatrix(2, 1);
-                Q.put(0, 0, e.getX() - top.getX());
-                Q.put(1, 0, e.getY() - top.getY());
-                DoubleMatrix alphaBeta = M_1.mmul(Q);
-                double alpha = alphaBeta.get(0, 0);
-                double beta = alphaBeta.get(1, 0);
-                selection = e.getPoint();
-                if (onClick != null) {
-                    onClick.accept(alpha, beta);
-                }
-                repaint();
+                select(e.getPoint());
             }
-        });
+
+            @Override
+            public void mouseDragged(final MouseEvent e) {
+                select(e.getPoint());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    /**
+     * Selects the given {@link Point} and passes its weights to {@link #onClick}.
+     * Called for every click, and for every movement while dragging,
+     * so the weights follow the mouse.
+     *
+     * @param point the selected {@link Point}
+     */
+    private void select(final Point point) {
+        DoubleMatrix Q = new DoubleMatrix(2, 1);
+        Q.put(0, 0, point.getX() - top.getX());
+        Q.put(1, 0, point.getY() - top.getY());
+        DoubleMatrix alphaBeta = M_1.mmul(Q);
+        double alpha = alphaBeta.get(0, 0);
+        double beta = alphaBeta.get(1, 0);
+        selection = point;
+        if (onClick != null) {
+            onClick.accept(alpha, beta);
+        }
+        repaint();
     }
 
     /** Sets the triangle's {@link #top}, {@link #left}, and {@link #right} {@link Point}s. */
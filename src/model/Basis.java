@@ -0,0 +1,203 @@
+package model;
+
+import org.jblas.DoubleMatrix;
+import util.math.Kernels;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+
+import static model.VertexBuffer.COORDINATES;
+
+/**
+ * Represents the basis of a {@link MorphableModel}, one component per column,
+ * each column being the x,y,z or r,g,b of every point.
+ * A column is only loaded the first time a synthesis needs it,
+ * so synthesising from a few components only ever reads those,
+ * and quantized or deflated components are only decoded when used.
+ * Loaded columns are kept in the configured vertex storage.
+ * If {@link VertexBuffer}s keep doubles on the Java heap,
+ * the columns share one column-major {@link DoubleMatrix},
+ * which the BLAS multiplies directly.
+ * Otherwise, each column is kept in its own {@link VertexBuffer},
+ * off the heap or in floats, and only combined in Java.
+ * Loaded columns are kept until the {@link Basis} is no longer used.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+final class Basis {
+
+    /**
+     * Uses the given matrix as a {@link Basis}, with every column loaded.
+     * It is not copied.
+     *
+     * @param matrix the basis, one component per column
+     *
+     * @return the {@link Basis}
+     */
+    static Basis of(final DoubleMatrix matrix) {
+        Basis basis = new Basis(matrix.rows, matrix.columns, matrix, null, null);
+        for (int k = 0; k < matrix.columns; k++) {
+            basis.loaded.set(k, 1);
+        }
+        return basis;
+    }
+
+    /**
+     * Creates a {@link Basis} in the configured vertex storage,
+     * without loading any column.
+     *
+     * @param points  the number of points of each column
+     * @param columns the number of columns
+     * @param source  reads the values of a column, given its index
+     *
+     * @return the {@link Basis}
+     */
+    static Basis onDemand(final int points, final int columns,
+                          final IntFunction<DoubleBuffer> source) {
+        int rows = points * COORDINATES;
+        if (VertexBuffer.isHeapDoubles()) {
+            return new Basis(rows, columns, new DoubleMatrix(rows, columns), null, source);
+        }
+        return new Basis(rows, columns, null, new VertexBuffer[columns], source);
+    }
+
+    /** The number of values in each column. */
+    private final int rows;
+
+    /** The number of columns. */
+    private final int columns;
+
+    /** The columns, if they are kept together on the heap, or null. */
+    private final DoubleMatrix matrix;
+
+    /** The columns, if they are kept in {@link VertexBuffer}s, or null. */
+    private final VertexBuffer[] buffers;
+
+    /** Reads the values of a column, or null if every column is loaded. */
+    private final IntFunction<DoubleBuffer> source;
+
+    /** Whether each column is loaded, 1 if it is. Set after the column is stored. */
+    private final AtomicIntegerArray loaded;
+
+    /**
+     * @param rows    the number of values in each column
+     * @param columns the number of columns
+     * @param matrix  the columns, if they are kept together on the heap
+     * @param buffers the columns, if they are kept in {@link VertexBuffer}s
+     * @param source  reads the values of a column
+     */
+    private Basis(final int rows, final int columns, final DoubleMatrix matrix,
+                  final VertexBuffer[] buffers, final IntFunction<DoubleBuffer> source) {
+        this.rows = rows;
+        this.columns = columns;
+        this.matrix = matrix;
+        this.buffers = buffers;
+        this.source = source;
+        loaded = new AtomicIntegerArray(columns);
+    }
+
+    /** @return the number of values in each column */
+    int getRows() {
+        return rows;
+    }
+
+    /** @return the number of columns */
+    int getColumnCount() {
+        return columns;
+    }
+
+    /**
+     * Gets the columns as a single column-major matrix, for the BLAS.
+     * Columns that are not loaded are 0 in it.
+     *
+     * @return the matrix, or null if the columns are not kept in one
+     */
+    DoubleMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Loads the given column, unless it already is.
+     *
+     * @param column the index of the column
+     *
+     * @throws IllegalStateException if the column has the wrong number of values
+     */
+    void load(final int column) {
+        if (loaded.get(column) != 0) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded.get(column) != 0) {
+                return;
+            }
+            DoubleBuffer values = source.apply(column);
+            if (values.remaining() != rows) {
+                throw new IllegalStateException("Component " + column + " has "
+                        + values.remaining() + " values, expected " + rows);
+            }
+            if (matrix != null) {
+                values.get(matrix.data, column * rows, rows);
+            } else {
+                VertexBuffer buffer = VertexBuffer.allocate(rows / COORDINATES);
+                for (int i = 0; i < rows; i++) {
+                    buffer.setCoordinate(i, values.get());
+                }
+                buffers[column] = buffer;
+            }
+            loaded.set(column, 1);
+        }
+    }
+
+    /**
+     * Loads every column with a non-zero coefficient.
+     *
+     * @param coefficients the coefficient of each column
+     */
+    void load(final double[] coefficients) {
+        for (int k = 0; k < columns; k++) {
+            if (coefficients[k] != 0) {
+                load(k);
+            }
+        }
+    }
+
+    /**
+     * Loads every column with a non-zero coefficient in any column of the given matrix.
+     *
+     * @param coefficients the coefficients, one row per column of this {@link Basis}
+     */
+    void load(final DoubleMatrix coefficients) {
+        for (int m = 0; m < coefficients.columns; m++) {
+            for (int k = 0; k < columns; k++) {
+                if (coefficients.get(k, m) != 0) {
+                    load(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a multiple of the points of a range in a loaded column
+     * to the same range of the given array.
+     *
+     * @param column the index of the column
+     * @param scalar the multiple to add
+     * @param dest   the array to add to, with room for a whole column
+     * @param from   the index of the first point to add
+     * @param to     the index after the last point to add
+     */
+    void addColumn(final int column, final double scalar, final double[] dest,
+                   final int from, final int to) {
+        if (matrix != null) {
+            int offset = from * COORDINATES;
+            Kernels.axpy(scalar, matrix.data, column * rows + offset,
+                    dest, offset, (to - from) * COORDINATES);
+        } else {
+            buffers[column].addCoordinates(scalar, dest, from, to);
+        }
+    }
+
+}
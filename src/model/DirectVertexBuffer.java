@@ -0,0 +1,160 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Represents a {@link VertexBuffer} backed by off-heap memory.
+ * The memory is a block taken from a {@link VertexArena}:
+ * first all coordinates, as doubles or as floats, then all colors.
+ * Closing the buffer returns the block to the {@link VertexArena}.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+final class DirectVertexBuffer extends VertexBuffer {
+
+    /**
+     * Gets the number of bytes used by a single vertex.
+     *
+     * @param singlePrecision whether the coordinates are stored as floats
+     *
+     * @return the size of a vertex in bytes
+     */
+    static int bytesPerVertex(final boolean singlePrecision) {
+        return COORDINATES * coordinateBytes(singlePrecision) + Integer.BYTES;
+    }
+
+    /**
+     * Gets the number of bytes used by a single coordinate.
+     *
+     * @param singlePrecision whether the coordinates are stored as floats
+     *
+     * @return the size of a coordinate in bytes
+     */
+    private static int coordinateBytes(final boolean singlePrecision) {
+        return singlePrecision ? Float.BYTES : Double.BYTES;
+    }
+
+    /** The {@link VertexArena} that the {@link #block} came from. */
+    private final VertexArena arena;
+
+    /** The number of vertexes in this {@link DirectVertexBuffer}. */
+    private final int size;
+
+    /** The memory of this {@link DirectVertexBuffer}. Null once closed. */
+    private ByteBuffer block;
+
+    /**
+     * The x,y,z coordinates of all vertexes, a view over {@link #block}.
+     * Null if the coordinates are stored as floats.
+     */
+    private DoubleBuffer coordinates;
+
+    /**
+     * The x,y,z coordinates of all vertexes, a view over {@link #block}.
+     * Null if the coordinates are stored as doubles.
+     */
+    private FloatBuffer floatCoordinates;
+
+    /** The packed colors of all vertexes, a view over {@link #block}. */
+    private IntBuffer colors;
+
+    /**
+     * Uses the given block of off-heap memory as a {@link DirectVertexBuffer}.
+     *
+     * @param owner           the {@link VertexArena} that the memory came from
+     * @param memory          the memory to use, at least
+     *                        {@link #bytesPerVertex(boolean)} times vertexes long
+     * @param vertexes        the number of vertexes
+     * @param singlePrecision whether to store the coordinates as floats
+     */
+    DirectVertexBuffer(final VertexArena owner, final ByteBuffer memory,
+                       final int vertexes, final boolean singlePrecision) {
+        arena = owner;
+        block = memory;
+        size = vertexes;
+        int colorsStart = vertexes * COORDINATES * coordinateBytes(singlePrecision);
+        if (singlePrecision) {
+            floatCoordinates = slice(memory, 0, colorsStart).asFloatBuffer();
+        } else {
+            coordinates = slice(memory, 0, colorsStart).asDoubleBuffer();
+        }
+        colors = slice(memory, colorsStart, vertexes * Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * Creates a native-order view over a region of the given memory.
+     *
+     * @param memory the memory to view
+     * @param start  the first byte of the region
+     * @param length the number of bytes in the region
+     *
+     * @return the view
+     */
+    private static ByteBuffer slice(final ByteBuffer memory, final int start,
+                                    final int length) {
+        ByteBuffer view = memory.duplicate();
+        view.position(start);
+        view.limit(start + length);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isSinglePrecision() {
+        return floatCoordinates != null;
+    }
+
+    @Override
+    public double getCoordinate(final int index) {
+        if (floatCoordinates != null) {
+            return floatCoordinates.get(index);
+        }
+        return coordinates.get(index);
+    }
+
+    @Override
+    public void setCoordinate(final int index, final double value) {
+        if (floatCoordinates != null) {
+            floatCoordinates.put(index, (float) value);
+        } else {
+            coordinates.put(index, value);
+        }
+    }
+
+    @Override
+    public int getColor(final int vertex) {
+        return colors.get(vertex);
+    }
+
+    @Override
+    public void setColor(final int vertex, final int rgb) {
+        colors.put(vertex, rgb);
+    }
+
+    @Override
+    public VertexBuffer allocateLike(final int vertexes) {
+        return arena.allocate(vertexes, isSinglePrecision());
+    }
+
+    @Override
+    public void close() {
+        if (block == null) {
+            return;
+        }
+        arena.release(block);
+        block = null;
+        coordinates = null;
+        floatCoordinates = null;
+        colors = null;
+    }
+
+}
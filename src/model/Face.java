@@ -1,55 +1,128 @@
 package model;
 
-import util.file.editing.WrappedReader;
+import util.file.editing.NumericReader;
+import util.math.Mat4;
 
-import java.awt.Color;
-import java.util.ArrayList;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import static main.Main.L;
 import static main.Main.PROPS;
+import static model.VertexBuffer.COORDINATES;
 
 /**
  * Represents a face in three dimensional space.
+ * The vertexes are stored in a {@link VertexBuffer},
+ * which may be off the Java heap.
+ * Such a {@link Face} must be closed once it is no longer needed.
+ * The triangles are the ones defined in {@link Mesh}
+ * and are referred to by their index.
+ * The mean, depth, and normal of each triangle are cached
+ * and only recalculated after this {@link Face} is scaled, moved, or transformed.
+ * {@link Face}s are read from {@link ModelFile#SHARED} if there is one,
+ * and parsed from the CSV files otherwise.
+ * The parts of the model shared by all {@link Face}s
+ * are loaded by {@link ModelBootstrap}.
+ * A {@link Face} can be overwritten by a synthesis, see {@link #synthesiseInto},
+ * which reuses its storage and cached triangle arrays,
+ * so that synthesising repeatedly into the same {@link Face}s,
+ * such as those of a {@link FacePool}, allocates nothing per vertex.
  *
  * @author 150009974
- * @version 2.1
+ * @version 3.16
  */
-public final class Face {
+public final class Face implements AutoCloseable {
+
+    /** The model file to read {@link Face}s from, or null to parse the CSV files. */
+    private static final ModelFile MODEL = ModelFile.SHARED;
 
     /** The weights of shapes of all {@link Face}s. */
-    private static final ArrayList<Double> SHAPE_WEIGHTS = new ArrayList<>();
+    private static final double[] SHAPE_WEIGHTS = ModelBootstrap.getShapeWeights();
 
     /** The weights of colors of all {@link Face}s. */
-    private static final ArrayList<Double> COLOR_WEIGHTS = new ArrayList<>();
-
-    /** The name of the file containing the {@link #AVERAGE} shape. */
-    private static final String AVERAGE_SHAPE_FILENAME =
-            PROPS.getString("average face shape");
-
-    /** The name of the file containing the {@link #AVERAGE} color. */
-    private static final String AVERAGE_COLOR_FILENAME =
-            PROPS.getString("average face color");
-
-    /** The average {@link Face}. */
-    private static final Face AVERAGE =
-            parse(AVERAGE_SHAPE_FILENAME, AVERAGE_COLOR_FILENAME, -1);
-
-    static {
-        String shapeWeights = PROPS.getString("shape weights");
-        WrappedReader shapeWeightsReader = new WrappedReader(shapeWeights, L);
-        shapeWeightsReader.lines().forEach(line -> {
-            double weight = Double.parseDouble(line);
-            SHAPE_WEIGHTS.add(weight);
-        });
-        shapeWeightsReader.close();
+    private static final double[] COLOR_WEIGHTS = ModelBootstrap.getColorWeights();
 
-        String colorWeights = PROPS.getString("color weights");
-        WrappedReader colorWeightsReader = new WrappedReader(colorWeights, L);
-        colorWeightsReader.lines().forEach(line -> {
-            double weight = Double.parseDouble(line);
-            COLOR_WEIGHTS.add(weight);
-        });
-        colorWeightsReader.close();
+    /** The prefix before a shape filename. */
+    private static final String SHAPE_PREFIX = PROPS.getString("shape prefix");
+
+    /** The prefix before a texture filename. */
+    private static final String TEXTURE_PREFIX = PROPS.getString("texture prefix");
+
+    /** The suffix after a filename (extension). */
+    private static final String FILENAME_SUFFIX = PROPS.getString("filename suffix");
+
+    /** The coordinates and colors of the average face. */
+    private static final VertexBuffer AVERAGE = ModelBootstrap.getAverage();
+
+    /** The center of a {@link Face} that has not been moved. */
+    private static final Homogeneous3DPoint ORIGIN = new Homogeneous3DPoint(0, 0, 0);
+
+    /**
+     * Loads the {@link Face} with the given index, as in the CSV file names.
+     * It is read from the {@link #MODEL} if there is one,
+     * otherwise it is parsed from the CSV files.
+     *
+     * @param index the index of the {@link Face}, starting at 1
+     *
+     * @return the loaded {@link Face}
+     */
+    public static Face load(final String index) {
+        int weightIndex = Integer.parseInt(index) - 1;
+        if (MODEL != null) {
+            return read(MODEL.getShapeComponent(weightIndex),
+                    MODEL.getColorComponent(weightIndex), weightIndex);
+        }
+        String shapeFile = SHAPE_PREFIX + index + FILENAME_SUFFIX;
+        String textureFile = TEXTURE_PREFIX + index + FILENAME_SUFFIX;
+        return parse(shapeFile, textureFile, weightIndex);
+    }
+
+    /**
+     * Checks whether there is a {@link Face} with the given index,
+     * in the {@link #MODEL} if there is one, otherwise in the CSV files.
+     *
+     * @param index the index of the {@link Face}, starting at 1
+     *
+     * @return true if {@link #load(String)} would find it
+     */
+    public static boolean exists(final String index) {
+        int weightIndex = Integer.parseInt(index) - 1;
+        if (weightIndex < 0) {
+            return false;
+        }
+        if (MODEL != null) {
+            return weightIndex < MODEL.getComponentCount();
+        }
+        String shapeFile = SHAPE_PREFIX + index + FILENAME_SUFFIX;
+        String textureFile = TEXTURE_PREFIX + index + FILENAME_SUFFIX;
+        return Files.isRegularFile(Paths.get(shapeFile))
+                && Files.isRegularFile(Paths.get(textureFile));
+    }
+
+    /**
+     * Reads a {@link Face} from views of a {@link ModelFile}.
+     * The values are weighted and added to the {@link #AVERAGE}
+     * exactly as in {@link #parse(String, String, int)}.
+     *
+     * @param shape       the x,y,z of each point
+     * @param color       the r,g,b of each point
+     * @param weightIndex the index in the weight arrays
+     *
+     * @return the created {@link Face}
+     */
+    private static Face read(final DoubleBuffer shape, final DoubleBuffer color,
+                             final int weightIndex) {
+        int n = shape.remaining() / COORDINATES;
+        VertexBuffer vertexes = VertexBuffer.allocate(n);
+        for (int i = 0; i < n; i++) {
+            int offset = i * COORDINATES;
+            storePoint(i, shape.get(offset), shape.get(offset + 1), shape.get(offset + 2),
+                    color.get(offset), color.get(offset + 1), color.get(offset + 2),
+                    weightIndex, vertexes);
+        }
+        return new Face(vertexes);
     }
 
     /**
@@ -57,9 +130,7 @@ public final class Face {
      * The parsed coordinates and color are multiplied by
      * the weight found at the given weightIndex
      * in {@link #SHAPE_WEIGHTS} and in {@link #COLOR_WEIGHTS}, respectively.
-     * Then the {@link #AVERAGE} {@link Face} is added to it.
-     * When the {@link #AVERAGE} {@link Face} is loaded,
-     * its values are are not weighted.
+     * Then the {@link #AVERAGE} face is added to it.
      *
      * @param shapeFile   the name of the file describing the shape
      * @param colorFile   the name of the file describing the color
@@ -67,77 +138,95 @@ public final class Face {
      *
      * @return the created {@link Face}
      *
-     * @see #parsePoint(int, String, String, int)
+     * @see #parsePoint(int, NumericReader, NumericReader, int, VertexBuffer)
      */
     public static Face parse(final String shapeFile, final String colorFile,
                              final int weightIndex) {
-        ArrayList<Homogeneous3DPoint> points = new ArrayList<>();
-        WrappedReader shapeReader = new WrappedReader(shapeFile, L);
-        WrappedReader textureReader = new WrappedReader(colorFile, L);
-        String rawLocation = shapeReader.readLine();
-        String rawColor = textureReader.readLine();
+        int capacity = AVERAGE.size();
+        VertexBuffer vertexes = VertexBuffer.allocate(capacity);
+        NumericReader shapeReader = new NumericReader(shapeFile, L);
+        NumericReader textureReader = new NumericReader(colorFile, L);
         int pointIndex = 0;
-        while (rawLocation != null) {
-            Homogeneous3DPoint p = parsePoint(pointIndex, rawLocation, rawColor, weightIndex);
-            points.add(p);
-            // Next declarations
+        while (shapeReader.hasNext()) {
+            if (pointIndex == capacity) {
+                capacity *= 2;
+                vertexes = vertexes.resize(capacity);
+            }
+            parsePoint(pointIndex, shapeReader, textureReader, weightIndex, vertexes);
             pointIndex++;
-            rawLocation = shapeReader.readLine();
-            rawColor = textureReader.readLine();
         }
         shapeReader.close();
         textureReader.close();
 
-        return new Face(points);
+        if (pointIndex != capacity) {
+            vertexes = vertexes.resize(pointIndex);
+        }
+        return new Face(vertexes);
     }
 
     /**
-     * Parses a {@link Homogeneous3DPoint} from the given parameters.
-     * The {@link String} location is the comma-separated coordinates x,y,z.
-     * The {@link String} color is the comma-separated color values r,g,b.
-     * The pointIndex is used to index
-     * the {@link #points} in the {@link #AVERAGE} {@link Face}.
+     * Parses a point from the given parameters and stores it
+     * at the given pointIndex in the given {@link VertexBuffer}.
+     * The location is read as the next three values x,y,z.
+     * The color is read as the next three values r,g,b.
+     * The pointIndex is also used to index
+     * the points in the {@link #AVERAGE} face.
      * The weightIndex is used to index
      * the {@link #SHAPE_WEIGHTS} and the {@link #COLOR_WEIGHTS}.
      *
      * @param pointIndex  the index of a point in {@link #AVERAGE}
-     * @param location    the comma-separated x,y,z
-     * @param color       the comma-separated r,g,b
+     * @param location    the reader of the x,y,z
+     * @param color       the reader of the r,g,b
      * @param weightIndex the index of a weight
-     *
-     * @return the created {@link Homogeneous3DPoint}
+     * @param vertexes    the buffer to store the point in
      */
-    private static Homogeneous3DPoint parsePoint(final int pointIndex,
-                                                 final String location,
-                                                 final String color,
-                                                 final int weightIndex) {
-        String[] coords = location.split(",");
-        double x = Double.parseDouble(coords[0].trim());
-        double y = Double.parseDouble(coords[1].trim());
-        double z = Double.parseDouble(coords[2].trim());
-
-        String[] rgb = color.split(",");
-        double r = Double.parseDouble(rgb[0].trim());
-        double g = Double.parseDouble(rgb[1].trim());
-        double b = Double.parseDouble(rgb[2].trim());
-
-        if (AVERAGE != null) {
-            Homogeneous3DPoint point = AVERAGE.points.get(pointIndex);
-
-            double weight = SHAPE_WEIGHTS.get(weightIndex);
-            x = point.getX() + x * weight;
-            y = point.getY() + y * weight;
-            z = point.getZ() + z * weight;
+    private static void parsePoint(final int pointIndex,
+                                   final NumericReader location,
+                                   final NumericReader color,
+                                   final int weightIndex,
+                                   final VertexBuffer vertexes) {
+        double x = location.nextDouble();
+        double y = location.nextDouble();
+        double z = location.nextDouble();
 
-            weight = COLOR_WEIGHTS.get(weightIndex);
-            r = point.getRed() + r * weight;
-            g = point.getGreen() + g * weight;
-            b = point.getBlue() + b * weight;
-        }
+        double r = color.nextDouble();
+        double g = color.nextDouble();
+        double b = color.nextDouble();
+        storePoint(pointIndex, x, y, z, r, g, b, weightIndex, vertexes);
+    }
 
-        Color c = new Color((int) r, (int) g, (int) b);
-        return new Homogeneous3DPoint(x, y, z, c);
+    /**
+     * Stores a point at the given pointIndex in the given {@link VertexBuffer}.
+     * The point is weighted by the weights at the given weightIndex
+     * and added to the point at the same index in the {@link #AVERAGE}.
+     *
+     * @param pointIndex  the index of a point in {@link #AVERAGE}
+     * @param x           the X coordinate
+     * @param y           the Y coordinate
+     * @param z           the Z coordinate
+     * @param r           the red channel
+     * @param g           the green channel
+     * @param b           the blue channel
+     * @param weightIndex the index of a weight
+     * @param vertexes    the buffer to store the point in
+     */
+    private static void storePoint(final int pointIndex,
+                                   final double x, final double y, final double z,
+                                   final double r, final double g, final double b,
+                                   final int weightIndex,
+                                   final VertexBuffer vertexes) {
+        int offset = pointIndex * COORDINATES;
+        double weight = SHAPE_WEIGHTS[weightIndex];
+        vertexes.setCoordinate(offset, AVERAGE.getCoordinate(offset) + x * weight);
+        vertexes.setCoordinate(offset + 1, AVERAGE.getCoordinate(offset + 1) + y * weight);
+        vertexes.setCoordinate(offset + 2, AVERAGE.getCoordinate(offset + 2) + z * weight);
 
+        weight = COLOR_WEIGHTS[weightIndex];
+        int average = AVERAGE.getColor(pointIndex);
+        int red = (int) (PackedColor.red(average) + r * weight);
+        int green = (int) (PackedColor.green(average) + g * weight);
+        int blue = (int) (PackedColor.blue(average) + b * weight);
+        vertexes.setColor(pointIndex, PackedColor.pack(red, green, blue));
     }
 
     /**
@@ -145,75 +234,556 @@ public final class Face {
      * Each {@link Face} is multiplied by the weight at the same index.
      * And their are all added together.
      * Specifically:
-     * for each {@link Homogeneous3DPoint} in the output {@link Face},
-     * the given {@link Face}s are iterated,
-     * the {@link Homogeneous3DPoint} at that index is retrieved,
-     * its fields are multiplied by the weight of the {@link Face}.
-     * The inner loop creates a weighted combination of points
-     * by taking the {@link Homogeneous3DPoint}s at the respective indexes.
+     * for each given {@link Face},
+     * all of its coordinates are multiplied by its weight
+     * and added to those of the output {@link Face} in one pass,
+     * and likewise for the channels of its colors.
+     * The sums are the same as adding up each point separately.
+     * Large {@link Face}s are split into ranges of vertexes,
+     * which are synthesised in parallel by {@link VertexRanges}.
+     * Each point is still added up in the order of the given {@link Face}s,
+     * so the result does not depend on the number of threads.
+     * The synthesised {@link Face} is stored like the first given one.
      *
      * @param faces   the {@link Face}s to weigh
      * @param weights the weights to multiply by
      *
      * @return the synthesised {@link Face}
+     *
+     * @see #synthesiseInto(Face[], double[], Face)
      */
     public static Face synthesise(final Face[] faces, final double[] weights) {
-        int n = faces[0].getPoints().size();
-        ArrayList<Homogeneous3DPoint> synthesised = new ArrayList<>(n);
-        for (int i = 0; i < n; i++) {
-            double x = 0;
-            double y = 0;
-            double z = 0;
-            double r = 0;
-            double g = 0;
-            double b = 0;
+        int n = faces[0].size();
+        int length = n * COORDINATES;
+        VertexBuffer vertexes = faces[0].vertexes.allocateLike(n);
+        combine(faces, weights, new double[length], new double[length], new int[n], vertexes);
+        return new Face(vertexes);
+    }
+
+    /**
+     * Synthesises a weighted addition of {@link Face}s
+     * like {@link #synthesise(Face[], double[])},
+     * but overwrites the given target {@link Face} rather than creating one.
+     * The target keeps its storage, and the working arrays are kept by the target,
+     * so synthesising into the same target again allocates nothing per vertex.
+     * Its cached triangles are recalculated when next asked for,
+     * and its center is reset, as for a newly synthesised {@link Face}.
+     * The target may be one of the given {@link Face}s.
+     *
+     * @param faces   the {@link Face}s to weigh
+     * @param weights the weights to multiply by
+     * @param target  the {@link Face} to store the result in,
+     *                with as many points as the given {@link Face}s
+     *
+     * @throws IllegalArgumentException if the target has a different number of points
+     */
+    public static void synthesiseInto(final Face[] faces, final double[] weights,
+                                      final Face target) {
+        int n = faces[0].size();
+        if (target.size() != n) {
+            throw new IllegalArgumentException("Expected a target of " + n
+                    + " points, got " + target.size());
+        }
+        double[] coordinates = target.getScratchCoordinates();
+        double[] channels = target.getScratchChannels();
+        Arrays.fill(coordinates, 0);
+        Arrays.fill(channels, 0);
+        combine(faces, weights, coordinates, channels, target.getScratchColors(),
+                target.overwrite());
+    }
+
+    /**
+     * Adds up the weighted coordinates and colors of the given {@link Face}s
+     * and stores them in the given {@link VertexBuffer}.
+     * Each range of vertexes is read from all {@link Face}s before it is written.
+     *
+     * @param faces       the {@link Face}s to weigh
+     * @param weights     the weights to multiply by
+     * @param coordinates zeroes, to add up the x,y,z of every point in
+     * @param channels    zeroes, to add up the r,g,b of every point in
+     * @param packed      working space for the packed colors of every point
+     * @param vertexes    the {@link VertexBuffer} to store the result in
+     */
+    private static void combine(final Face[] faces, final double[] weights,
+                                final double[] coordinates, final double[] channels,
+                                final int[] packed, final VertexBuffer vertexes) {
+        int n = faces[0].size();
+        VertexRanges.forEach(n, (from, to) -> {
             for (int j = 0; j < faces.length; j++) {
-                Homogeneous3DPoint point = faces[j].getPoints().get(i);
                 double w = weights[j];
-                x += point.getX() * w;
-                y += point.getY() * w;
-                z += point.getZ() * w;
-                r += point.getRed() * w;
-                g += point.getGreen() * w;
-                b += point.getBlue() * w;
+                // Whole ranges at a time, so that heap coordinates are a single vector kernel
+                faces[j].vertexes.addCoordinates(w, coordinates, from, to);
+                faces[j].vertexes.getColors(packed, from, to);
+                for (int i = from; i < to; i++) {
+                    int rgb = packed[i];
+                    int offset = i * COORDINATES;
+                    channels[offset] += PackedColor.red(rgb) * w;
+                    channels[offset + 1] += PackedColor.green(rgb) * w;
+                    channels[offset + 2] += PackedColor.blue(rgb) * w;
+                }
+            }
+            for (int i = from; i < to; i++) {
+                int offset = i * COORDINATES;
+                int r = (int) channels[offset];
+                int g = (int) channels[offset + 1];
+                int b = (int) channels[offset + 2];
+                vertexes.setColor(i, PackedColor.pack(r, g, b));
             }
-            r = Math.min(r, 255);
-            g = Math.min(g, 255);
-            b = Math.min(b, 255);
-            Homogeneous3DPoint syn = new Homogeneous3DPoint(x, y, z, (int) r, (int) g, (int) b);
-            synthesised.add(syn);
+        });
+        vertexes.setCoordinates(coordinates, 0);
+    }
+
+    /**
+     * Stable bottom-up merge sort of the given triangle indexes
+     * by decreasing depth.
+     *
+     * @param order  the triangle indexes to sort
+     * @param buffer working space of the same length as order
+     * @param keys   the depth of each triangle
+     */
+    private static void sortByDepth(final int[] order, final int[] buffer,
+                                    final double[] keys) {
+        int n = order.length;
+        int[] from = order;
+        int[] to = buffer;
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int middle = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                int i = low;
+                int j = middle;
+                for (int k = low; k < high; k++) {
+                    if (i < middle && (j >= high
+                            || Double.compare(keys[from[j]], keys[from[i]]) <= 0)) {
+                        to[k] = from[i++];
+                    } else {
+                        to[k] = from[j++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, n);
         }
-        return new Face(synthesised);
     }
 
-    /** The {@link Homogeneous3DPoint}s that make up this {@link Face}. */
-    private ArrayList<Homogeneous3DPoint> points;
+    /** The coordinates and colors of all points that make up this {@link Face}. */
+    private VertexBuffer vertexes;
+
+    /**
+     * The indexes of all triangles, ordered by decreasing depth.
+     * Created on the first call to {@link #getTrianglesByDepth()}.
+     */
+    private int[] depthOrder;
+
+    /** Whether {@link #depthOrder} matches the current {@link #depths}. */
+    private boolean depthOrderValid;
+
+    /** The working space used when sorting {@link #depthOrder}. */
+    private int[] sortBuffer;
+
+    /**
+     * The x,y,z coordinates of the mean of each triangle.
+     * Created on the first call to {@link #updateTriangles()}.
+     */
+    private double[] means;
+
+    /** The packed mean color of each triangle. */
+    private int[] meanColors;
 
-    /** The {@link Homogeneous3DPolygon}s that make up this {@link Face}. */
-    private ArrayList<Homogeneous3DPolygon> polygons;
+    /** The Z coordinate of the mean of each triangle, used for sorting. */
+    private double[] depths;
+
+    /** The x,y,z coordinates of the unit normal of each triangle. */
+    private double[] normals;
+
+    /**
+     * Whether {@link #means}, {@link #meanColors}, {@link #depths},
+     * and {@link #normals} match the current vertexes.
+     */
+    private boolean trianglesValid;
 
     /** The relative grid origin for this {@link Face}. */
-    private Homogeneous3DPoint center = new Homogeneous3DPoint(0, 0, 0);
+    private Homogeneous3DPoint center = ORIGIN;
+
+    /**
+     * Working space for the x,y,z of every point when synthesising into this {@link Face}.
+     * Created on the first call to {@link #getScratchCoordinates()}.
+     */
+    private double[] scratchCoordinates;
+
+    /**
+     * Working space for the r,g,b of every point when synthesising into this {@link Face}.
+     * Created on the first call to {@link #getScratchChannels()}.
+     */
+    private double[] scratchChannels;
+
+    /**
+     * Working space for the packed color of every point.
+     * Created on the first call to {@link #getScratchColors()}.
+     */
+    private int[] scratchColors;
+
+    /**
+     * Creates a {@link Face} from the given {@link VertexBuffer}.
+     * The buffer is used directly and is not copied.
+     * Closing the {@link Face} closes the buffer.
+     *
+     * @param buffer the points that make up the face
+     */
+    public Face(final VertexBuffer buffer) {
+        vertexes = buffer;
+    }
+
+    /**
+     * Creates a {@link Face} from the given arrays.
+     *
+     * @param coords the x,y,z coordinates of the points that make up the face
+     * @param packed the packed colors of the points that make up the face
+     *
+     * @see VertexBuffer#wrap(double[], int[])
+     */
+    public Face(final double[] coords, final int[] packed) {
+        this(VertexBuffer.wrap(coords, packed));
+    }
+
+    /** @return the number of points in this {@link Face} */
+    public int size() {
+        return vertexes.size();
+    }
+
+    /** @return whether the coordinates of this {@link Face} are stored as floats */
+    public boolean isSinglePrecision() {
+        return vertexes.isSinglePrecision();
+    }
+
+    /**
+     * Creates a copy of this {@link Face}
+     * with coordinates stored in the given precision.
+     * The copy has the same center.
+     *
+     * @param singlePrecision whether to store the coordinates as floats
+     *
+     * @return the copy
+     */
+    public Face copy(final boolean singlePrecision) {
+        VertexBuffer buffer = VertexBuffer.allocate(size(), singlePrecision);
+        buffer.copyFrom(vertexes, size());
+        Face copy = new Face(buffer);
+        copy.center = center;
+        return copy;
+    }
+
+    /**
+     * Overwrites this {@link Face} with the points and center of the given one,
+     * keeping the storage and precision of this {@link Face}.
+     *
+     * @param source the {@link Face} to copy, with as many points as this one
+     *
+     * @throws IllegalArgumentException if the source has a different number of points
+     */
+    public void copyFrom(final Face source) {
+        if (source.size() != size()) {
+            throw new IllegalArgumentException("Expected a face of " + size()
+                    + " points, got " + source.size());
+        }
+        vertexes.copyFrom(source.vertexes, size());
+        center = source.center;
+        invalidateTriangles();
+    }
+
+    /**
+     * Prepares this {@link Face} to be overwritten by a synthesis.
+     * Its cached triangles are marked as outdated and its center is reset.
+     *
+     * @return the {@link VertexBuffer} to store the synthesised points in
+     */
+    VertexBuffer overwrite() {
+        invalidateTriangles();
+        center = ORIGIN;
+        return vertexes;
+    }
+
+    /** @return working space for the x,y,z of every point, kept by this {@link Face} */
+    double[] getScratchCoordinates() {
+        if (scratchCoordinates == null) {
+            scratchCoordinates = new double[size() * COORDINATES];
+        }
+        return scratchCoordinates;
+    }
+
+    /** @return working space for the r,g,b of every point, kept by this {@link Face} */
+    double[] getScratchChannels() {
+        if (scratchChannels == null) {
+            scratchChannels = new double[size() * COORDINATES];
+        }
+        return scratchChannels;
+    }
+
+    /** @return working space for the packed color of every point, kept by this {@link Face} */
+    int[] getScratchColors() {
+        if (scratchColors == null) {
+            scratchColors = new int[size()];
+        }
+        return scratchColors;
+    }
+
+    /**
+     * Creates a copy of this {@link Face} on the Java heap,
+     * in the same precision, whatever storage is configured.
+     * The copy has the same center.
+     *
+     * @return the copy
+     */
+    Face copyOnHeap() {
+        VertexBuffer buffer = isSinglePrecision()
+                ? new FloatVertexBuffer(size()) : new HeapVertexBuffer(size());
+        buffer.copyFrom(vertexes, size());
+        Face copy = new Face(buffer);
+        copy.center = center;
+        return copy;
+    }
+
+    /**
+     * @param index the index of a point
+     *
+     * @return the X coordinate of the point at that index
+     */
+    public double getX(final int index) {
+        return vertexes.getCoordinate(index * COORDINATES);
+    }
+
+    /**
+     * @param index the index of a point
+     *
+     * @return the Y coordinate of the point at that index
+     */
+    public double getY(final int index) {
+        return vertexes.getCoordinate(index * COORDINATES + 1);
+    }
+
+    /**
+     * @param index the index of a point
+     *
+     * @return the Z coordinate of the point at that index
+     */
+    public double getZ(final int index) {
+        return vertexes.getCoordinate(index * COORDINATES + 2);
+    }
+
+    /**
+     * @param index the index of a point
+     *
+     * @return the packed color of the point at that index
+     *
+     * @see PackedColor
+     */
+    public int getRGB(final int index) {
+        return vertexes.getColor(index);
+    }
+
+    /**
+     * Creates a {@link Homogeneous3DPoint} that is a view over
+     * the point at the given index.
+     * Changes to the view are visible in this {@link Face},
+     * but the cached triangle means and normals are not updated.
+     *
+     * @param index the index of a point
+     *
+     * @return the point at that index
+     */
+    public Homogeneous3DPoint getPoint(final int index) {
+        return new Homogeneous3DPoint(vertexes, index);
+    }
+
+    /**
+     * Gets the mean of the given triangle in both location and color.
+     * The mean is cached, so this does not recalculate it
+     * unless this {@link Face} has changed since the last call.
+     *
+     * @param triangle the index of a triangle in {@link Mesh}
+     *
+     * @return the mean {@link Homogeneous3DPoint} in both location and color
+     */
+    public Homogeneous3DPoint getMean(final int triangle) {
+        updateTriangles();
+        int offset = triangle * COORDINATES;
+        return new Homogeneous3DPoint(means[offset], means[offset + 1],
+                means[offset + 2], meanColors[triangle]);
+    }
+
+    /**
+     * Gets the mean color of the given triangle,
+     * without creating a {@link Homogeneous3DPoint}.
+     *
+     * @param triangle the index of a triangle in {@link Mesh}
+     *
+     * @return the packed mean color of that triangle
+     *
+     * @see PackedColor
+     */
+    public int getMeanRGB(final int triangle) {
+        updateTriangles();
+        return meanColors[triangle];
+    }
 
     /**
-     * Creates a {@link Face} from the given {@link Homogeneous3DPoint}s.
-     * Follows the triangles defined in {@link Mesh}.
+     * Gets the x,y,z coordinates of the mean of every triangle,
+     * recalculating them if this {@link Face} has changed.
+     * The returned array is reused and must not be modified.
      *
-     * @param pts the points that make up the face
+     * @return the means, indexed like the triangles in {@link Mesh}
      */
-    public Face(final ArrayList<Homogeneous3DPoint> pts) {
-        this.points = pts;
-        polygons = Mesh.createTriangles(points);
+    public double[] getMeans() {
+        updateTriangles();
+        return means;
     }
 
-    /** @return the {@link Homogeneous3DPoint}s of this {@link Face} */
-    public ArrayList<Homogeneous3DPoint> getPoints() {
-        return points;
+    /**
+     * Gets the packed mean color of every triangle,
+     * recalculating them if this {@link Face} has changed.
+     * The returned array is reused and must not be modified.
+     *
+     * @return the mean colors, indexed like the triangles in {@link Mesh}
+     *
+     * @see PackedColor
+     */
+    public int[] getMeanColors() {
+        updateTriangles();
+        return meanColors;
+    }
+
+    /**
+     * Gets the x,y,z coordinates of the unit normal of every triangle,
+     * recalculating them if this {@link Face} has changed.
+     * The returned array is reused and must not be modified.
+     *
+     * @return the normals, indexed like the triangles in {@link Mesh}
+     *
+     * @see #getNormal(int)
+     */
+    public double[] getNormals() {
+        updateTriangles();
+        return normals;
     }
 
-    /** @return all {@link Homogeneous3DPolygon}s that make up this {@link Face} */
-    public ArrayList<Homogeneous3DPolygon> getPolygons() {
-        return polygons;
+    /**
+     * Gets the unit normal of the given triangle.
+     * It is the normalized cross product of the first two vertexes,
+     * both taken relative to the mean.
+     * The other normal of the triangle is its negation.
+     * The normal has the mean color of the triangle.
+     *
+     * @param triangle the index of a triangle in {@link Mesh}
+     *
+     * @return the unit normal of that triangle
+     */
+    public Homogeneous3DPoint getNormal(final int triangle) {
+        updateTriangles();
+        int offset = triangle * COORDINATES;
+        return new Homogeneous3DPoint(normals[offset], normals[offset + 1],
+                normals[offset + 2], meanColors[triangle]);
+    }
+
+    /**
+     * Recalculates the mean, depth, and normal of every triangle,
+     * unless they are still valid.
+     */
+    private void updateTriangles() {
+        if (trianglesValid) {
+            return;
+        }
+        int n = Mesh.getTriangleCount();
+        if (means == null) {
+            means = new double[n * COORDINATES];
+            meanColors = new int[n];
+            depths = new double[n];
+            normals = new double[n * COORDINATES];
+        }
+        for (int t = 0; t < n; t++) {
+            double x = 0;
+            double y = 0;
+            double z = 0;
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+            for (int corner = 0; corner < Mesh.CORNERS; corner++) {
+                int v = Mesh.getVertex(t, corner);
+                x += getX(v);
+                y += getY(v);
+                z += getZ(v);
+                int rgb = getRGB(v);
+                red += PackedColor.red(rgb);
+                green += PackedColor.green(rgb);
+                blue += PackedColor.blue(rgb);
+            }
+            x /= Mesh.CORNERS;
+            y /= Mesh.CORNERS;
+            z /= Mesh.CORNERS;
+            int offset = t * COORDINATES;
+            means[offset] = x;
+            means[offset + 1] = y;
+            means[offset + 2] = z;
+            meanColors[t] = PackedColor.pack(red / Mesh.CORNERS,
+                    green / Mesh.CORNERS, blue / Mesh.CORNERS);
+            depths[t] = z;
+
+            int v0 = Mesh.getVertex(t, 0);
+            int v1 = Mesh.getVertex(t, 1);
+            double ax = getX(v0) - x;
+            double ay = getY(v0) - y;
+            double az = getZ(v0) - z;
+            double bx = getX(v1) - x;
+            double by = getY(v1) - y;
+            double bz = getZ(v1) - z;
+            double nx = ay * bz - az * by;
+            double ny = az * bx - ax * bz;
+            double nz = ax * by - ay * bx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            normals[offset] = nx / length;
+            normals[offset + 1] = ny / length;
+            normals[offset + 2] = nz / length;
+        }
+        trianglesValid = true;
+        depthOrderValid = false;
+    }
+
+    /**
+     * Marks the cached triangle means and normals as outdated.
+     * Must be called whenever the vertexes change.
+     */
+    private void invalidateTriangles() {
+        trianglesValid = false;
+    }
+
+    /**
+     * Orders the triangles of this {@link Face} by decreasing depth,
+     * so that drawing them in order paints the nearest ones last.
+     * Triangles with equal depth keep their order from the previous call.
+     * The order is only recalculated after this {@link Face} has changed.
+     * The returned array is reused by subsequent calls
+     * and must not be modified.
+     *
+     * @return the indexes of all triangles, furthest first
+     */
+    public int[] getTrianglesByDepth() {
+        int n = Mesh.getTriangleCount();
+        if (depthOrder == null) {
+            depthOrder = new int[n];
+            sortBuffer = new int[n];
+            for (int t = 0; t < n; t++) {
+                depthOrder[t] = t;
+            }
+        }
+        updateTriangles();
+        if (!depthOrderValid) {
+            sortByDepth(depthOrder, sortBuffer, depths);
+            depthOrderValid = true;
+        }
+        return depthOrder;
     }
 
     /**
@@ -222,7 +792,7 @@ public final class Face {
      * @param scalar the scalar to scale by
      */
     public void scale(final double scalar) {
-        points.forEach(p -> p.scale(scalar));
+        transform(new Mat4().scaling(scalar, scalar, scalar));
     }
 
     /**
@@ -232,8 +802,10 @@ public final class Face {
      * @param c the point of origin
      */
     public void setCenter(final Homogeneous3DPoint c) {
-        Homogeneous3DPoint move = Homogeneous3DPoint.subtract(c, center);
-        points.forEach(p -> p.translate(move));
+        double dx = c.getX() - center.getX();
+        double dy = c.getY() - center.getY();
+        double dz = c.getZ() - center.getZ();
+        transform(new Mat4().translation(dx, dy, dz));
         center = c;
     }
 
@@ -242,4 +814,47 @@ public final class Face {
         return center;
     }
 
+    /**
+     * Transforms all points of this {@link Face}
+     * by the given 4x4 transformation matrix.
+     * The points are treated as homogeneous with W equal to 1.
+     *
+     * @param m the matrix to transform by
+     *
+     * @see #transform(Mat4, Face)
+     */
+    public void transform(final Mat4 m) {
+        transform(m, this);
+    }
+
+    /**
+     * Transforms all points of this {@link Face}
+     * by the given 4x4 transformation matrix
+     * and stores the results in the given target {@link Face}.
+     * The points are treated as homogeneous with W equal to 1.
+     * All points are transformed in bulk, see {@link VertexBuffer#transform}.
+     * Unless the target is this {@link Face}, this {@link Face} is not modified.
+     * Only coordinates are written, so the target should be
+     * a {@link #copy(boolean)} of this {@link Face} to have the same colors.
+     *
+     * @param m      the matrix to transform by
+     * @param target the {@link Face} to store the transformed points in,
+     *               with the same number of points as this one
+     */
+    public void transform(final Mat4 m, final Face target) {
+        vertexes.transform(m, target.vertexes);
+        target.invalidateTriangles();
+    }
+
+    /**
+     * Releases the storage of this {@link Face}.
+     * It must not be used afterwards.
+     *
+     * @see VertexBuffer#close()
+     */
+    @Override
+    public void close() {
+        vertexes.close();
+    }
+
 }
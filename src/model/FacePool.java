@@ -0,0 +1,100 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Keeps {@link Face}s that are no longer needed,
+ * so that callers who synthesise repeatedly can overwrite them,
+ * rather than allocate a {@link Face} for every synthesis.
+ * Together with {@link Face#synthesiseInto} and {@link MorphableModel#synthesiseInto},
+ * a steady stream of syntheses then allocates nothing per vertex.
+ * A pooled {@link Face} keeps its storage, cached triangles, and working arrays.
+ * At most a given number of {@link Face}s are kept,
+ * and any others that are released are closed.
+ * The pool may be used from any thread.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+public final class FacePool implements AutoCloseable {
+
+    /** The largest number of {@link Face}s kept. */
+    private final int capacity;
+
+    /** The kept {@link Face}s, the most recently released first. */
+    private final ArrayDeque<Face> faces = new ArrayDeque<>();
+
+    /** The number of {@link Face}s handed out that were taken from the pool. */
+    private long reused = 0;
+
+    /** The number of {@link Face}s handed out that had to be allocated. */
+    private long allocated = 0;
+
+    /**
+     * Creates an empty {@link FacePool}.
+     *
+     * @param capacity the largest number of {@link Face}s to keep
+     */
+    public FacePool(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Takes a kept {@link Face} with the given number of points,
+     * or allocates one if none is kept.
+     * Its points are left as they were, to be overwritten by the caller.
+     *
+     * @param points the number of points of the {@link Face}
+     *
+     * @return the {@link Face}, to be released or closed by the caller
+     */
+    public synchronized Face acquire(final int points) {
+        Iterator<Face> kept = faces.iterator();
+        while (kept.hasNext()) {
+            Face face = kept.next();
+            if (face.size() == points) {
+                kept.remove();
+                reused++;
+                return face;
+            }
+        }
+        allocated++;
+        return new Face(VertexBuffer.allocate(points));
+    }
+
+    /**
+     * Keeps the given {@link Face} for a later {@link #acquire(int)},
+     * or closes it if the pool is full.
+     * The caller must not use it afterwards.
+     *
+     * @param face the {@link Face} that is no longer needed
+     */
+    public synchronized void release(final Face face) {
+        if (faces.size() >= capacity) {
+            face.close();
+            return;
+        }
+        faces.addFirst(face);
+    }
+
+    /** @return the number of {@link Face}s handed out that were taken from the pool */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /** @return the number of {@link Face}s handed out that had to be allocated */
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    /** Closes all kept {@link Face}s. */
+    @Override
+    public synchronized void close() {
+        for (Face face : faces) {
+            face.close();
+        }
+        faces.clear();
+    }
+
+}
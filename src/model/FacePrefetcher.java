@@ -0,0 +1,102 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+
+/**
+ * Loads the {@link Face}s next to the one being shown into a {@link FaceRepository},
+ * so that stepping to a neighbouring index does not wait for a load.
+ * Each {@link #prefetch(String)} cancels the loads
+ * that the previous one scheduled but had not started,
+ * and then schedules the nearest indexes first.
+ * Loads run on a few low priority daemon threads,
+ * shared by all {@link FacePrefetcher}s.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+public final class FacePrefetcher {
+
+    /** The number of indexes to load on either side of the shown one. */
+    private static final int DEPTH = PROPS.getInt("face prefetch depth");
+
+    /** The threads all prefetching runs on. */
+    private static final ExecutorService THREADS = Executors.newFixedThreadPool(
+            PROPS.getInt("face prefetch threads"), task -> {
+                Thread thread = new Thread(task, "Face prefetcher");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    /** The {@link FaceRepository} to load the {@link Face}s into. */
+    private final FaceRepository repository;
+
+    /** The loads scheduled by the last {@link #prefetch(String)}. */
+    private final ArrayList<Future<?>> scheduled = new ArrayList<>();
+
+    /**
+     * Creates a {@link FacePrefetcher} that has not scheduled anything.
+     *
+     * @param repository the {@link FaceRepository} to load the {@link Face}s into
+     */
+    public FacePrefetcher(final FaceRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Schedules loading the indexes up to {@link #DEPTH} away from the given one.
+     * The neighbours are written with as many digits as the given index.
+     * Indexes that do not exist are skipped.
+     * If the given index is not a number, nothing is scheduled.
+     *
+     * @param index the index of the shown {@link Face}
+     */
+    public synchronized void prefetch(final String index) {
+        cancel();
+        int shown;
+        try {
+            shown = Integer.parseInt(index.trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        String format = "%0" + Math.max(1, index.trim().length()) + "d";
+        for (int distance = 1; distance <= DEPTH; distance++) {
+            schedule(String.format(format, shown + distance));
+            schedule(String.format(format, shown - distance));
+        }
+    }
+
+    /**
+     * Schedules loading the given index, if it exists.
+     * Whether it exists is checked on the prefetching thread,
+     * as it may wait for {@link ModelBootstrap}.
+     *
+     * @param neighbour the index to load
+     */
+    private void schedule(final String neighbour) {
+        scheduled.add(THREADS.submit(() -> {
+            try {
+                if (Face.exists(neighbour)) {
+                    repository.preload(neighbour);
+                }
+            } catch (RuntimeException e) {
+                L.log(e);
+            }
+        }));
+    }
+
+    /** Cancels the loads that were scheduled but have not started. */
+    public synchronized void cancel() {
+        for (Future<?> load : scheduled) {
+            load.cancel(false);
+        }
+        scheduled.clear();
+    }
+
+}
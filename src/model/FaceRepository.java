@@ -0,0 +1,238 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static main.Main.PROPS;
+
+/**
+ * Keeps recently loaded {@link Face}s, so that they are not loaded again.
+ * The {@link Face}s kept are limited by their total size in bytes,
+ * and the least recently used ones are evicted first.
+ * Concurrent requests for a {@link Face} that is being loaded
+ * wait for that load, rather than loading it again.
+ * Indexes are compared by their number, so "1" and "001" are the same {@link Face}.
+ * The kept {@link Face}s are stored on the Java heap,
+ * so an evicted one stays valid while it is being copied.
+ * Callers always get their own copy, in the configured storage,
+ * which they are responsible for closing.
+ *
+ * @author 150009974
+ * @version 1.3
+ */
+public final class FaceRepository {
+
+    /** The {@link FaceRepository} shared by all selectors and tools. */
+    public static final FaceRepository SHARED =
+            new FaceRepository(PROPS.getLong("face repository budget"));
+
+    /**
+     * Calculates the number of bytes used by the points of the given {@link Face}.
+     *
+     * @param face the {@link Face} to measure
+     *
+     * @return its size in bytes
+     */
+    private static long bytesOf(final Face face) {
+        return (long) face.size() * DirectVertexBuffer.bytesPerVertex(face.isSinglePrecision());
+    }
+
+    /**
+     * Waits for a {@link Face} that another thread is loading.
+     *
+     * @param load the future of that load
+     *
+     * @return the kept {@link Face}
+     */
+    private static Face join(final CompletableFuture<Face> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Normalises an index to the three digits of the CSV file names,
+     * so that "1" and "001" are the same {@link Face}.
+     *
+     * @param index the index of a {@link Face}
+     *
+     * @return the index as in the CSV file names
+     *
+     * @throws NumberFormatException if the index is not a number
+     */
+    private static String key(final String index) {
+        return String.format("%03d", Integer.parseInt(index.trim()));
+    }
+
+    /** The largest total size of the kept {@link Face}s, in bytes. */
+    private final long budget;
+
+    /** The kept {@link Face}s by index, from least to most recently used. */
+    private final LinkedHashMap<String, Face> faces = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The {@link Face}s being loaded, by index. */
+    private final HashMap<String, CompletableFuture<Face>> loading = new HashMap<>();
+
+    /** The total size of the kept {@link Face}s, in bytes. */
+    private long usedBytes = 0;
+
+    /** The number of requests answered from the kept {@link Face}s. */
+    private long hits = 0;
+
+    /** The number of requests that had to load a {@link Face}. */
+    private long misses = 0;
+
+    /**
+     * Creates an empty {@link FaceRepository}.
+     *
+     * @param budget the largest total size of the kept {@link Face}s, in bytes
+     */
+    public FaceRepository(final long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets a copy of the {@link Face} with the given index,
+     * loading it with {@link Face#load(String)} if it is not kept.
+     * If another thread is already loading it, that load is waited for.
+     *
+     * @param index the index of the {@link Face}, as in the CSV file names
+     *
+     * @return a copy of the {@link Face}, which the caller must close
+     */
+    public Face get(final String index) {
+        Face kept = find(index);
+        return kept.copy(kept.isSinglePrecision());
+    }
+
+    /**
+     * Loads the {@link Face} with the given index, unless it is already kept
+     * or being loaded, so that a later {@link #get(String)} finds it.
+     *
+     * @param index the index of the {@link Face}, as in the CSV file names
+     */
+    public void preload(final String index) {
+        find(index);
+    }
+
+    /**
+     * Finds the kept {@link Face} with the given index,
+     * loading it or waiting for it to load if it is not kept.
+     *
+     * @param index the index of the {@link Face}
+     *
+     * @return the kept {@link Face}, which must not be modified or closed
+     */
+    private Face find(final String index) {
+        String key = key(index);
+        Face kept;
+        CompletableFuture<Face> load;
+        boolean loader = false;
+        synchronized (this) {
+            kept = faces.get(key);
+            load = loading.get(key);
+            if (kept != null || load != null) {
+                hits++;
+            } else {
+                misses++;
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+                loader = true;
+            }
+        }
+        if (kept == null) {
+            kept = loader ? load(key, load) : join(load);
+        }
+        return kept;
+    }
+
+    /**
+     * Loads a {@link Face}, keeps it, and passes it to any waiting requests.
+     * If the load throws anything, the waiting requests throw it too,
+     * and a later request loads the {@link Face} again.
+     *
+     * @param index the index of the {@link Face}
+     * @param load  the future the waiting requests wait for
+     *
+     * @return the kept {@link Face}
+     */
+    private Face load(final String index, final CompletableFuture<Face> load) {
+        Face kept;
+        try {
+            Face loaded = Face.load(index);
+            kept = loaded.copyOnHeap();
+            loaded.close();
+        } catch (Throwable e) {
+            // Errors too, such as a failed Face initialisation, or waiting requests never return
+            synchronized (this) {
+                loading.remove(index);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            loading.remove(index);
+            keep(index, kept);
+        }
+        load.complete(kept);
+        return kept;
+    }
+
+    /**
+     * Keeps the given {@link Face},
+     * then evicts the least recently used ones until they fit in the {@link #budget}.
+     * A {@link Face} larger than the whole budget is not kept.
+     * Must be called while holding the lock on this {@link FaceRepository}.
+     *
+     * @param index the index of the {@link Face}
+     * @param face  the {@link Face} to keep
+     */
+    private void keep(final String index, final Face face) {
+        long bytes = bytesOf(face);
+        if (bytes > budget) {
+            return;
+        }
+        faces.put(index, face);
+        usedBytes += bytes;
+        Iterator<Map.Entry<String, Face>> eldest = faces.entrySet().iterator();
+        while (usedBytes > budget) {
+            // Heap faces need no closing, and may still be copied by another thread
+            usedBytes -= bytesOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /** Forgets all kept {@link Face}s. {@link Face}s still loading are kept once loaded. */
+    public synchronized void clear() {
+        faces.clear();
+        usedBytes = 0;
+    }
+
+    /** @return the total size of the kept {@link Face}s, in bytes */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /** @return the number of requests answered without loading a {@link Face} */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** @return the number of requests that loaded a {@link Face} */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+}
@@ -0,0 +1,88 @@
+package model;
+
+import util.math.Mat4;
+import util.math.PointTransform;
+
+/**
+ * Represents a {@link VertexBuffer} backed by arrays on the Java heap,
+ * which stores coordinates in single precision.
+ * Coordinates are rounded to the nearest float when they are set.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+final class FloatVertexBuffer extends VertexBuffer {
+
+    /** The x,y,z coordinates of all vertexes. */
+    private final float[] coordinates;
+
+    /** The packed colors of all vertexes. */
+    private final int[] colors;
+
+    /**
+     * Allocates a {@link FloatVertexBuffer} for the given number of vertexes.
+     *
+     * @param vertexes the number of vertexes
+     */
+    FloatVertexBuffer(final int vertexes) {
+        coordinates = new float[vertexes * COORDINATES];
+        colors = new int[vertexes];
+    }
+
+    @Override
+    public int size() {
+        return colors.length;
+    }
+
+    @Override
+    public boolean isSinglePrecision() {
+        return true;
+    }
+
+    @Override
+    public double getCoordinate(final int index) {
+        return coordinates[index];
+    }
+
+    @Override
+    public void setCoordinate(final int index, final double value) {
+        coordinates[index] = (float) value;
+    }
+
+    @Override
+    public int getColor(final int vertex) {
+        return colors[vertex];
+    }
+
+    @Override
+    public void setColor(final int vertex, final int rgb) {
+        colors[vertex] = rgb;
+    }
+
+    @Override
+    public VertexBuffer allocateLike(final int vertexes) {
+        return new FloatVertexBuffer(vertexes);
+    }
+
+    @Override
+    public void transform(final Mat4 m, final VertexBuffer target) {
+        if (!(target instanceof FloatVertexBuffer)) {
+            super.transform(m, target);
+            return;
+        }
+        float[] output = ((FloatVertexBuffer) target).coordinates;
+        PointTransform.transform(m, coordinates, output, size());
+    }
+
+    @Override
+    public void copyFrom(final VertexBuffer source, final int vertexes) {
+        if (!(source instanceof FloatVertexBuffer)) {
+            super.copyFrom(source, vertexes);
+            return;
+        }
+        FloatVertexBuffer heap = (FloatVertexBuffer) source;
+        System.arraycopy(heap.coordinates, 0, coordinates, 0, vertexes * COORDINATES);
+        System.arraycopy(heap.colors, 0, colors, 0, vertexes);
+    }
+
+}
@@ -0,0 +1,128 @@
+package model;
+
+import util.math.Kernels;
+import util.math.Mat4;
+import util.math.PointTransform;
+
+import static main.Main.PROPS;
+
+/**
+ * Represents a {@link VertexBuffer} backed by arrays on the Java heap.
+ *
+ * @author 150009974
+ * @version 1.4
+ */
+final class HeapVertexBuffer extends VertexBuffer {
+
+    /**
+     * The number of vertexes from which a transformation
+     * is done as a single matrix product through jblas,
+     * rather than as a loop in Java.
+     */
+    private static final int GEMM_THRESHOLD = PROPS.getInt("gemm transform threshold");
+
+    /** The x,y,z coordinates of all vertexes. */
+    private final double[] coordinates;
+
+    /** The packed colors of all vertexes. */
+    private final int[] colors;
+
+    /**
+     * Allocates a {@link HeapVertexBuffer} for the given number of vertexes.
+     *
+     * @param vertexes the number of vertexes
+     */
+    HeapVertexBuffer(final int vertexes) {
+        this(new double[vertexes * COORDINATES], new int[vertexes]);
+    }
+
+    /**
+     * Uses the given arrays as a {@link HeapVertexBuffer}.
+     * They are not copied.
+     *
+     * @param coords the x,y,z coordinates of all vertexes
+     * @param packed the packed colors of all vertexes
+     */
+    HeapVertexBuffer(final double[] coords, final int[] packed) {
+        coordinates = coords;
+        colors = packed;
+    }
+
+    @Override
+    public int size() {
+        return colors.length;
+    }
+
+    @Override
+    public boolean isSinglePrecision() {
+        return false;
+    }
+
+    @Override
+    public double getCoordinate(final int index) {
+        return coordinates[index];
+    }
+
+    @Override
+    public void setCoordinate(final int index, final double value) {
+        coordinates[index] = value;
+    }
+
+    @Override
+    public int getColor(final int vertex) {
+        return colors[vertex];
+    }
+
+    @Override
+    public void setColor(final int vertex, final int rgb) {
+        colors[vertex] = rgb;
+    }
+
+    @Override
+    public VertexBuffer allocateLike(final int vertexes) {
+        return new HeapVertexBuffer(vertexes);
+    }
+
+    @Override
+    public void transform(final Mat4 m, final VertexBuffer target) {
+        if (!(target instanceof HeapVertexBuffer)) {
+            super.transform(m, target);
+            return;
+        }
+        double[] output = ((HeapVertexBuffer) target).coordinates;
+        if (output != coordinates && size() >= GEMM_THRESHOLD) {
+            PointTransform.gemm(m, coordinates, output, size());
+        } else {
+            PointTransform.transform(m, coordinates, output, size());
+        }
+    }
+
+    @Override
+    public void addCoordinates(final double weight, final double[] dest,
+                               final int from, final int to) {
+        int offset = from * COORDINATES;
+        Kernels.axpy(weight, coordinates, offset, dest, offset, (to - from) * COORDINATES);
+    }
+
+    @Override
+    public void setCoordinates(final double[] src, final int offset) {
+        System.arraycopy(src, offset, coordinates, 0, coordinates.length);
+    }
+
+    @Override
+    public void getColors(final int[] dest, final int from, final int to) {
+        System.arraycopy(colors, from, dest, from, to - from);
+    }
+
+    @Override
+    public void copyFrom(final VertexBuffer source, final int vertexes) {
+        if (!(source instanceof HeapVertexBuffer)) {
+            super.copyFrom(source, vertexes);
+            return;
+        }
+        HeapVertexBuffer heap = (HeapVertexBuffer) source;
+        System.arraycopy(heap.coordinates, 0, coordinates, 0, vertexes * COORDINATES);
+        System.arraycopy(heap.colors, 0, colors, 0, vertexes);
+    }
+
+}
@@ -1,15 +1,18 @@
 package model;
 
-import org.jblas.DoubleMatrix;
+import util.math.Vec4;
 
 import java.awt.Color;
 import java.util.Objects;
 
 /**
  * Represents a Homogeneous Point in 3D space.
+ * A point either owns its coordinates and color,
+ * or it is a view over a single vertex of a {@link Face}.
+ * Changes to a view are written through to the {@link Face}.
  *
  * @author 150009974
- * @version 2.4
+ * @version 3.3
  */
 public class Homogeneous3DPoint {
 
@@ -30,10 +33,10 @@ public class Homogeneous3DPoint {
         double x = a.getX() - b.getX();
         double y = a.getY() - b.getY();
         double z = a.getZ() - b.getZ();
-        int red = limitColor(a.getRed() - b.getRed());
-        int green = limitColor(a.getGreen() - b.getGreen());
-        int blue = limitColor(a.getBlue() - b.getBlue());
-        return new Homogeneous3DPoint(x, y, z, red, green, blue);
+        int red = a.getRed() - b.getRed();
+        int green = a.getGreen() - b.getGreen();
+        int blue = a.getBlue() - b.getBlue();
+        return new Homogeneous3DPoint(x, y, z, PackedColor.pack(red, green, blue));
     }
 
     /**
@@ -50,16 +53,16 @@ public class Homogeneous3DPoint {
         double x = a.getY() * b.getZ() - a.getZ() * b.getY();
         double y = a.getZ() * b.getX() - a.getX() * b.getZ();
         double z = a.getX() * b.getY() - a.getY() * b.getX();
-        return new Homogeneous3DPoint(x, y, z, a.c);
+        return new Homogeneous3DPoint(x, y, z, a.getRGB());
     }
 
     /**
-     * Calculates and returns the dot product (a · b).
+     * Calculates and returns the dot product (a * b).
      *
      * @param a the first {@link Homogeneous3DPoint} to multiply
      * @param b the second {@link Homogeneous3DPoint} to multiply
      *
-     * @return a · b
+     * @return a * b
      */
     public static double dot(final Homogeneous3DPoint a,
                              final Homogeneous3DPoint b) {
@@ -67,30 +70,16 @@ public class Homogeneous3DPoint {
     }
 
     /**
-     * Encloses the given value in the color range 0 to 255.
-     * If the given value is less than 0, this method returns 0.
-     * Else, if it is greater than 255, it returns 255.
-     * Otherwise, it returns the given value, because it is in color range.
-     *
-     * @param value the value to limit
-     *
-     * @return a number between 0 and 255 (inclusive)
+     * Stores the coordinates and color of this {@link Homogeneous3DPoint}.
+     * For a view, this is the {@link VertexBuffer} of the {@link Face}.
      */
-    private static int limitColor(int value) {
-        if (value < 0) {
-            return 0;
-        } else if (value > 255) {
-            return 255;
-        } else {
-            return value;
-        }
-    }
+    private final VertexBuffer vertexes;
 
-    /** Stores the coordinates of this {@link Homogeneous3DPoint}. */
-    private DoubleMatrix coordinates;
+    /** The index of this point in {@link #vertexes}. */
+    private final int index;
 
-    /** The color of this {@link Homogeneous3DPoint}. */
-    private Color c;
+    /** The W coordinate of this {@link Homogeneous3DPoint}. */
+    private double w = 1;
 
     /**
      * Creates a {@link Homogeneous3DPoint} at the given location
@@ -103,12 +92,23 @@ public class Homogeneous3DPoint {
      */
     public Homogeneous3DPoint(final double x, final double y,
                               final double z, final Color c) {
-        coordinates = DoubleMatrix.zeros(4, 1);
-        coordinates.put(0, 0, x);
-        coordinates.put(1, 0, y);
-        coordinates.put(2, 0, z);
-        coordinates.put(3, 0, 1);  // set W to 1
-        this.c = c;
+        this(x, y, z, c.getRed(), c.getGreen(), c.getBlue());
+    }
+
+    /**
+     * Creates a {@link Homogeneous3DPoint} at the given location
+     * with the given packed color.
+     *
+     * @param x   the X coordinate
+     * @param y   the Y coordinate
+     * @param z   the Z coordinate
+     * @param rgb the packed color of the point
+     *
+     * @see PackedColor
+     */
+    public Homogeneous3DPoint(final double x, final double y,
+                              final double z, final int rgb) {
+        this(new HeapVertexBuffer(new double[]{x, y, z}, new int[]{rgb}), 0);
     }
 
     /**
@@ -124,7 +124,7 @@ public class Homogeneous3DPoint {
      */
     public Homogeneous3DPoint(final double x, final double y, final double z,
                               final int red, final int green, final int blue) {
-        this(x, y, z, new Color(red, green, blue));
+        this(x, y, z, PackedColor.pack(red, green, blue));
     }
 
     /**
@@ -138,52 +138,81 @@ public class Homogeneous3DPoint {
         this(x, y, z, Color.GRAY);
     }
 
+    /**
+     * Creates a {@link Homogeneous3DPoint} that is a view over
+     * the point at the given index in the given {@link VertexBuffer}.
+     * The buffer is not copied.
+     *
+     * @param buffer the coordinates and colors of all points
+     * @param i      the index of the point to view
+     */
+    Homogeneous3DPoint(final VertexBuffer buffer, final int i) {
+        vertexes = buffer;
+        index = i;
+    }
+
     /** @return the X coordinate of this {@link Homogeneous3DPoint} */
     public double getX() {
-        return coordinates.get(0, 0) / coordinates.get(3, 0);
+        return vertexes.getCoordinate(index * VertexBuffer.COORDINATES) / w;
     }
 
     /** @return the Y coordinate of this {@link Homogeneous3DPoint} */
     public double getY() {
-        return coordinates.get(1, 0) / coordinates.get(3, 0);
+        return vertexes.getCoordinate(index * VertexBuffer.COORDINATES + 1) / w;
     }
 
     /** @return the Z coordinate of this {@link Homogeneous3DPoint} */
     public double getZ() {
-        return coordinates.get(2, 0) / coordinates.get(3, 0);
+        return vertexes.getCoordinate(index * VertexBuffer.COORDINATES + 2) / w;
     }
 
     /** @return the color of this {@link Homogeneous3DPoint} */
     public Color getColor() {
-        return c;
+        return PackedColor.toColor(getRGB());
+    }
+
+    /** @return the packed color of this {@link Homogeneous3DPoint} */
+    public int getRGB() {
+        return vertexes.getColor(index);
     }
 
     /** @return the red value of this {@link Homogeneous3DPoint} */
     public int getRed() {
-        return c.getRed();
+        return PackedColor.red(getRGB());
     }
 
     /** @return the green value of this {@link Homogeneous3DPoint} */
     public int getGreen() {
-        return c.getGreen();
+        return PackedColor.green(getRGB());
     }
 
     /** @return the blue value of this {@link Homogeneous3DPoint} */
     public int getBlue() {
-        return c.getBlue();
+        return PackedColor.blue(getRGB());
     }
 
-    /** @return the {@link DoubleMatrix} representing this point */
-    public DoubleMatrix getMatrix() {
-        return coordinates;
+    /**
+     * Copies the homogeneous coordinates of this point
+     * into the given {@link Vec4}.
+     * Changing the vector does not affect the point.
+     *
+     * @param dest the {@link Vec4} to copy into
+     *
+     * @return the destination
+     */
+    public Vec4 getVector(final Vec4 dest) {
+        int offset = index * VertexBuffer.COORDINATES;
+        return dest.set(vertexes.getCoordinate(offset),
+                vertexes.getCoordinate(offset + 1),
+                vertexes.getCoordinate(offset + 2), w);
     }
 
     /**
-     * Calculates and returns the dot product (this · that).
+     * Calculates and returns the dot product (this * that).
      *
      * @param that the second {@link Homogeneous3DPoint} to multiply
      *
-     * @return this · that
+     * @return this * that
      */
     public double dot(final Homogeneous3DPoint that) {
         return this.getX() * that.getX()
@@ -197,11 +226,11 @@ public class Homogeneous3DPoint {
      * @param scalar the scalar to scale by
      */
     public void scale(final double scalar) {
-        DoubleMatrix scaleMatrix = DoubleMatrix.eye(4);
-        scaleMatrix.put(0, 0, scalar);
-        scaleMatrix.put(1, 1, scalar);
-        scaleMatrix.put(2, 2, scalar);
-        coordinates = scaleMatrix.mmul(coordinates);
+        // Same as multiplying by a scaling matrix, which leaves W unchanged
+        int offset = index * VertexBuffer.COORDINATES;
+        for (int i = offset; i < offset + VertexBuffer.COORDINATES; i++) {
+            vertexes.setCoordinate(i, vertexes.getCoordinate(i) * scalar);
+        }
     }
 
     /**
@@ -211,19 +240,20 @@ public class Homogeneous3DPoint {
      * @param that the {@link Homogeneous3DPoint} to translate by
      */
     public void translate(final Homogeneous3DPoint that) {
-        DoubleMatrix translationMatrix = DoubleMatrix.eye(4);
-        translationMatrix.put(0, 3, that.getX());
-        translationMatrix.put(1, 3, that.getY());
-        translationMatrix.put(2, 3, that.getZ());
-        this.coordinates = translationMatrix.mmul(this.coordinates);
+        // Same as multiplying by a translation matrix, which scales the offset by W
+        int offset = index * VertexBuffer.COORDINATES;
+        vertexes.setCoordinate(offset, vertexes.getCoordinate(offset) + that.getX() * w);
+        vertexes.setCoordinate(offset + 1,
+                vertexes.getCoordinate(offset + 1) + that.getY() * w);
+        vertexes.setCoordinate(offset + 2,
+                vertexes.getCoordinate(offset + 2) + that.getZ() * w);
     }
 
     /** Normalizes this {@link Homogeneous3DPoint}. */
     public void normalize() {
         double length = getLength();
-        double w = coordinates.get(3, 0);
         // Simply changing the W value means that getX, getY, and getZ will return correctly.
-        coordinates.put(3, 0, w * length);
+        w *= length;
     }
 
     /** @return the length of this vector */
@@ -233,7 +263,7 @@ public class Homogeneous3DPoint {
 
     @Override
     public int hashCode() {
-        return Objects.hash(coordinates, c);
+        return Objects.hash(getX(), getY(), getZ(), getRGB());
     }
 
     @Override
@@ -245,13 +275,16 @@ public class Homogeneous3DPoint {
             return false;
         }
         Homogeneous3DPoint that = (Homogeneous3DPoint) o;
-        return coordinates.equals(that.coordinates)
-                && Objects.equals(c, that.c);
+        return Double.compare(getX(), that.getX()) == 0
+                && Double.compare(getY(), that.getY()) == 0
+                && Double.compare(getZ(), that.getZ()) == 0
+                && getRGB() == that.getRGB();
     }
 
     @Override
     public String toString() {
-        return "Homogeneous3DPoint{" + coordinates + "," + c + "}";
+        return "Homogeneous3DPoint{" + getX() + "," + getY() + "," + getZ()
+                + "," + getColor() + "}";
     }
 
 }
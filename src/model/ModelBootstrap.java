@@ -0,0 +1,258 @@
+package model;
+
+import util.file.editing.NumericReader;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+import static model.VertexBuffer.COORDINATES;
+
+/**
+ * Loads the parts of the model that all {@link Face}s share.
+ * The mesh, the average face, and the shape and color weights
+ * are loaded concurrently on the common {@link ForkJoinPool}.
+ * Loading starts when {@link #start()} is called,
+ * or when {@link Face} or {@link Mesh} first need one of the parts.
+ * {@link Face}s can be loaded on the same pool with {@link #load(String)},
+ * as can the whole {@link MorphableModel} with {@link #loadMorphableModel()},
+ * and the progress of all loading is reported to {@link #setOnProgress(Runnable)}.
+ *
+ * @author 150009974
+ * @version 1.2
+ */
+public final class ModelBootstrap {
+
+    /** The pool the parts of the model are loaded on. */
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    /** The number of parts and {@link Face}s submitted for loading. */
+    private static final AtomicInteger SUBMITTED = new AtomicInteger();
+
+    /** The number of parts and {@link Face}s that finished loading. */
+    private static final AtomicInteger COMPLETED = new AtomicInteger();
+
+    /** Runs whenever loading starts or finishes, on the loading thread. */
+    private static volatile Runnable onProgress;
+
+    /** The indexes of the vertexes of each triangle, starting at 0. */
+    private static CompletableFuture<int[]> meshIndexes;
+
+    /** The shape weight of each component. */
+    private static CompletableFuture<double[]> shapeWeights;
+
+    /** The color weight of each component. */
+    private static CompletableFuture<double[]> colorWeights;
+
+    /** The coordinates and colors of the average face. */
+    private static CompletableFuture<VertexBuffer> average;
+
+    /** The mean and basis of the model, only loaded once asked for. */
+    private static CompletableFuture<MorphableModel> morphableModel;
+
+    /**
+     * Starts loading all parts of the model, unless they already are.
+     * Returns straight away.
+     */
+    public static synchronized void start() {
+        if (meshIndexes != null) {
+            return;
+        }
+        meshIndexes = submit(ModelBootstrap::loadMeshIndexes);
+        shapeWeights = submit(() -> loadWeights(true));
+        colorWeights = submit(() -> loadWeights(false));
+        average = submit(ModelBootstrap::loadAverage);
+    }
+
+    /**
+     * Gets a {@link Face} from {@link FaceRepository#SHARED} on the loading pool.
+     * Also starts loading the model, if it is not already.
+     *
+     * @param index the index of the {@link Face}, as in {@link Face#load(String)}
+     *
+     * @return a copy of the {@link Face}, once it is loaded
+     */
+    public static CompletableFuture<Face> load(final String index) {
+        start();
+        return submit(() -> FaceRepository.SHARED.get(index));
+    }
+
+    /**
+     * Starts loading the {@link MorphableModel}, unless it already is.
+     * It is only needed to synthesise, so it is not loaded by {@link #start()},
+     * and its components are only read once a synthesis needs them.
+     *
+     * @return the {@link MorphableModel}, once it is loaded
+     */
+    public static synchronized CompletableFuture<MorphableModel> loadMorphableModel() {
+        start();
+        if (morphableModel == null) {
+            morphableModel = submit(MorphableModel::load);
+        }
+        return morphableModel;
+    }
+
+    /** @param onProgress the method to execute when loading starts or finishes */
+    public static void setOnProgress(final Runnable onProgress) {
+        ModelBootstrap.onProgress = onProgress;
+    }
+
+    /** @return the number of parts and {@link Face}s submitted for loading */
+    public static int getSubmitted() {
+        return SUBMITTED.get();
+    }
+
+    /** @return the number of parts and {@link Face}s that finished loading */
+    public static int getCompleted() {
+        return COMPLETED.get();
+    }
+
+    /** @return whether everything submitted for loading has finished */
+    public static boolean isDone() {
+        return COMPLETED.get() == SUBMITTED.get();
+    }
+
+    /** @return the mesh indexes, waiting for them to load */
+    static int[] getMeshIndexes() {
+        start();
+        return meshIndexes.join();
+    }
+
+    /** @return the shape weights, waiting for them to load */
+    static double[] getShapeWeights() {
+        start();
+        return shapeWeights.join();
+    }
+
+    /** @return the color weights, waiting for them to load */
+    static double[] getColorWeights() {
+        start();
+        return colorWeights.join();
+    }
+
+    /** @return the average face, waiting for it to load */
+    static VertexBuffer getAverage() {
+        start();
+        return average.join();
+    }
+
+    /**
+     * Runs the given task on the loading pool and tracks its progress.
+     * A failure is logged, and rethrown by {@link CompletableFuture#join()}.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result
+     *
+     * @return the result, once the task finishes
+     */
+    private static <T> CompletableFuture<T> submit(final Supplier<T> task) {
+        SUBMITTED.incrementAndGet();
+        reportProgress();
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(task, POOL);
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                L.log(error);
+            }
+            COMPLETED.incrementAndGet();
+            reportProgress();
+        });
+        return future;
+    }
+
+    /** Runs {@link #onProgress}, if there is one. */
+    private static void reportProgress() {
+        Runnable listener = onProgress;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /** @return the mesh indexes, read from the model or the CSV file */
+    private static int[] loadMeshIndexes() {
+        if (ModelFile.SHARED != null) {
+            return toArray(ModelFile.SHARED.getIndexes());
+        }
+        int[] indexes = NumericReader.readInts(PROPS.getString("mesh file"), L);
+        for (int i = 0; i < indexes.length; i++) {
+            // Account for indexes starting at 1.
+            indexes[i]--;
+        }
+        return indexes;
+    }
+
+    /**
+     * @param shape whether to load the shape weights, rather than the color weights
+     *
+     * @return the weights, read from the model or the CSV file
+     */
+    private static double[] loadWeights(final boolean shape) {
+        if (ModelFile.SHARED != null) {
+            return toArray(shape ? ModelFile.SHARED.getShapeWeights()
+                    : ModelFile.SHARED.getColorWeights());
+        }
+        String filename = PROPS.getString(shape ? "shape weights" : "color weights");
+        return NumericReader.readDoubles(filename, L);
+    }
+
+    /** @return the average face, read from the model or the CSV files */
+    private static VertexBuffer loadAverage() {
+        double[] shape;
+        double[] color;
+        if (ModelFile.SHARED != null) {
+            shape = toArray(ModelFile.SHARED.getAverageShape());
+            color = toArray(ModelFile.SHARED.getAverageColor());
+        } else {
+            shape = NumericReader.readDoubles(PROPS.getString("average face shape"), L);
+            color = NumericReader.readDoubles(PROPS.getString("average face color"), L);
+        }
+        int n = shape.length / COORDINATES;
+        VertexBuffer vertexes = VertexBuffer.allocate(n);
+        for (int i = 0; i < n; i++) {
+            int offset = i * COORDINATES;
+            vertexes.setCoordinate(offset, shape[offset]);
+            vertexes.setCoordinate(offset + 1, shape[offset + 1]);
+            vertexes.setCoordinate(offset + 2, shape[offset + 2]);
+            int r = (int) color[offset];
+            int g = (int) color[offset + 1];
+            int b = (int) color[offset + 2];
+            vertexes.setColor(i, PackedColor.pack(r, g, b));
+        }
+        return vertexes;
+    }
+
+    /**
+     * Copies the remaining values of the given buffer into an array.
+     *
+     * @param buffer the buffer to copy
+     *
+     * @return the copied values
+     */
+    private static double[] toArray(final DoubleBuffer buffer) {
+        double[] values = new double[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /**
+     * Copies the remaining values of the given buffer into an array.
+     *
+     * @param buffer the buffer to copy
+     *
+     * @return the copied values
+     */
+    private static int[] toArray(final IntBuffer buffer) {
+        int[] values = new int[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /** Hides the constructor for this utility class. */
+    private ModelBootstrap() {
+    }
+
+}
@@ -0,0 +1,827 @@
+package model;
+
+import util.math.Half;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+import static model.VertexBuffer.COORDINATES;
+
+/**
+ * Represents the whole morphable model in a single binary file.
+ * The file is memory-mapped, so reading it does not parse anything,
+ * and several processes on one machine share the same cached pages.
+ * All values are little-endian.
+ * The file starts with a header of {@link #HEADER_BYTES}:
+ * the {@link #MAGIC} number, the {@link #VERSION},
+ * the number of points, of triangles, and of components,
+ * the {@link Encoding} of the components, and whether they are compressed.
+ * It is followed by these blocks, each starting at a multiple of {@link #ALIGNMENT}:
+ * <ol>
+ * <li>the mesh indexes, as ints starting at 0</li>
+ * <li>the average shape, as x,y,z doubles per point</li>
+ * <li>the average color, as r,g,b doubles per point</li>
+ * <li>the shape weights, as one double per component</li>
+ * <li>the color weights, as one double per component</li>
+ * <li>a table with the position, length, offset, scale, and maximum error
+ * of every shape component, then of every color component</li>
+ * <li>the components, each encoded as x,y,z or r,g,b per point</li>
+ * </ol>
+ * Components stored as uncompressed doubles are used directly from the file.
+ * Any other component is decoded when it is requested,
+ * and compressed components are inflated in small chunks while decoding.
+ * The file is created from the CSV files by {@link main.ModelConverter}.
+ *
+ * @author 150009974
+ * @version 2.1
+ */
+public final class ModelFile {
+
+    /** Identifies a model file. Reads "FMDL" in a little-endian file. */
+    public static final int MAGIC = 0x4C444D46;
+
+    /** The version of the layout. Changed whenever the layout changes. */
+    public static final int VERSION = 2;
+
+    /**
+     * The ways a component can be stored.
+     * Quantized values are stored relative to an offset and a scale per component:
+     * the value is the offset plus the stored number times the scale.
+     */
+    public enum Encoding {
+
+        /** Each value is a double. Exact, and used without copying. */
+        DOUBLE(Double.BYTES),
+
+        /** Each value is quantized to one of 65535 evenly spaced steps. */
+        INT16(Short.BYTES),
+
+        /** Each value is quantized to a half precision float between -1 and 1. */
+        HALF(Short.BYTES);
+
+        /** The number of bytes a single value is stored in. */
+        private final int bytes;
+
+        /** @param bytes the number of bytes a single value is stored in */
+        Encoding(final int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /** The size of the header, in bytes. */
+    private static final int HEADER_BYTES = 64;
+
+    /** The alignment of each block, in bytes. Matches a cache line. */
+    private static final int ALIGNMENT = 64;
+
+    /** The size of an entry in the table of components, in bytes. */
+    private static final int ENTRY_BYTES = 40;
+
+    /** The number of bytes to inflate at a time. */
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    /** The largest number an {@link Encoding#INT16} value is stored as. */
+    private static final int INT16_STEPS = Short.MAX_VALUE;
+
+    /**
+     * The configured model file, which {@link Face} and {@link Mesh} read from.
+     * It is null if the file does not exist or cannot be read,
+     * in which case the CSV files are parsed instead.
+     */
+    public static final ModelFile SHARED = open(PROPS.getString("model file"));
+
+    /**
+     * Maps the given model file for reading.
+     * A file that exists but cannot be read as a model is logged.
+     *
+     * @param filename the name of the model file
+     *
+     * @return the mapped {@link ModelFile}, or null if there is none
+     */
+    public static ModelFile open(final String filename) {
+        Path path = Paths.get(filename);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+            if (bytes.limit() < HEADER_BYTES || bytes.getInt(0) != MAGIC) {
+                throw new IOException(filename + " is not a model file");
+            }
+            if (bytes.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException(filename + " has version "
+                        + bytes.getInt(Integer.BYTES) + ", expected " + VERSION);
+            }
+            int encoding = bytes.getInt(5 * Integer.BYTES);
+            if (encoding < 0 || encoding >= Encoding.values().length) {
+                throw new IOException(filename + " has an unknown encoding " + encoding);
+            }
+            ModelFile model = new ModelFile(bytes, bytes.getInt(2 * Integer.BYTES),
+                    bytes.getInt(3 * Integer.BYTES), bytes.getInt(4 * Integer.BYTES),
+                    Encoding.values()[encoding], bytes.getInt(6 * Integer.BYTES) != 0);
+            model.checkEntries(filename);
+            return model;
+        } catch (IOException | IllegalArgumentException e) {
+            L.log(e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a model file of the given dimensions and opens it for writing.
+     *
+     * @param filename   the name of the model file
+     * @param points     the number of points of a face
+     * @param triangles  the number of triangles in the mesh
+     * @param components the number of components
+     * @param encoding   the way to store the components
+     * @param compressed whether to deflate the components
+     *
+     * @return a {@link Writer} to fill in the file
+     *
+     * @throws IOException if the file cannot be created
+     */
+    public static Writer create(final String filename, final int points,
+                                final int triangles, final int components,
+                                final Encoding encoding, final boolean compressed)
+            throws IOException {
+        ModelFile layout = new ModelFile(null, points, triangles, components,
+                encoding, compressed);
+        return new Writer(layout, FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Rounds the given offset up to the next multiple of {@link #ALIGNMENT}.
+     *
+     * @param offset the offset to align
+     *
+     * @return the aligned offset
+     */
+    private static long align(final long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /** The mapped contents of the file. */
+    private final MappedByteBuffer bytes;
+
+    /** The number of points of a face. */
+    private final int points;
+
+    /** The number of triangles in the mesh. */
+    private final int triangles;
+
+    /** The number of components. */
+    private final int components;
+
+    /** The way the components are stored. */
+    private final Encoding encoding;
+
+    /** Whether the components are deflated. */
+    private final boolean compressed;
+
+    /** The offset of the mesh indexes. */
+    private final int indexesOffset;
+
+    /** The offset of the average shape. */
+    private final int averageShapeOffset;
+
+    /** The offset of the average color. */
+    private final int averageColorOffset;
+
+    /** The offset of the shape weights. */
+    private final int shapeWeightsOffset;
+
+    /** The offset of the color weights. */
+    private final int colorWeightsOffset;
+
+    /** The offset of the table of components. */
+    private final int tableOffset;
+
+    /** The offset of the first component. */
+    private final int dataOffset;
+
+    /**
+     * Lays out the fixed blocks of a model file of the given dimensions.
+     *
+     * @param bytes      the mapped contents of the file
+     * @param points     the number of points of a face
+     * @param triangles  the number of triangles in the mesh
+     * @param components the number of components
+     * @param encoding   the way the components are stored
+     * @param compressed whether the components are deflated
+     *
+     * @throws IllegalArgumentException if the dimensions are negative,
+     *                                  or the fixed blocks and any uncompressed
+     *                                  components would not fit in a single mapping
+     */
+    private ModelFile(final MappedByteBuffer bytes, final int points,
+                      final int triangles, final int components,
+                      final Encoding encoding, final boolean compressed) {
+        if (points < 0 || triangles < 0 || components < 0) {
+            throw new IllegalArgumentException("Negative model dimensions");
+        }
+        this.bytes = bytes;
+        this.points = points;
+        this.triangles = triangles;
+        this.components = components;
+        this.encoding = encoding;
+        this.compressed = compressed;
+
+        long faceBytes = align((long) points * COORDINATES * Double.BYTES);
+        long weightBytes = align((long) components * Double.BYTES);
+        long offset = HEADER_BYTES;
+        long indexes = offset;
+        offset += align((long) triangles * Mesh.CORNERS * Integer.BYTES);
+        long averageShape = offset;
+        offset += faceBytes;
+        long averageColor = offset;
+        offset += faceBytes;
+        long shapeWeights = offset;
+        offset += weightBytes;
+        long colorWeights = offset;
+        offset += weightBytes;
+        long table = offset;
+        offset += align(2L * components * ENTRY_BYTES);
+        long data = offset;
+        long componentBytes = (long) points * COORDINATES * encoding.bytes;
+        if (!compressed && components > 0) {
+            // Every component but the last is padded to the alignment, as the Writer does
+            offset += (2L * components - 1) * align(componentBytes) + componentBytes;
+        }
+        // Offsets are checked here once, so they are all valid ints afterwards.
+        // Deflated components are only checked as the Writer writes them.
+        if (offset > Integer.MAX_VALUE || componentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A model file of " + offset
+                    + " bytes does not fit in a single mapping");
+        }
+        indexesOffset = (int) indexes;
+        averageShapeOffset = (int) averageShape;
+        averageColorOffset = (int) averageColor;
+        shapeWeightsOffset = (int) shapeWeights;
+        colorWeightsOffset = (int) colorWeights;
+        tableOffset = (int) table;
+        dataOffset = (int) data;
+    }
+
+    /** @return the size of a component before compression, in bytes */
+    private int encodedBytes() {
+        return points * COORDINATES * encoding.bytes;
+    }
+
+    /**
+     * Checks that every entry in the table of components lies within the file.
+     *
+     * @param filename the name of the file, for error messages
+     *
+     * @throws IOException if an entry does not
+     */
+    private void checkEntries(final String filename) throws IOException {
+        if (bytes.limit() < dataOffset) {
+            throw new IOException(filename + " is truncated");
+        }
+        for (int entry = 0; entry < 2 * components; entry++) {
+            long position = bytes.getLong(tableOffset + entry * ENTRY_BYTES);
+            long length = bytes.getLong(tableOffset + entry * ENTRY_BYTES + Long.BYTES);
+            boolean sized = compressed || length == encodedBytes();
+            if (position < dataOffset || length < 0
+                    || position + length > bytes.limit() || !sized) {
+                throw new IOException(filename + " has an invalid component " + entry);
+            }
+        }
+    }
+
+    /**
+     * Creates a view of a part of the file.
+     *
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     *
+     * @return the little-endian view
+     */
+    private ByteBuffer slice(final int offset, final int length) {
+        ByteBuffer view = bytes.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates a view of the coordinates or colors of a face.
+     *
+     * @param offset the offset of the face
+     *
+     * @return the view of the x,y,z or r,g,b of each point
+     */
+    private DoubleBuffer face(final int offset) {
+        return slice(offset, points * COORDINATES * Double.BYTES).asDoubleBuffer();
+    }
+
+    /**
+     * Checks that the given component is in this file.
+     *
+     * @param component the index of the component
+     *
+     * @throws IndexOutOfBoundsException if it is not
+     */
+    private void checkComponent(final int component) {
+        if (component < 0 || component >= components) {
+            throw new IndexOutOfBoundsException("Component " + component
+                    + " of " + components);
+        }
+    }
+
+    /**
+     * Gets a value from the table of components.
+     *
+     * @param entry the index of the entry
+     * @param field the index of the 8 byte field in that entry
+     *
+     * @return the raw bits of that field
+     */
+    private long entry(final int entry, final int field) {
+        return bytes.getLong(tableOffset + entry * ENTRY_BYTES + field * Long.BYTES);
+    }
+
+    /**
+     * Gets a component as x,y,z or r,g,b per point,
+     * decoding it if it is not stored as uncompressed doubles.
+     *
+     * @param entry the index of the component in the table
+     *
+     * @return the values of the component
+     *
+     * @throws IllegalStateException if a compressed component is corrupt
+     */
+    private DoubleBuffer component(final int entry) {
+        ByteBuffer stored = slice((int) entry(entry, 0), (int) entry(entry, 1));
+        if (encoding == Encoding.DOUBLE && !compressed) {
+            return stored.asDoubleBuffer();
+        }
+        double offset = Double.longBitsToDouble(entry(entry, 2));
+        double scale = Double.longBitsToDouble(entry(entry, 3));
+        double[] values = new double[points * COORDINATES];
+        if (!compressed) {
+            decode(stored, values, 0, values.length, offset, scale);
+            return DoubleBuffer.wrap(values);
+        }
+
+        Inflater inflater = new Inflater();
+        byte[] input = new byte[CHUNK_BYTES];
+        byte[] output = new byte[CHUNK_BYTES];
+        ByteBuffer chunk = ByteBuffer.wrap(output).order(ByteOrder.LITTLE_ENDIAN);
+        int filled = 0;
+        int decoded = 0;
+        try {
+            while (decoded < values.length) {
+                if (inflater.needsInput()) {
+                    int length = Math.min(input.length, stored.remaining());
+                    stored.get(input, 0, length);
+                    inflater.setInput(input, 0, length);
+                }
+                int inflated = inflater.inflate(output, filled, output.length - filled);
+                filled += inflated;
+                int count = Math.min(filled / encoding.bytes, values.length - decoded);
+                if (inflated == 0 && count == 0 && !stored.hasRemaining()) {
+                    throw new IllegalStateException("Component " + entry + " is truncated");
+                }
+                chunk.clear();
+                decode(chunk, values, decoded, count, offset, scale);
+                decoded += count;
+                // Keep any partial value for the next chunk
+                int used = count * encoding.bytes;
+                System.arraycopy(output, used, output, 0, filled - used);
+                filled -= used;
+                // A stream that ends or needs a dictionary would never inflate any more
+                if (decoded < values.length
+                        && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Component " + entry + " ends early");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Component " + entry + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return DoubleBuffer.wrap(values);
+    }
+
+    /**
+     * Decodes values stored in the {@link #encoding} of this file.
+     *
+     * @param source the stored values, read from its position
+     * @param dest   the array to store the decoded values in
+     * @param start  the index in dest of the first value
+     * @param count  the number of values to decode
+     * @param offset the offset of the component
+     * @param scale  the scale of the component
+     */
+    private void decode(final ByteBuffer source, final double[] dest,
+                        final int start, final int count,
+                        final double offset, final double scale) {
+        int end = start + count;
+        switch (encoding) {
+            case INT16:
+                for (int i = start; i < end; i++) {
+                    dest[i] = offset + source.getShort() * scale;
+                }
+                break;
+            case HALF:
+                for (int i = start; i < end; i++) {
+                    dest[i] = offset + Half.toFloat(source.getShort()) * scale;
+                }
+                break;
+            default:
+                for (int i = start; i < end; i++) {
+                    dest[i] = source.getDouble();
+                }
+                break;
+        }
+    }
+
+    /** @return the number of points of a face */
+    public int getPointCount() {
+        return points;
+    }
+
+    /** @return the number of triangles in the mesh */
+    public int getTriangleCount() {
+        return triangles;
+    }
+
+    /** @return the number of components */
+    public int getComponentCount() {
+        return components;
+    }
+
+    /** @return the way the components are stored */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /** @return whether the components are deflated */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /** @return the mesh indexes, {@link Mesh#CORNERS} per triangle */
+    public IntBuffer getIndexes() {
+        return slice(indexesOffset, triangles * Mesh.CORNERS * Integer.BYTES)
+                .asIntBuffer();
+    }
+
+    /** @return the x,y,z of each point of the average face */
+    public DoubleBuffer getAverageShape() {
+        return face(averageShapeOffset);
+    }
+
+    /** @return the r,g,b of each point of the average face */
+    public DoubleBuffer getAverageColor() {
+        return face(averageColorOffset);
+    }
+
+    /** @return the shape weight of each component */
+    public DoubleBuffer getShapeWeights() {
+        return slice(shapeWeightsOffset, components * Double.BYTES).asDoubleBuffer();
+    }
+
+    /** @return the color weight of each component */
+    public DoubleBuffer getColorWeights() {
+        return slice(colorWeightsOffset, components * Double.BYTES).asDoubleBuffer();
+    }
+
+    /**
+     * @param component the index of the component, starting at 0
+     *
+     * @return the x,y,z of each point of that component
+     */
+    public DoubleBuffer getShapeComponent(final int component) {
+        checkComponent(component);
+        return component(component);
+    }
+
+    /**
+     * @param component the index of the component, starting at 0
+     *
+     * @return the r,g,b of each point of that component
+     */
+    public DoubleBuffer getColorComponent(final int component) {
+        checkComponent(component);
+        return component(components + component);
+    }
+
+    /**
+     * @param component the index of the component, starting at 0
+     *
+     * @return the largest difference between a stored and an original
+     * coordinate of that component's shape
+     */
+    public double getShapeError(final int component) {
+        checkComponent(component);
+        return Double.longBitsToDouble(entry(component, 4));
+    }
+
+    /**
+     * @param component the index of the component, starting at 0
+     *
+     * @return the largest difference between a stored and an original
+     * color channel of that component
+     */
+    public double getColorError(final int component) {
+        checkComponent(component);
+        return Double.longBitsToDouble(entry(components + component, 4));
+    }
+
+    /**
+     * Writes a {@link ModelFile}.
+     * The blocks may be written in any order, and every block must be written.
+     * The table of components is written when this {@link Writer} is closed.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        /** The layout of the file being written. */
+        private final ModelFile layout;
+
+        /** The file being written. */
+        private final FileChannel channel;
+
+        /** The table of components, written out on {@link #close()}. */
+        private final ByteBuffer table;
+
+        /** The position to write the next component at. */
+        private long end;
+
+        /**
+         * Starts writing the given layout to the given file.
+         *
+         * @param layout  the layout of the file
+         * @param channel the file to write
+         *
+         * @throws IOException if the header cannot be written
+         */
+        private Writer(final ModelFile layout, final FileChannel channel)
+                throws IOException {
+            this.layout = layout;
+            this.channel = channel;
+            table = ByteBuffer.allocate(2 * layout.components * ENTRY_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            end = layout.dataOffset;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.putInt(layout.points).putInt(layout.triangles).putInt(layout.components);
+            header.putInt(layout.encoding.ordinal()).putInt(layout.compressed ? 1 : 0);
+            write(header, 0);
+        }
+
+        /**
+         * Writes the whole of the given buffer at the given position.
+         *
+         * @param buffer   the bytes to write
+         * @param position the position in the file
+         *
+         * @throws IOException if they cannot be written
+         */
+        private void write(final ByteBuffer buffer, final long position)
+                throws IOException {
+            buffer.rewind();
+            long at = position;
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+        }
+
+        /**
+         * Writes the given doubles at the given position.
+         *
+         * @param values   the values to write
+         * @param count    the number of values, which must all be given
+         * @param position the position in the file
+         *
+         * @throws IOException if they cannot be written
+         */
+        private void write(final double[] values, final int count, final long position)
+                throws IOException {
+            if (values.length < count) {
+                throw new IllegalArgumentException("Expected " + count
+                        + " values, got " + values.length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(count * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                buffer.putDouble(values[i]);
+            }
+            write(buffer, position);
+        }
+
+        /**
+         * @param indexes the mesh indexes, starting at 0
+         *
+         * @throws IOException if they cannot be written
+         */
+        public void putIndexes(final int[] indexes) throws IOException {
+            int count = layout.triangles * Mesh.CORNERS;
+            if (indexes.length != count) {
+                throw new IllegalArgumentException("Expected " + count
+                        + " indexes, got " + indexes.length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asIntBuffer().put(indexes);
+            write(buffer, layout.indexesOffset);
+        }
+
+        /**
+         * @param shape the x,y,z of each point of the average face
+         * @param color the r,g,b of each point of the average face
+         *
+         * @throws IOException if they cannot be written
+         */
+        public void putAverage(final double[] shape, final double[] color)
+                throws IOException {
+            int count = layout.points * COORDINATES;
+            write(shape, count, layout.averageShapeOffset);
+            write(color, count, layout.averageColorOffset);
+        }
+
+        /**
+         * Writes the weights of the components.
+         * Weights beyond the number of components are ignored.
+         *
+         * @param shape the shape weight of each component
+         * @param color the color weight of each component
+         *
+         * @throws IOException if they cannot be written
+         */
+        public void putWeights(final double[] shape, final double[] color)
+                throws IOException {
+            write(shape, layout.components, layout.shapeWeightsOffset);
+            write(color, layout.components, layout.colorWeightsOffset);
+        }
+
+        /**
+         * Encodes and writes the shape of a component.
+         *
+         * @param component the index of the component, starting at 0
+         * @param values    the x,y,z of each point
+         *
+         * @return the largest difference between a stored and a given value
+         *
+         * @throws IOException if it cannot be written
+         */
+        public double putShapeComponent(final int component, final double[] values)
+                throws IOException {
+            layout.checkComponent(component);
+            return putComponent(component, values);
+        }
+
+        /**
+         * Encodes and writes the color of a component.
+         *
+         * @param component the index of the component, starting at 0
+         * @param values    the r,g,b of each point
+         *
+         * @return the largest difference between a stored and a given value
+         *
+         * @throws IOException if it cannot be written
+         */
+        public double putColorComponent(final int component, final double[] values)
+                throws IOException {
+            layout.checkComponent(component);
+            return putComponent(layout.components + component, values);
+        }
+
+        /**
+         * Encodes and writes a component after the previously written ones,
+         * and records it in the {@link #table}.
+         * Values are quantized over the range between their minimum and maximum.
+         *
+         * @param entry  the index of the component in the table
+         * @param values the values of the component
+         *
+         * @return the largest difference between a stored and a given value
+         *
+         * @throws IOException              if it cannot be written
+         * @throws IllegalArgumentException if the values do not match the layout,
+         *                                  or the file would no longer fit
+         *                                  in a single mapping
+         */
+        private double putComponent(final int entry, final double[] values)
+                throws IOException {
+            int count = layout.points * COORDINATES;
+            if (values.length != count) {
+                throw new IllegalArgumentException("Expected " + count
+                        + " values, got " + values.length);
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            double offset = count == 0 ? 0 : (min + max) / 2;
+            double range = (max - min) / 2;
+            double scale = range > 0 ? range : 1;
+            if (layout.encoding == Encoding.INT16) {
+                scale /= INT16_STEPS;
+            }
+
+            ByteBuffer encoded = ByteBuffer.allocate(layout.encodedBytes())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            double error = 0;
+            for (double value : values) {
+                double stored;
+                switch (layout.encoding) {
+                    case INT16:
+                        short step = (short) Math.round((value - offset) / scale);
+                        encoded.putShort(step);
+                        stored = offset + step * scale;
+                        break;
+                    case HALF:
+                        short half = Half.fromFloat((float) ((value - offset) / scale));
+                        encoded.putShort(half);
+                        stored = offset + Half.toFloat(half) * scale;
+                        break;
+                    default:
+                        encoded.putDouble(value);
+                        stored = value;
+                        break;
+                }
+                error = Math.max(error, Math.abs(stored - value));
+            }
+            byte[] data = encoded.array();
+            if (layout.compressed) {
+                data = deflate(data);
+            }
+            if (end + data.length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A model file of at least "
+                        + (end + data.length) + " bytes does not fit in a single mapping");
+            }
+
+            write(ByteBuffer.wrap(data), end);
+            table.putLong(entry * ENTRY_BYTES, end);
+            table.putLong(entry * ENTRY_BYTES + Long.BYTES, data.length);
+            table.putDouble(entry * ENTRY_BYTES + 2 * Long.BYTES, offset);
+            table.putDouble(entry * ENTRY_BYTES + 3 * Long.BYTES, scale);
+            table.putDouble(entry * ENTRY_BYTES + 4 * Long.BYTES, error);
+            end = align(end + data.length);
+            return error;
+        }
+
+        /**
+         * Deflates the given bytes.
+         *
+         * @param data the bytes to compress
+         *
+         * @return the compressed bytes
+         */
+        private static byte[] deflate(final byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+            byte[] chunk = new byte[CHUNK_BYTES];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                compressed.write(chunk, 0, length);
+            }
+            deflater.end();
+            return compressed.toByteArray();
+        }
+
+        /**
+         * Writes the table of components and closes the file.
+         *
+         * @throws IOException if the table cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                write(table, layout.tableOffset);
+            } finally {
+                channel.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,778 @@
+package model;
+
+import org.jblas.DoubleMatrix;
+import org.jblas.SimpleBlas;
+import util.file.editing.NumericReader;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static main.Main.L;
+import static main.Main.PROPS;
+import static model.VertexBuffer.COORDINATES;
+
+/**
+ * Represents the morphable model as a mean and a basis.
+ * The shape mean is a column of the x,y,z of every point,
+ * and the shape basis has one such column per component.
+ * The color mean and basis are stored likewise, with r,g,b per point.
+ * A {@link Face} is synthesised from raw coefficients, one per component,
+ * as the mean plus the basis times the coefficients scaled by the weights.
+ * This is a single matrix-vector product,
+ * however many components contribute to the {@link Face}.
+ * Sparse coefficients instead add only the columns of their components.
+ * Large models are synthesised in parallel ranges of points.
+ * Many {@link Face}s can be synthesised at once, as a matrix-matrix product.
+ * Previews can be synthesised at a reduced rank,
+ * from only the components that contribute the most to them,
+ * and {@link #getShapeEnergy(double[], int)} and {@link #getColorEnergy(double[], int)}
+ * tell how much of their variance that rank captures.
+ * Repeated syntheses can overwrite an existing {@link Face} instead,
+ * which allocates nothing per vertex once the {@link Face} has been used.
+ * The bases are a {@link Basis}, whose components are only loaded
+ * once a synthesis needs them.
+ *
+ * @author 150009974
+ * @version 1.10
+ */
+public final class MorphableModel {
+
+    /**
+     * The largest fraction of components that may be non-zero
+     * for a sparse synthesis to add their columns one by one,
+     * rather than use the dense matrix-vector product.
+     */
+    private static final double SPARSE_DENSITY = PROPS.getDouble("sparse synthesis density");
+
+    /**
+     * Whether to always combine components in Java, in a fixed order,
+     * so that the same coefficients give bit-identical {@link Face}s
+     * whatever the number of threads or how they are batched,
+     * rather than use the native BLAS.
+     */
+    private static final boolean DETERMINISTIC = PROPS.isTrue("deterministic synthesis");
+
+    /** The largest number of {@link Face}s synthesised by a single gemm. */
+    private static final int BATCH_COLUMNS = PROPS.getInt("synthesis batch columns");
+
+    /**
+     * Loads the {@link MorphableModel} of all components available
+     * in {@link ModelFile#SHARED}, or in the CSV files if there is no model file.
+     * Components are counted from index 001 until one is missing,
+     * and there are never more components than weights.
+     * The mean and the weights are taken from {@link ModelBootstrap}.
+     * The components themselves are not read yet,
+     * but only once a synthesis needs them, in the configured vertex storage.
+     *
+     * @return the loaded {@link MorphableModel}
+     */
+    public static MorphableModel load() {
+        VertexBuffer average = ModelBootstrap.getAverage();
+        double[] shapeWeights = ModelBootstrap.getShapeWeights();
+        double[] colorWeights = ModelBootstrap.getColorWeights();
+        int rows = average.size() * COORDINATES;
+        int maxComponents = Math.min(shapeWeights.length, colorWeights.length);
+        int components = 0;
+        while (components < maxComponents
+                && Face.exists(String.format("%03d", components + 1))) {
+            components++;
+        }
+
+        DoubleMatrix shapeMean = new DoubleMatrix(rows, 1);
+        DoubleMatrix colorMean = new DoubleMatrix(rows, 1);
+        for (int i = 0; i < average.size(); i++) {
+            int offset = i * COORDINATES;
+            shapeMean.put(offset, average.getCoordinate(offset));
+            shapeMean.put(offset + 1, average.getCoordinate(offset + 1));
+            shapeMean.put(offset + 2, average.getCoordinate(offset + 2));
+            int rgb = average.getColor(i);
+            colorMean.put(offset, PackedColor.red(rgb));
+            colorMean.put(offset + 1, PackedColor.green(rgb));
+            colorMean.put(offset + 2, PackedColor.blue(rgb));
+        }
+
+        ModelFile modelFile = ModelFile.SHARED;
+        Basis shapeBasis = Basis.onDemand(average.size(), components, k -> modelFile != null
+                ? modelFile.getShapeComponent(k) : read(file("shape prefix", k)));
+        Basis colorBasis = Basis.onDemand(average.size(), components, k -> modelFile != null
+                ? modelFile.getColorComponent(k) : read(file("texture prefix", k)));
+        return new MorphableModel(shapeMean, shapeBasis, shapeWeights,
+                colorMean, colorBasis, colorWeights);
+    }
+
+    /**
+     * @param prefix    the property with the prefix of the file name
+     * @param component the index of a component, starting at 0
+     *
+     * @return the name of the CSV file of that component
+     */
+    private static String file(final String prefix, final int component) {
+        return PROPS.getString(prefix) + String.format("%03d", component + 1)
+                + PROPS.getString("filename suffix");
+    }
+
+    /**
+     * Reads a component from a CSV file.
+     *
+     * @param filename the name of the CSV file
+     *
+     * @return the values of the component
+     */
+    private static DoubleBuffer read(final String filename) {
+        return DoubleBuffer.wrap(NumericReader.readDoubles(filename, L));
+    }
+
+    /**
+     * Calculates mean + basis * (weights .* coefficients).
+     * Only the components with a non-zero coefficient are loaded.
+     * Small models on the heap use a single gemv.
+     * Large models, models kept off the heap or in floats,
+     * and all models when {@link #DETERMINISTIC},
+     * are instead combined in ranges of points by {@link VertexRanges},
+     * adding the components of each value in order.
+     *
+     * @param mean         the mean column
+     * @param basis        the basis, one component per column
+     * @param weights      the weight of each component
+     * @param coefficients the coefficient of each component
+     * @param result       the column to store the combination in
+     */
+    private static void combine(final DoubleMatrix mean, final Basis basis,
+                                final double[] weights, final double[] coefficients,
+                                final DoubleMatrix result) {
+        double[] scaled = new double[coefficients.length];
+        for (int k = 0; k < coefficients.length; k++) {
+            scaled[k] = weights[k] * coefficients[k];
+        }
+        basis.load(scaled);
+        int points = mean.rows / COORDINATES;
+        DoubleMatrix matrix = basis.getMatrix();
+        if (matrix != null && !DETERMINISTIC && !VertexRanges.isParallel(points)) {
+            System.arraycopy(mean.data, 0, result.data, 0, mean.rows);
+            SimpleBlas.gemv(1, matrix, new DoubleMatrix(scaled.length, 1, scaled), 1, result);
+            return;
+        }
+        VertexRanges.forEach(points, (from, to) -> {
+            int offset = from * COORDINATES;
+            System.arraycopy(mean.data, offset, result.data, offset, (to - from) * COORDINATES);
+            for (int k = 0; k < scaled.length; k++) {
+                if (scaled[k] != 0) {
+                    basis.addColumn(k, scaled[k], result.data, from, to);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds multiples of some columns of the basis to the given column,
+     * in ranges of points by {@link VertexRanges}.
+     * The columns are loaded first, if they are not already,
+     * and are added to each value in the given order.
+     *
+     * @param basis      the basis, one component per column
+     * @param components the index of each column to add
+     * @param scalars    the multiple of each column to add
+     * @param result     the column to add to
+     */
+    private static void addColumns(final Basis basis, final int[] components,
+                                   final double[] scalars, final DoubleMatrix result) {
+        for (int component : components) {
+            basis.load(component);
+        }
+        VertexRanges.forEach(basis.getRows() / COORDINATES, (from, to) -> {
+            for (int i = 0; i < components.length; i++) {
+                basis.addColumn(components[i], scalars[i], result.data, from, to);
+            }
+        });
+    }
+
+    /**
+     * Creates a {@link Face} from a shape and a color column.
+     *
+     * @param shape the x,y,z of every point
+     * @param color the r,g,b of every point
+     *
+     * @return the created {@link Face}
+     */
+    static Face toFace(final DoubleMatrix shape, final DoubleMatrix color) {
+        VertexBuffer vertexes = VertexBuffer.allocate(shape.rows / COORDINATES);
+        store(shape.data, color.data, 0, vertexes);
+        return new Face(vertexes);
+    }
+
+    /**
+     * Overwrites a {@link Face} with a shape and a color column.
+     *
+     * @param shape  the x,y,z of every point
+     * @param color  the r,g,b of every point
+     * @param target the {@link Face} to overwrite, with as many points
+     */
+    static void toFace(final DoubleMatrix shape, final DoubleMatrix color, final Face target) {
+        store(shape.data, color.data, 0, target.overwrite());
+    }
+
+    /**
+     * Stores a shape and a color column in the given {@link VertexBuffer}.
+     * Colors are truncated and clamped like those read from CSV files.
+     *
+     * @param shape  the x,y,z of every point, possibly among other columns
+     * @param color  the r,g,b of every point, possibly among other columns
+     * @param offset the index of the first value of both columns
+     * @param dest   the {@link VertexBuffer} to store them in
+     */
+    private static void store(final double[] shape, final double[] color, final int offset,
+                              final VertexBuffer dest) {
+        dest.setCoordinates(shape, offset);
+        VertexRanges.forEach(dest.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int index = offset + i * COORDINATES;
+                int r = (int) color[index];
+                int g = (int) color[index + 1];
+                int b = (int) color[index + 2];
+                dest.setColor(i, PackedColor.pack(r, g, b));
+            }
+        });
+    }
+
+    /**
+     * Orders the components with a non-zero coefficient by their contribution,
+     * the absolute value of their coefficient times their weight, largest first.
+     * Components that contribute equally keep their order.
+     *
+     * @param weights      the weight of each component
+     * @param coefficients the coefficient of each component
+     *
+     * @return the index of each component with a non-zero coefficient, by rank
+     */
+    private static int[] rank(final double[] weights, final double[] coefficients) {
+        int nonZero = 0;
+        for (double coefficient : coefficients) {
+            if (coefficient != 0) {
+                nonZero++;
+            }
+        }
+        Integer[] order = new Integer[nonZero];
+        int i = 0;
+        for (int k = 0; k < coefficients.length; k++) {
+            if (coefficients[k] != 0) {
+                order[i++] = k;
+            }
+        }
+        Arrays.sort(order, Comparator.comparingDouble(
+                k -> -Math.abs(coefficients[k] * weights[k])));
+        int[] ranking = new int[nonZero];
+        for (int r = 0; r < nonZero; r++) {
+            ranking[r] = order[r];
+        }
+        return ranking;
+    }
+
+    /**
+     * Calculates the fraction of the variance of a synthesis
+     * captured by its components up to the given rank.
+     * The variance of a component is the square of its contribution.
+     *
+     * @param weights      the weight of each component
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components kept, by rank
+     *
+     * @return the captured fraction, from 0 to 1
+     */
+    private static double energy(final double[] weights, final double[] coefficients,
+                                 final int rank) {
+        int[] ranking = rank(weights, coefficients);
+        double kept = 0;
+        double total = 0;
+        for (int r = 0; r < ranking.length; r++) {
+            double contribution = coefficients[ranking[r]] * weights[ranking[r]];
+            total += contribution * contribution;
+            if (r < rank) {
+                kept += contribution * contribution;
+            }
+        }
+        return total == 0 ? 1 : kept / total;
+    }
+
+    /**
+     * Adds the components with a non-zero coefficient to the given column.
+     * If there are more of them than the given rank,
+     * only that many are added, those that contribute the most,
+     * so every component of a synthesis from a few components is kept.
+     *
+     * @param basis        the basis, one component per column
+     * @param weights      the weight of each component
+     * @param coefficients the coefficient of each component
+     * @param rank         the largest number of components to add
+     * @param result       the column to add to
+     *
+     * @return whether any component with a non-zero coefficient was left out
+     */
+    private static boolean addRanked(final Basis basis, final double[] weights,
+                                     final double[] coefficients, final int rank,
+                                     final DoubleMatrix result) {
+        int[] ranking = rank(weights, coefficients);
+        int[] components = Arrays.copyOf(ranking, Math.min(rank, ranking.length));
+        double[] scalars = new double[components.length];
+        for (int i = 0; i < components.length; i++) {
+            scalars[i] = coefficients[components[i]] * weights[components[i]];
+        }
+        addColumns(basis, components, scalars, result);
+        return components.length < ranking.length;
+    }
+
+    /**
+     * Combines a mean and a basis for many coefficient vectors at once,
+     * with a single gemm: mean + basis * (weights .* coefficients) for each column.
+     * The components must already be loaded into the matrix of the basis.
+     *
+     * @param mean         the mean column
+     * @param basis        the basis, one component per column
+     * @param weights      the weight of each component
+     * @param coefficients the coefficients, one vector per column
+     * @param from         the first column of the coefficients to combine
+     * @param result       the matrix to store the combinations in, one per column
+     */
+    private static void combineAll(final DoubleMatrix mean, final Basis basis,
+                                   final double[] weights, final DoubleMatrix coefficients,
+                                   final int from, final DoubleMatrix result) {
+        DoubleMatrix scaled = new DoubleMatrix(coefficients.rows, result.columns);
+        for (int m = 0; m < result.columns; m++) {
+            for (int k = 0; k < coefficients.rows; k++) {
+                scaled.put(k, m, weights[k] * coefficients.get(k, from + m));
+            }
+            System.arraycopy(mean.data, 0, result.data, m * mean.rows, mean.rows);
+        }
+        SimpleBlas.gemm(1, basis.getMatrix(), scaled, 1, result);
+    }
+
+    /** The x,y,z of every point of the average face. */
+    private final DoubleMatrix shapeMean;
+
+    /** The x,y,z of every point of every component, one component per column. */
+    private final Basis shapeBasis;
+
+    /** The shape weight of each component. */
+    private final double[] shapeWeights;
+
+    /** The r,g,b of every point of the average face. */
+    private final DoubleMatrix colorMean;
+
+    /** The r,g,b of every point of every component, one component per column. */
+    private final Basis colorBasis;
+
+    /** The color weight of each component. */
+    private final double[] colorWeights;
+
+    /**
+     * Creates a {@link MorphableModel} from the given means and bases.
+     * They are used directly and are not copied.
+     *
+     * @param shapeMean    the x,y,z of every point of the average face
+     * @param shapeBasis   the x,y,z of every point of every component
+     * @param shapeWeights the shape weight of each component
+     * @param colorMean    the r,g,b of every point of the average face
+     * @param colorBasis   the r,g,b of every point of every component
+     * @param colorWeights the color weight of each component
+     */
+    public MorphableModel(final DoubleMatrix shapeMean, final DoubleMatrix shapeBasis,
+                          final double[] shapeWeights,
+                          final DoubleMatrix colorMean, final DoubleMatrix colorBasis,
+                          final double[] colorWeights) {
+        this(shapeMean, Basis.of(shapeBasis), shapeWeights,
+                colorMean, Basis.of(colorBasis), colorWeights);
+    }
+
+    /**
+     * Creates a {@link MorphableModel} from the given means and bases.
+     *
+     * @param shapeMean    the x,y,z of every point of the average face
+     * @param shapeBasis   the x,y,z of every point of every component
+     * @param shapeWeights the shape weight of each component
+     * @param colorMean    the r,g,b of every point of the average face
+     * @param colorBasis   the r,g,b of every point of every component
+     * @param colorWeights the color weight of each component
+     */
+    private MorphableModel(final DoubleMatrix shapeMean, final Basis shapeBasis,
+                           final double[] shapeWeights,
+                           final DoubleMatrix colorMean, final Basis colorBasis,
+                           final double[] colorWeights) {
+        this.shapeMean = shapeMean;
+        this.shapeBasis = shapeBasis;
+        this.shapeWeights = shapeWeights;
+        this.colorMean = colorMean;
+        this.colorBasis = colorBasis;
+        this.colorWeights = colorWeights;
+    }
+
+    /** @return the number of components */
+    public int getComponentCount() {
+        return shapeBasis.getColumnCount();
+    }
+
+    /** @return the number of points of a synthesised {@link Face} */
+    public int getPointCount() {
+        return shapeMean.rows / COORDINATES;
+    }
+
+    /**
+     * Synthesises a {@link Face} from raw coefficients.
+     * Its shape is the shape mean plus the shape basis
+     * times each coefficient multiplied by the shape weight of its component,
+     * and its color is calculated likewise.
+     * Loading the component with index i as a {@link Face}
+     * is the same as synthesising it from a 1 at i - 1 and 0 elsewhere.
+     *
+     * @param coefficients the coefficient of each component
+     *
+     * @return the synthesised {@link Face}
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    public Face synthesise(final double[] coefficients) {
+        checkCoefficients(coefficients);
+        DoubleMatrix shape = new DoubleMatrix(shapeMean.rows, 1);
+        DoubleMatrix color = new DoubleMatrix(colorMean.rows, 1);
+        combine(coefficients, shape, color);
+        return toFace(shape, color);
+    }
+
+    /**
+     * Synthesises a {@link Face} from at most the given number of components,
+     * for a preview that costs a fraction of the full synthesis.
+     * Only components with a non-zero coefficient are used, and only they are read.
+     * If there are more of them than the rank, those that contribute the least,
+     * by the absolute value of their coefficient times their weight, are left out.
+     * Shape components are ranked by their shape weight,
+     * and color components by their color weight.
+     * Coefficients with at most rank non-zeros therefore give the same {@link Face}
+     * as {@link #synthesise(double[])}, up to rounding,
+     * and a rank of at least {@link #getComponentCount()} synthesises exactly like it.
+     *
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components to keep
+     *
+     * @return the synthesised {@link Face}
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component,
+     *                                  or the rank is negative
+     */
+    public Face synthesise(final double[] coefficients, final int rank) {
+        checkCoefficients(coefficients);
+        checkRank(rank);
+        DoubleMatrix shape = new DoubleMatrix(shapeMean.rows, 1);
+        DoubleMatrix color = new DoubleMatrix(colorMean.rows, 1);
+        combine(coefficients, rank, shape, color);
+        return toFace(shape, color);
+    }
+
+    /**
+     * Synthesises from raw coefficients like {@link #synthesise(double[])},
+     * but overwrites the given target {@link Face} rather than creating one.
+     *
+     * @param coefficients the coefficient of each component
+     * @param target       the {@link Face} to overwrite,
+     *                     with {@link #getPointCount()} points
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component,
+     *                                  or the target has the wrong size
+     * @see #synthesiseInto(double[], int, Face)
+     */
+    public void synthesiseInto(final double[] coefficients, final Face target) {
+        synthesiseInto(coefficients, getComponentCount(), target);
+    }
+
+    /**
+     * Synthesises from the components up to the given rank
+     * like {@link #synthesise(double[], int)},
+     * but overwrites the given target {@link Face} rather than creating one.
+     * The shape and color are calculated in working arrays kept by the target,
+     * so synthesising into the same target again allocates nothing per vertex.
+     *
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components to keep
+     * @param target       the {@link Face} to overwrite,
+     *                     with {@link #getPointCount()} points
+     *
+     * @return whether any component with a non-zero coefficient was left out,
+     * false if the target is the same as a full synthesis, up to rounding
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component,
+     *                                  the rank is negative,
+     *                                  or the target has the wrong size
+     */
+    public boolean synthesiseInto(final double[] coefficients, final int rank,
+                                  final Face target) {
+        checkCoefficients(coefficients);
+        checkRank(rank);
+        if (target.size() != getPointCount()) {
+            throw new IllegalArgumentException("Expected a target of "
+                    + getPointCount() + " points, got " + target.size());
+        }
+        DoubleMatrix shape = new DoubleMatrix(shapeMean.rows, 1, target.getScratchCoordinates());
+        DoubleMatrix color = new DoubleMatrix(colorMean.rows, 1, target.getScratchChannels());
+        boolean truncated = combine(coefficients, rank, shape, color);
+        toFace(shape, color, target);
+        return truncated;
+    }
+
+    /**
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components kept, as in {@link #synthesise(double[], int)}
+     *
+     * @return the fraction of the shape variance of the synthesis that those components
+     * capture, from 0 to 1
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    public double getShapeEnergy(final double[] coefficients, final int rank) {
+        checkCoefficients(coefficients);
+        return energy(shapeWeights, coefficients, rank);
+    }
+
+    /**
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components kept, as in {@link #synthesise(double[], int)}
+     *
+     * @return the fraction of the color variance of the synthesis that those components
+     * capture, from 0 to 1
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    public double getColorEnergy(final double[] coefficients, final int rank) {
+        checkCoefficients(coefficients);
+        return energy(colorWeights, coefficients, rank);
+    }
+
+    /**
+     * Synthesises a {@link Face} from a sparse vector of raw coefficients,
+     * given as the indexes of the non-zero components and their coefficients.
+     * A component listed more than once gets the sum of its coefficients.
+     * If few components are listed, only their basis columns are read,
+     * so the time taken grows with their number rather than with the model.
+     * Otherwise, the coefficients are scattered into a dense vector
+     * and synthesised like {@link #synthesise(double[])}.
+     *
+     * @param components   the index of each non-zero component, starting at 0
+     * @param coefficients the coefficient of each of those components
+     *
+     * @return the synthesised {@link Face}
+     *
+     * @throws IllegalArgumentException if the arrays differ in length,
+     *                                  or a component does not exist
+     */
+    public Face synthesise(final int[] components, final double[] coefficients) {
+        if (components.length != coefficients.length) {
+            throw new IllegalArgumentException(components.length + " components but "
+                    + coefficients.length + " coefficients");
+        }
+        for (int component : components) {
+            if (component < 0 || component >= getComponentCount()) {
+                throw new IllegalArgumentException("There is no component " + component);
+            }
+        }
+        if (components.length >= SPARSE_DENSITY * getComponentCount()) {
+            double[] dense = new double[getComponentCount()];
+            for (int i = 0; i < components.length; i++) {
+                dense[components[i]] += coefficients[i];
+            }
+            return synthesise(dense);
+        }
+
+        DoubleMatrix shape = new DoubleMatrix(shapeMean.rows, 1);
+        DoubleMatrix color = new DoubleMatrix(colorMean.rows, 1);
+        System.arraycopy(shapeMean.data, 0, shape.data, 0, shapeMean.rows);
+        System.arraycopy(colorMean.data, 0, color.data, 0, colorMean.rows);
+        double[] shapeScalars = new double[components.length];
+        double[] colorScalars = new double[components.length];
+        for (int i = 0; i < components.length; i++) {
+            shapeScalars[i] = coefficients[i] * shapeWeights[components[i]];
+            colorScalars[i] = coefficients[i] * colorWeights[components[i]];
+        }
+        addColumns(shapeBasis, components, shapeScalars, shape);
+        addColumns(colorBasis, components, colorScalars, color);
+        return toFace(shape, color);
+    }
+
+    /**
+     * Synthesises many {@link Face}s at once, one per column of the given matrix,
+     * into newly allocated {@link Face}s.
+     *
+     * @param coefficients the coefficients, with one row per component
+     *                     and one column per {@link Face}
+     *
+     * @return the synthesised {@link Face}s, in the order of the columns
+     *
+     * @throws IllegalArgumentException if there is not one row per component
+     * @see #synthesise(DoubleMatrix, VertexBuffer[])
+     */
+    public Face[] synthesise(final DoubleMatrix coefficients) {
+        VertexBuffer[] outputs = new VertexBuffer[coefficients.columns];
+        for (int m = 0; m < outputs.length; m++) {
+            outputs[m] = VertexBuffer.allocate(getPointCount());
+        }
+        synthesise(coefficients, outputs);
+        Face[] faces = new Face[outputs.length];
+        for (int m = 0; m < outputs.length; m++) {
+            faces[m] = new Face(outputs[m]);
+        }
+        return faces;
+    }
+
+    /**
+     * Synthesises many {@link Face}s at once, one per column of the given matrix,
+     * into the given {@link VertexBuffer}s.
+     * Up to {@link #BATCH_COLUMNS} columns are combined by a single gemm,
+     * which reads the basis once for all of them,
+     * rather than once per {@link Face}.
+     * If {@link #DETERMINISTIC}, or the basis is kept off the heap or in floats,
+     * each column is instead synthesised like {@link #synthesise(double[])},
+     * and gives the same result.
+     *
+     * @param coefficients the coefficients, with one row per component
+     *                     and one column per {@link Face}
+     * @param outputs      the {@link VertexBuffer} to store each {@link Face} in,
+     *                     each with {@link #getPointCount()} vertexes
+     *
+     * @throws IllegalArgumentException if there is not one row per component,
+     *                                  one output per column,
+     *                                  or an output has the wrong size
+     */
+    public void synthesise(final DoubleMatrix coefficients, final VertexBuffer[] outputs) {
+        if (coefficients.rows != getComponentCount()) {
+            throw new IllegalArgumentException("Expected " + getComponentCount()
+                    + " rows of coefficients, got " + coefficients.rows);
+        }
+        if (outputs.length != coefficients.columns) {
+            throw new IllegalArgumentException(coefficients.columns
+                    + " columns of coefficients but " + outputs.length + " outputs");
+        }
+        for (VertexBuffer output : outputs) {
+            if (output.size() != getPointCount()) {
+                throw new IllegalArgumentException("Expected outputs of "
+                        + getPointCount() + " vertexes, got " + output.size());
+            }
+        }
+
+        int rows = shapeMean.rows;
+        if (DETERMINISTIC || shapeBasis.getMatrix() == null) {
+            double[] column = new double[coefficients.rows];
+            DoubleMatrix shape = new DoubleMatrix(rows, 1);
+            DoubleMatrix color = new DoubleMatrix(rows, 1);
+            for (int m = 0; m < outputs.length; m++) {
+                System.arraycopy(coefficients.data, m * coefficients.rows,
+                        column, 0, coefficients.rows);
+                combine(column, shape, color);
+                store(shape.data, color.data, 0, outputs[m]);
+            }
+            return;
+        }
+        shapeBasis.load(coefficients);
+        colorBasis.load(coefficients);
+        for (int from = 0; from < outputs.length; from += BATCH_COLUMNS) {
+            int columns = Math.min(BATCH_COLUMNS, outputs.length - from);
+            DoubleMatrix shapes = new DoubleMatrix(rows, columns);
+            DoubleMatrix colors = new DoubleMatrix(rows, columns);
+            combineAll(shapeMean, shapeBasis, shapeWeights, coefficients, from, shapes);
+            combineAll(colorMean, colorBasis, colorWeights, coefficients, from, colors);
+            for (int m = 0; m < columns; m++) {
+                store(shapes.data, colors.data, m * rows, outputs[from + m]);
+            }
+        }
+    }
+
+    /**
+     * Starts a {@link Synthesis} from the given coefficients,
+     * which can then be updated one coefficient at a time.
+     *
+     * @param coefficients the initial coefficient of each component
+     *
+     * @return the started {@link Synthesis}
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    public Synthesis startSynthesis(final double[] coefficients) {
+        checkCoefficients(coefficients);
+        return new Synthesis(this, coefficients);
+    }
+
+    /**
+     * @param rank the rank to check
+     *
+     * @throws IllegalArgumentException if the rank is negative
+     */
+    private void checkRank(final int rank) {
+        if (rank < 0) {
+            throw new IllegalArgumentException("The rank cannot be negative: " + rank);
+        }
+    }
+
+    /**
+     * @param coefficients the coefficients to check
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    void checkCoefficients(final double[] coefficients) {
+        int components = getComponentCount();
+        if (coefficients.length != components) {
+            throw new IllegalArgumentException("Expected " + components
+                    + " coefficients, got " + coefficients.length);
+        }
+    }
+
+    /**
+     * Calculates the shape and color of the given coefficients in full.
+     *
+     * @param coefficients the coefficient of each component
+     * @param shape        the column to store the x,y,z of every point in
+     * @param color        the column to store the r,g,b of every point in
+     */
+    void combine(final double[] coefficients, final DoubleMatrix shape,
+                 final DoubleMatrix color) {
+        combine(shapeMean, shapeBasis, shapeWeights, coefficients, shape);
+        combine(colorMean, colorBasis, colorWeights, coefficients, color);
+    }
+
+    /**
+     * Calculates the shape and color of the given coefficients
+     * from at most the given number of components, those that contribute the most.
+     * A rank of at least {@link #getComponentCount()}
+     * calculates them in full, like {@link #combine(double[], DoubleMatrix, DoubleMatrix)}.
+     *
+     * @param coefficients the coefficient of each component
+     * @param rank         the number of components to keep
+     * @param shape        the column to store the x,y,z of every point in
+     * @param color        the column to store the r,g,b of every point in
+     *
+     * @return whether any component with a non-zero coefficient was left out
+     */
+    private boolean combine(final double[] coefficients, final int rank,
+                            final DoubleMatrix shape, final DoubleMatrix color) {
+        if (rank >= getComponentCount()) {
+            combine(coefficients, shape, color);
+            return false;
+        }
+        System.arraycopy(shapeMean.data, 0, shape.data, 0, shapeMean.rows);
+        System.arraycopy(colorMean.data, 0, color.data, 0, colorMean.rows);
+        // Shape and color rank the same non-zero coefficients, so leave out as many
+        addRanked(shapeBasis, shapeWeights, coefficients, rank, shape);
+        return addRanked(colorBasis, colorWeights, coefficients, rank, color);
+    }
+
+    /**
+     * Changes the shape and color by a change in one coefficient.
+     * Only the basis column of that component is read.
+     *
+     * @param component the index of the component
+     * @param delta     the change in its coefficient
+     * @param shape     the column with the x,y,z of every point
+     * @param color     the column with the r,g,b of every point
+     */
+    void addComponent(final int component, final double delta,
+                      final DoubleMatrix shape, final DoubleMatrix color) {
+        int[] components = {component};
+        addColumns(shapeBasis, components, new double[]{delta * shapeWeights[component]}, shape);
+        addColumns(colorBasis, components, new double[]{delta * colorWeights[component]}, color);
+    }
+
+}
@@ -0,0 +1,115 @@
+package model;
+
+import java.awt.Color;
+
+/**
+ * Provides packing of colors into single integers.
+ * A packed color is an opaque ARGB value, as in {@link Color#getRGB()}.
+ * {@link Color} objects are only created by {@link #toColor(int)},
+ * which reuses previously created instances.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+public final class PackedColor {
+
+    /** The number of {@link Color}s kept by {@link #toColor(int)}. */
+    private static final int CACHE_SIZE = 1 << 16;
+
+    /** The previously created {@link Color}s, indexed by a hash of their value. */
+    private static final Color[] CACHE = new Color[CACHE_SIZE];
+
+    /** The alpha of all packed colors. */
+    private static final int OPAQUE = 0xFF000000;
+
+    /** The mask of a single color channel. */
+    private static final int CHANNEL = 0xFF;
+
+    /**
+     * Encloses the given value in the color range 0 to 255.
+     * If the given value is less than 0, this method returns 0.
+     * Else, if it is greater than 255, it returns 255.
+     * Otherwise, it returns the given value, because it is in color range.
+     *
+     * @param value the value to limit
+     *
+     * @return a number between 0 and 255 (inclusive)
+     */
+    public static int limit(final int value) {
+        if (value < 0) {
+            return 0;
+        } else if (value > 255) {
+            return 255;
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Packs the given channels into a single opaque color.
+     * Each channel is first limited to the color range.
+     *
+     * @param red   the red intensity
+     * @param green the green intensity
+     * @param blue  the blue intensity
+     *
+     * @return the packed color
+     *
+     * @see #limit(int)
+     */
+    public static int pack(final int red, final int green, final int blue) {
+        return OPAQUE | limit(red) << 16 | limit(green) << 8 | limit(blue);
+    }
+
+    /**
+     * @param rgb a packed color
+     *
+     * @return the red intensity of that color
+     */
+    public static int red(final int rgb) {
+        return rgb >> 16 & CHANNEL;
+    }
+
+    /**
+     * @param rgb a packed color
+     *
+     * @return the green intensity of that color
+     */
+    public static int green(final int rgb) {
+        return rgb >> 8 & CHANNEL;
+    }
+
+    /**
+     * @param rgb a packed color
+     *
+     * @return the blue intensity of that color
+     */
+    public static int blue(final int rgb) {
+        return rgb & CHANNEL;
+    }
+
+    /**
+     * Gets a {@link Color} with the given packed value.
+     * The {@link Color} is taken from a fixed-size cache when possible.
+     * Otherwise, it is created and replaces the cached entry with the same hash.
+     *
+     * @param rgb a packed color
+     *
+     * @return the {@link Color} with that value
+     */
+    public static Color toColor(final int rgb) {
+        int slot = (rgb ^ rgb >>> 16) * 0x9E3779B1 >>> 16 & (CACHE_SIZE - 1);
+        Color cached = CACHE[slot];
+        if (cached != null && cached.getRGB() == rgb) {
+            return cached;
+        }
+        Color c = new Color(rgb);
+        CACHE[slot] = c;
+        return c;
+    }
+
+    /** Hides the constructor for this utility class. */
+    private PackedColor() {
+    }
+
+}
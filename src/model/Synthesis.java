@@ -0,0 +1,137 @@
+package model;
+
+import org.jblas.DoubleMatrix;
+
+import static main.Main.PROPS;
+
+/**
+ * Represents a {@link Face} being synthesised from a {@link MorphableModel},
+ * which remembers its coefficients.
+ * Changing one coefficient by some delta adds delta times that component
+ * to the remembered shape and color, which only reads one basis column,
+ * rather than combining every component again.
+ * After {@link #REFRESH_INTERVAL} such changes, everything is recalculated,
+ * so that rounding errors do not accumulate.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class Synthesis {
+
+    /** The number of changed coefficients after which everything is recalculated. */
+    private static final int REFRESH_INTERVAL = PROPS.getInt("synthesis refresh interval");
+
+    /** The {@link MorphableModel} the {@link Face} is synthesised from. */
+    private final MorphableModel model;
+
+    /** The current coefficient of each component. */
+    private final double[] coefficients;
+
+    /** The x,y,z of every point for the current coefficients. */
+    private final DoubleMatrix shape;
+
+    /** The r,g,b of every point for the current coefficients. */
+    private final DoubleMatrix color;
+
+    /** The number of coefficients changed since everything was last calculated. */
+    private int changes = 0;
+
+    /**
+     * Creates a {@link Synthesis} and calculates its shape and color.
+     * The coefficients are copied.
+     *
+     * @param model        the {@link MorphableModel} to synthesise from
+     * @param coefficients the initial coefficient of each component
+     */
+    Synthesis(final MorphableModel model, final double[] coefficients) {
+        this.model = model;
+        this.coefficients = coefficients.clone();
+        int rows = model.getPointCount() * VertexBuffer.COORDINATES;
+        shape = new DoubleMatrix(rows, 1);
+        color = new DoubleMatrix(rows, 1);
+        refresh();
+    }
+
+    /** @return a copy of the current coefficient of each component */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * @param component the index of a component
+     *
+     * @return the current coefficient of that component
+     */
+    public double getCoefficient(final int component) {
+        return coefficients[component];
+    }
+
+    /**
+     * Changes the coefficient of one component.
+     * Nothing is calculated if the coefficient does not change.
+     *
+     * @param component the index of the component
+     * @param value     its new coefficient
+     */
+    public void setCoefficient(final int component, final double value) {
+        double delta = value - coefficients[component];
+        if (delta == 0) {
+            return;
+        }
+        coefficients[component] = value;
+        if (++changes >= REFRESH_INTERVAL) {
+            refresh();
+        } else {
+            model.addComponent(component, delta, shape, color);
+        }
+    }
+
+    /**
+     * Changes the coefficients to the given ones,
+     * only calculating the components whose coefficient changed.
+     *
+     * @param values the new coefficient of each component
+     *
+     * @throws IllegalArgumentException if there is not one coefficient per component
+     */
+    public void setCoefficients(final double[] values) {
+        model.checkCoefficients(values);
+        for (int k = 0; k < values.length; k++) {
+            setCoefficient(k, values[k]);
+        }
+    }
+
+    /** Recalculates the shape and color from all coefficients. */
+    public void refresh() {
+        model.combine(coefficients, shape, color);
+        changes = 0;
+    }
+
+    /**
+     * Creates a {@link Face} with the current shape and color.
+     * Later changes to the coefficients do not affect it.
+     *
+     * @return the synthesised {@link Face}, which the caller must close
+     */
+    public Face toFace() {
+        return MorphableModel.toFace(shape, color);
+    }
+
+    /**
+     * Overwrites the given {@link Face} with the current shape and color,
+     * rather than creating a {@link Face}.
+     *
+     * @param target the {@link Face} to overwrite,
+     *               with as many points as the {@link MorphableModel}
+     *
+     * @throws IllegalArgumentException if the target has the wrong size
+     */
+    public void toFace(final Face target) {
+        if (target.size() != model.getPointCount()) {
+            throw new IllegalArgumentException("Expected a target of "
+                    + model.getPointCount() + " points, got " + target.size());
+        }
+        MorphableModel.toFace(shape, color, target);
+    }
+
+}
@@ -0,0 +1,318 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Keeps recently synthesised {@link Face}s, keyed by their coefficients,
+ * so that returning to the same weights does not synthesise again.
+ * Coefficients are rounded to a multiple of a resolution,
+ * and {@link Face}s are synthesised from the rounded coefficients,
+ * so all coefficients that round alike share one {@link Face}.
+ * Single steps are then moved between the coefficients rounded the furthest,
+ * so that the rounded coefficients sum to the rounded sum of the given ones,
+ * and interpolation weights that sum to 1 still do.
+ * The key only holds the components with a non-zero rounded coefficient,
+ * so hashing and comparing keys does not depend on the size of the model.
+ * The kept {@link Face}s are limited by their total size in bytes,
+ * and the least recently used ones are evicted first.
+ * {@link Face}s are synthesised without holding the lock,
+ * so different coefficients are synthesised concurrently,
+ * and concurrent requests for coefficients that are being synthesised
+ * wait for that synthesis, rather than synthesising them again.
+ * Callers always get their own copy, which they are responsible for closing.
+ *
+ * @author 150009974
+ * @version 1.2
+ */
+public final class SynthesisCache {
+
+    /**
+     * Calculates the number of bytes used by the points of the given {@link Face}.
+     *
+     * @param face the {@link Face} to measure
+     *
+     * @return its size in bytes
+     */
+    private static long bytesOf(final Face face) {
+        return (long) face.size() * DirectVertexBuffer.bytesPerVertex(face.isSinglePrecision());
+    }
+
+    /**
+     * Waits for a {@link Face} that another thread is synthesising.
+     *
+     * @param synthesis the future of that synthesis
+     *
+     * @return the kept {@link Face}
+     */
+    private static Face join(final CompletableFuture<Face> synthesis) {
+        try {
+            return synthesis.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** The largest total size of the kept {@link Face}s, in bytes. */
+    private final long budget;
+
+    /** The step that coefficients are rounded to. */
+    private final double resolution;
+
+    /** The kept {@link Face}s by key, from least to most recently used. */
+    private final LinkedHashMap<Key, Face> faces = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The {@link Face}s being synthesised, by key. */
+    private final HashMap<Key, CompletableFuture<Face>> synthesising = new HashMap<>();
+
+    /** The total size of the kept {@link Face}s, in bytes. */
+    private long usedBytes = 0;
+
+    /** The number of requests answered from the kept {@link Face}s. */
+    private long hits = 0;
+
+    /** The number of requests that had to synthesise a {@link Face}. */
+    private long misses = 0;
+
+    /**
+     * Creates an empty {@link SynthesisCache}.
+     *
+     * @param budget     the largest total size of the kept {@link Face}s, in bytes
+     * @param resolution the step that coefficients are rounded to
+     *
+     * @throws IllegalArgumentException if the budget is negative,
+     *                                  or the resolution is not positive and finite
+     */
+    public SynthesisCache(final long budget, final double resolution) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("The budget cannot be negative: " + budget);
+        }
+        if (!(resolution > 0) || Double.isInfinite(resolution)) {
+            throw new IllegalArgumentException(
+                    "The resolution must be positive and finite: " + resolution);
+        }
+        this.budget = budget;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Gets a copy of the {@link Face} synthesised from the given coefficients,
+     * synthesising it with the given function if it is not kept.
+     * The function is given the rounded coefficients,
+     * and may be called by several threads at once, for different coefficients.
+     * If another thread is already synthesising the same rounded coefficients,
+     * that synthesis is waited for.
+     *
+     * @param coefficients the coefficient of each component
+     * @param synthesiser  synthesises a {@link Face} from coefficients
+     *
+     * @return the synthesised {@link Face}, which the caller must close
+     */
+    public Face get(final double[] coefficients,
+                    final Function<double[], Face> synthesiser) {
+        double[] rounded = new double[coefficients.length];
+        Key key = new Key(coefficients, rounded);
+        Face kept;
+        CompletableFuture<Face> synthesis;
+        boolean owner = false;
+        synchronized (this) {
+            kept = faces.get(key);
+            synthesis = synthesising.get(key);
+            if (kept != null || synthesis != null) {
+                hits++;
+            } else {
+                misses++;
+                synthesis = new CompletableFuture<>();
+                synthesising.put(key, synthesis);
+                owner = true;
+            }
+        }
+        if (owner) {
+            return synthesise(key, rounded, synthesiser, synthesis);
+        }
+        if (kept == null) {
+            kept = join(synthesis);
+        }
+        return kept.copy(kept.isSinglePrecision());
+    }
+
+    /**
+     * Synthesises a {@link Face}, keeps a copy of it,
+     * and passes that copy to any waiting requests.
+     * If the synthesis throws anything, the waiting requests throw it too,
+     * and a later request synthesises the coefficients again.
+     *
+     * @param key         the key of the {@link Face}
+     * @param rounded     the rounded coefficients to synthesise
+     * @param synthesiser synthesises a {@link Face} from coefficients
+     * @param synthesis   the future the waiting requests wait for
+     *
+     * @return the synthesised {@link Face}
+     */
+    private Face synthesise(final Key key, final double[] rounded,
+                            final Function<double[], Face> synthesiser,
+                            final CompletableFuture<Face> synthesis) {
+        Face synthesised;
+        Face kept;
+        try {
+            synthesised = synthesiser.apply(rounded);
+            kept = synthesised.copyOnHeap();
+        } catch (Throwable e) {
+            // Errors too, such as a missing native BLAS, or waiting requests never return
+            synchronized (this) {
+                synthesising.remove(key);
+            }
+            synthesis.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            synthesising.remove(key);
+            keep(key, kept);
+        }
+        synthesis.complete(kept);
+        return synthesised;
+    }
+
+    /**
+     * Keeps the given {@link Face},
+     * then evicts the least recently used ones until they fit in the {@link #budget}.
+     * A {@link Face} larger than the whole budget is not kept.
+     * Must be called while holding the lock on this {@link SynthesisCache}.
+     *
+     * @param key  the key of the {@link Face}
+     * @param face the {@link Face} to keep
+     */
+    private void keep(final Key key, final Face face) {
+        long bytes = bytesOf(face);
+        if (bytes > budget) {
+            return;
+        }
+        faces.put(key, face);
+        usedBytes += bytes;
+        Iterator<Map.Entry<Key, Face>> eldest = faces.entrySet().iterator();
+        while (usedBytes > budget) {
+            // Heap faces need no closing, and may still be copied by another thread
+            usedBytes -= bytesOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Forgets all kept {@link Face}s.
+     * {@link Face}s being synthesised are kept once synthesised.
+     */
+    public synchronized void clear() {
+        faces.clear();
+        usedBytes = 0;
+    }
+
+    /** @return the total size of the kept {@link Face}s, in bytes */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /** @return the number of requests answered without synthesising a {@link Face} */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** @return the number of requests that synthesised a {@link Face} */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** The rounded non-zero coefficients of a {@link Face}, by component. */
+    private final class Key {
+
+        /** The index of each component with a non-zero rounded coefficient. */
+        private final int[] components;
+
+        /** The rounded coefficient of each of those components, in steps. */
+        private final long[] steps;
+
+        /**
+         * Rounds the given coefficients and keeps the non-zero ones.
+         * The rounded coefficients sum to the rounded sum of the given ones.
+         *
+         * @param coefficients the coefficient of each component
+         * @param rounded      the array to store the rounded coefficients in
+         */
+        Key(final double[] coefficients, final double[] rounded) {
+            long[] all = new long[coefficients.length];
+            double[] residuals = new double[coefficients.length];
+            long sum = 0;
+            double exact = 0;
+            for (int k = 0; k < coefficients.length; k++) {
+                double scaled = coefficients[k] / resolution;
+                all[k] = Math.round(scaled);
+                residuals[k] = scaled - all[k];
+                sum += all[k];
+                exact += scaled;
+            }
+            // Rounding each one may change the sum, so move single steps
+            // from or to the coefficients that were rounded the furthest
+            for (long excess = sum - Math.round(exact); excess != 0; ) {
+                long direction = Long.signum(excess);
+                int furthest = -1;
+                double furthestResidual = 0;
+                for (int k = 0; k < coefficients.length; k++) {
+                    if (-direction * residuals[k] > -direction * furthestResidual) {
+                        furthest = k;
+                        furthestResidual = residuals[k];
+                    }
+                }
+                if (furthest < 0) {
+                    break;
+                }
+                all[furthest] -= direction;
+                residuals[furthest] += direction;
+                excess -= direction;
+            }
+            int nonZero = 0;
+            for (int k = 0; k < coefficients.length; k++) {
+                rounded[k] = all[k] * resolution;
+                if (all[k] != 0) {
+                    nonZero++;
+                }
+            }
+            components = new int[nonZero];
+            steps = new long[nonZero];
+            int i = 0;
+            for (int k = 0; k < coefficients.length; k++) {
+                if (all[k] != 0) {
+                    components[i] = k;
+                    steps[i] = all[k];
+                    i++;
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return Arrays.equals(components, that.components)
+                    && Arrays.equals(steps, that.steps);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(components) + Arrays.hashCode(steps);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides off-heap memory for {@link VertexBuffer}s.
+ * Memory is allocated in blocks outside the Java heap,
+ * so the garbage collector never scans the vertex data.
+ * When a {@link VertexBuffer} is closed, its block is kept
+ * and handed out again to the next {@link VertexBuffer} of the same size.
+ * As all {@link Face}s have the same number of vertexes,
+ * the reserved memory is bounded by the number of {@link Face}s open at once.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class VertexArena implements AutoCloseable {
+
+    /** The {@link VertexArena} used by {@link VertexBuffer#allocate(int)}. */
+    public static final VertexArena SHARED = new VertexArena();
+
+    /** The released blocks, by their size in bytes. */
+    private final HashMap<Integer, ArrayDeque<ByteBuffer>> released = new HashMap<>();
+
+    /** The total size of all blocks allocated by this {@link VertexArena}. */
+    private long reservedBytes = 0;
+
+    /** The total size of all blocks currently in use. */
+    private long usedBytes = 0;
+
+    /**
+     * Allocates an off-heap {@link VertexBuffer} for the given number of vertexes.
+     * A released block of the right size is reused, if there is one.
+     * All coordinates and colors are initially zero.
+     *
+     * @param vertexes        the number of vertexes
+     * @param singlePrecision whether to store the coordinates as floats
+     *
+     * @return the allocated {@link VertexBuffer}
+     */
+    public synchronized VertexBuffer allocate(final int vertexes,
+                                              final boolean singlePrecision) {
+        int bytes = vertexes * DirectVertexBuffer.bytesPerVertex(singlePrecision);
+        ArrayDeque<ByteBuffer> blocks = released.get(bytes);
+        ByteBuffer block;
+        if (blocks == null || blocks.isEmpty()) {
+            block = ByteBuffer.allocateDirect(bytes);
+            reservedBytes += bytes;
+        } else {
+            block = blocks.pop();
+            for (int i = 0; i < bytes; i += Integer.BYTES) {
+                block.putInt(i, 0);
+            }
+        }
+        usedBytes += bytes;
+        return new DirectVertexBuffer(this, block, vertexes, singlePrecision);
+    }
+
+    /**
+     * Takes back the given block, so that it can be reused.
+     *
+     * @param block the block of a closed {@link VertexBuffer}
+     */
+    synchronized void release(final ByteBuffer block) {
+        int bytes = block.capacity();
+        usedBytes -= bytes;
+        released.computeIfAbsent(bytes, b -> new ArrayDeque<>()).push(block);
+    }
+
+    /** @return the number of off-heap bytes held by this {@link VertexArena} */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /** @return the number of off-heap bytes used by open {@link VertexBuffer}s */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Forgets all released blocks,
+     * so that their memory can be returned to the system.
+     * Open {@link VertexBuffer}s are not affected.
+     */
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<Integer, ArrayDeque<ByteBuffer>> entry : released.entrySet()) {
+            reservedBytes -= (long) entry.getKey() * entry.getValue().size();
+        }
+        released.clear();
+    }
+
+}
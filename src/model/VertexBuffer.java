@@ -0,0 +1,247 @@
+package model;
+
+import util.math.Mat4;
+import util.math.PointTransform;
+
+import static main.Main.PROPS;
+
+/**
+ * Stores the coordinates and colors of a fixed number of vertexes.
+ * The coordinates of each vertex are stored as consecutive x,y,z.
+ * Each vertex has a single packed color.
+ * Depending on the configuration, the data is kept on the Java heap
+ * or off-heap, in a {@link VertexArena},
+ * and the coordinates are stored in double or in single precision.
+ * Either way, coordinates are read and written as doubles.
+ *
+ * @author 150009974
+ * @version 1.7
+ * @see PackedColor
+ */
+public abstract class VertexBuffer implements AutoCloseable {
+
+    /** The number of coordinates stored per vertex: X, Y, and Z. */
+    public static final int COORDINATES = PointTransform.COORDINATES;
+
+    /** Whether new {@link VertexBuffer}s should be kept off the Java heap. */
+    private static final boolean OFF_HEAP = PROPS.isTrue("off heap vertexes");
+
+    /** Whether new {@link VertexBuffer}s should store floats, rather than doubles. */
+    private static final boolean SINGLE_PRECISION =
+            PROPS.isTrue("single precision vertexes");
+
+    /** @return whether new {@link VertexBuffer}s keep doubles on the Java heap */
+    static boolean isHeapDoubles() {
+        return !OFF_HEAP && !SINGLE_PRECISION;
+    }
+
+    /**
+     * Allocates a {@link VertexBuffer} for the given number of vertexes
+     * in the configured precision.
+     *
+     * @param vertexes the number of vertexes
+     *
+     * @return the allocated {@link VertexBuffer}
+     *
+     * @see #allocate(int, boolean)
+     */
+    public static VertexBuffer allocate(final int vertexes) {
+        return allocate(vertexes, SINGLE_PRECISION);
+    }
+
+    /**
+     * Allocates a {@link VertexBuffer} for the given number of vertexes.
+     * If off-heap storage is configured, the buffer is taken from
+     * {@link VertexArena#SHARED}.
+     * All coordinates and colors are initially zero.
+     *
+     * @param vertexes        the number of vertexes
+     * @param singlePrecision whether to store the coordinates as floats
+     *
+     * @return the allocated {@link VertexBuffer}
+     */
+    public static VertexBuffer allocate(final int vertexes,
+                                        final boolean singlePrecision) {
+        if (OFF_HEAP) {
+            return VertexArena.SHARED.allocate(vertexes, singlePrecision);
+        }
+        if (singlePrecision) {
+            return new FloatVertexBuffer(vertexes);
+        }
+        return new HeapVertexBuffer(vertexes);
+    }
+
+    /**
+     * Uses the given arrays as a {@link VertexBuffer}.
+     * If off-heap or single precision storage is configured,
+     * they are copied into a buffer from {@link #allocate(int)}.
+     * Otherwise, they are used directly.
+     *
+     * @param coordinates the x,y,z coordinates of the vertexes
+     * @param colors      the packed colors of the vertexes
+     *
+     * @return a {@link VertexBuffer} with the given contents
+     */
+    public static VertexBuffer wrap(final double[] coordinates, final int[] colors) {
+        HeapVertexBuffer heap = new HeapVertexBuffer(coordinates, colors);
+        if (isHeapDoubles()) {
+            return heap;
+        }
+        VertexBuffer copy = allocate(heap.size());
+        copy.copyFrom(heap, heap.size());
+        return copy;
+    }
+
+    /** @return the number of vertexes in this {@link VertexBuffer} */
+    public abstract int size();
+
+    /** @return whether the coordinates are stored as floats */
+    public abstract boolean isSinglePrecision();
+
+    /**
+     * @param index the index of a coordinate, which is
+     *              {@link #COORDINATES} times the index of the vertex,
+     *              plus 0 for X, 1 for Y, or 2 for Z
+     *
+     * @return the coordinate at that index
+     */
+    public abstract double getCoordinate(int index);
+
+    /**
+     * @param index the index of a coordinate
+     * @param value the value of that coordinate
+     *
+     * @see #getCoordinate(int)
+     */
+    public abstract void setCoordinate(int index, double value);
+
+    /**
+     * @param vertex the index of a vertex
+     *
+     * @return the packed color of that vertex
+     */
+    public abstract int getColor(int vertex);
+
+    /**
+     * @param vertex the index of a vertex
+     * @param rgb    the packed color of that vertex
+     */
+    public abstract void setColor(int vertex, int rgb);
+
+    /**
+     * Allocates an empty {@link VertexBuffer} of the same kind as this one.
+     *
+     * @param vertexes the number of vertexes
+     *
+     * @return the allocated {@link VertexBuffer}
+     */
+    public abstract VertexBuffer allocateLike(int vertexes);
+
+    /**
+     * Adds the coordinates of a range of vertexes, multiplied by the given weight,
+     * to the same range of the given array.
+     *
+     * @param weight the weight to multiply by
+     * @param dest   the array to add to, with room for all coordinates
+     * @param from   the index of the first vertex to add
+     * @param to     the index after the last vertex to add
+     */
+    public void addCoordinates(final double weight, final double[] dest,
+                               final int from, final int to) {
+        for (int i = from * COORDINATES; i < to * COORDINATES; i++) {
+            dest[i] += weight * getCoordinate(i);
+        }
+    }
+
+    /**
+     * Sets the coordinates of all vertexes from the given array.
+     *
+     * @param src    the array with all coordinates
+     * @param offset the index of the first coordinate in the array
+     */
+    public void setCoordinates(final double[] src, final int offset) {
+        for (int i = 0; i < size() * COORDINATES; i++) {
+            setCoordinate(i, src[offset + i]);
+        }
+    }
+
+    /**
+     * Copies the packed colors of a range of vertexes
+     * into the same range of the given array.
+     *
+     * @param dest the array to copy into, with room for all colors
+     * @param from the index of the first vertex to copy
+     * @param to   the index after the last vertex to copy
+     */
+    public void getColors(final int[] dest, final int from, final int to) {
+        for (int v = from; v < to; v++) {
+            dest[v] = getColor(v);
+        }
+    }
+
+    /**
+     * Copies the given number of vertexes from the given {@link VertexBuffer}.
+     *
+     * @param source   the {@link VertexBuffer} to copy from
+     * @param vertexes the number of vertexes to copy
+     */
+    public void copyFrom(final VertexBuffer source, final int vertexes) {
+        for (int i = 0; i < vertexes * COORDINATES; i++) {
+            setCoordinate(i, source.getCoordinate(i));
+        }
+        for (int v = 0; v < vertexes; v++) {
+            setColor(v, source.getColor(v));
+        }
+    }
+
+    /**
+     * Transforms all vertexes of this {@link VertexBuffer}
+     * by the given matrix and stores the results in the given target.
+     * The vertexes are treated as homogeneous with W equal to 1.
+     * Only coordinates are written.
+     * The target may be this {@link VertexBuffer}.
+     * Implementations that know their layout transform it in bulk.
+     *
+     * @param m      the matrix to transform by
+     * @param target the {@link VertexBuffer} to store the results in,
+     *               with the same number of vertexes
+     */
+    public void transform(final Mat4 m, final VertexBuffer target) {
+        int n = size() * COORDINATES;
+        for (int i = 0; i < n; i += COORDINATES) {
+            double x = getCoordinate(i);
+            double y = getCoordinate(i + 1);
+            double z = getCoordinate(i + 2);
+            target.setCoordinate(i, m.transformX(x, y, z));
+            target.setCoordinate(i + 1, m.transformY(x, y, z));
+            target.setCoordinate(i + 2, m.transformZ(x, y, z));
+        }
+    }
+
+    /**
+     * Creates a {@link VertexBuffer} of the same kind as this one,
+     * with the given number of vertexes.
+     * As many vertexes as fit are copied into it.
+     * This {@link VertexBuffer} is closed.
+     *
+     * @param vertexes the number of vertexes of the new {@link VertexBuffer}
+     *
+     * @return the resized {@link VertexBuffer}
+     */
+    public VertexBuffer resize(final int vertexes) {
+        VertexBuffer resized = allocateLike(vertexes);
+        resized.copyFrom(this, Math.min(vertexes, size()));
+        close();
+        return resized;
+    }
+
+    /**
+     * Releases the storage of this {@link VertexBuffer}.
+     * It must not be used afterwards.
+     * Closing a heap buffer has no effect.
+     */
+    @Override
+    public void close() {
+    }
+
+}
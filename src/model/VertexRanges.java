@@ -0,0 +1,113 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static main.Main.PROPS;
+
+/**
+ * Splits work over the vertexes of a {@link Face} into ranges,
+ * which are processed in parallel on the common {@link ForkJoinPool}.
+ * Below {@link #THRESHOLD} vertexes, the whole range is processed
+ * on the calling thread, as splitting would cost more than it saves.
+ * Every vertex belongs to exactly one range,
+ * so work that only writes the vertexes of its range
+ * gives the same result whatever the split and the number of threads.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+final class VertexRanges {
+
+    /** Processes the vertexes of a range. */
+    interface Body {
+
+        /**
+         * @param from the index of the first vertex of the range
+         * @param to   the index after the last vertex of the range
+         */
+        void run(int from, int to);
+    }
+
+    /** The pool ranges are processed on. */
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    /** The number of vertexes from which ranges are processed in parallel. */
+    private static final int THRESHOLD = PROPS.getInt("parallel synthesis threshold");
+
+    /** The number of ranges to aim for per thread, so that threads can balance. */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * @param vertexes the number of vertexes
+     *
+     * @return whether {@link #forEach} processes that many vertexes in parallel
+     */
+    static boolean isParallel(final int vertexes) {
+        return vertexes >= THRESHOLD && POOL.getParallelism() > 1;
+    }
+
+    /**
+     * Processes all vertexes in ranges, and returns once all are processed.
+     * The ranges are processed in parallel if {@link #isParallel(int)}.
+     *
+     * @param vertexes the number of vertexes
+     * @param body     what to do with each range
+     */
+    static void forEach(final int vertexes, final Body body) {
+        if (!isParallel(vertexes)) {
+            body.run(0, vertexes);
+            return;
+        }
+        int grain = Math.max(1, vertexes / (POOL.getParallelism() * RANGES_PER_THREAD));
+        POOL.invoke(new Split(body, 0, vertexes, grain));
+    }
+
+    /** Splits a range in halves until they are no larger than a grain. */
+    private static final class Split extends RecursiveAction {
+
+        /** Splits are never serialized, but {@link RecursiveAction} is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** What to do with each range. */
+        private final Body body;
+
+        /** The index of the first vertex of this range. */
+        private final int from;
+
+        /** The index after the last vertex of this range. */
+        private final int to;
+
+        /** The largest range to process without splitting. */
+        private final int grain;
+
+        /**
+         * @param body  what to do with each range
+         * @param from  the index of the first vertex of the range
+         * @param to    the index after the last vertex of the range
+         * @param grain the largest range to process without splitting
+         */
+        Split(final Body body, final int from, final int to, final int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Split(body, from, middle, grain),
+                    new Split(body, middle, to, grain));
+        }
+    }
+
+    /** Hides the constructor for this utility class. */
+    private VertexRanges() {
+    }
+
+}
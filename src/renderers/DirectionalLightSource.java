@@ -1,6 +1,7 @@
 package renderers;
 
 import model.Homogeneous3DPoint;
+import model.VertexBuffer;
 
 import java.awt.Color;
 
@@ -9,7 +10,7 @@ import java.awt.Color;
  * Light hits all points in the scene at the same angle.
  *
  * @author 150009974
- * @version 1.0
+ * @version 1.1
  */
 public class DirectionalLightSource implements LightSource {
 
@@ -47,6 +48,24 @@ public class DirectionalLightSource implements LightSource {
         return source;
     }
 
+    /**
+     * Fills the given array with the normalized direction of this source,
+     * as it is the same for all points.
+     */
+    @Override
+    public void getIncomingLightDirections(final double[] points, final double[] dest,
+                                           final int n) {
+        double length = source.getLength();
+        double x = source.getX() / length;
+        double y = source.getY() / length;
+        double z = source.getZ() / length;
+        for (int i = 0; i < n * VertexBuffer.COORDINATES; i += VertexBuffer.COORDINATES) {
+            dest[i] = x;
+            dest[i + 1] = y;
+            dest[i + 2] = z;
+        }
+    }
+
     @Override
     public double getRed() {
         return source.getRed() / 255d;
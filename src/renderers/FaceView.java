@@ -0,0 +1,161 @@
+package renderers;
+
+import model.Face;
+import util.math.Mat4;
+
+/**
+ * Represents a {@link Face} as seen by a renderer.
+ * The given {@link Face} is kept in its rest pose and is never modified.
+ * Instead, a model matrix (scaling, rotation, centering, ...) is composed,
+ * and applied to a separate copy of the {@link Face} when it is drawn.
+ * Transforming the view therefore costs a single 4x4 multiplication,
+ * and the vertexes are only transformed once per frame,
+ * and only if the model matrix has changed.
+ * Each time they are, the revision of the view changes,
+ * so that renderers can tell when what they calculated from it is stale.
+ *
+ * @author 150009974
+ * @version 1.4
+ */
+public class FaceView implements AutoCloseable {
+
+    /** The {@link Face} in its rest pose. */
+    private Face face;
+
+    /** The {@link #face} transformed by the {@link #model} matrix. */
+    private Face view;
+
+    /** The matrix transforming the {@link #face} into the {@link #view}. */
+    private final Mat4 model = new Mat4();
+
+    /** Whether the {@link #view} matches the current {@link #model}. */
+    private boolean viewValid;
+
+    /** The number of times the {@link #view} has been calculated. */
+    private long revision = 0;
+
+    /**
+     * Sets the {@link Face} to view and resets the model matrix.
+     * The previous view, if any, is released.
+     * The previous {@link Face} itself is not closed.
+     *
+     * @param f the {@link Face} to view, or null to view none
+     */
+    public void setFace(final Face f) {
+        close();
+        face = f;
+        model.identity();
+        if (face != null) {
+            view = face.copy(face.isSinglePrecision());
+        }
+    }
+
+    /**
+     * Replaces the {@link Face} to view, but keeps the model matrix,
+     * so that another {@link Face} of the same model is seen the same way.
+     * The view is overwritten if it has as many points and the same precision,
+     * so that its storage and cached triangles are reused.
+     * Otherwise, the previous view is released.
+     * The previous {@link Face} itself is not closed, but returned.
+     *
+     * @param f the {@link Face} to view
+     *
+     * @return the previously viewed {@link Face}, or null if there was none
+     */
+    public Face replaceFace(final Face f) {
+        Face previous = face;
+        face = f;
+        if (view != null && view.size() == f.size()
+                && view.isSinglePrecision() == f.isSinglePrecision()) {
+            view.copyFrom(f);
+        } else {
+            if (view != null) {
+                view.close();
+            }
+            view = f.copy(f.isSinglePrecision());
+        }
+        viewValid = false;
+        return previous;
+    }
+
+    /** @return the {@link Face} in its rest pose, or null if there is none */
+    public Face getFace() {
+        return face;
+    }
+
+    /**
+     * Copies the matrix transforming the {@link Face} into its view
+     * into the given destination.
+     *
+     * @param dest the {@link Mat4} to copy into
+     *
+     * @return the destination
+     */
+    public Mat4 getModel(final Mat4 dest) {
+        return dest.set(model);
+    }
+
+    /**
+     * Sets the matrix transforming the {@link Face} into its view.
+     * The given matrix is copied.
+     *
+     * @param m the model matrix
+     */
+    public void setModel(final Mat4 m) {
+        model.set(m);
+        viewValid = false;
+    }
+
+    /**
+     * Applies the given transformation after the current model matrix.
+     *
+     * @param transformation the matrix to transform by
+     */
+    public void transform(final Mat4 transformation) {
+        model.premul(transformation);
+        viewValid = false;
+    }
+
+    /**
+     * Gets the {@link Face} transformed by the model matrix.
+     * The vertexes are only transformed
+     * if the model matrix has changed since the last call.
+     * The returned {@link Face} must not be modified or closed.
+     *
+     * @return the transformed {@link Face}, or null if there is none
+     */
+    public Face getView() {
+        if (face == null) {
+            return null;
+        }
+        if (!viewValid) {
+            face.transform(model, view);
+            viewValid = true;
+            revision++;
+        }
+        return view;
+    }
+
+    /**
+     * Gets the revision of the view returned by the last {@link #getView()}.
+     * It changes whenever that view is calculated again,
+     * because the {@link Face} or the model matrix changed.
+     *
+     * @return the revision of the view
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /** Releases the transformed copy of the {@link Face}. */
+    @Override
+    public void close() {
+        if (view != null) {
+            view.close();
+        }
+        view = null;
+        face = null;
+        viewValid = false;
+    }
+
+}
@@ -1,16 +1,16 @@
 package renderers;
 
-import model.Homogeneous3DPolygon;
+import model.Face;
 
 import java.awt.Graphics2D;
 
 /**
  * Provides a way to configure a {@link Graphics2D} object
- * for coloring a given a {@link Homogeneous3DPolygon}.
+ * for coloring a given triangle of a {@link Face}.
  * {@link LightSource}s have to be provided.
  *
  * @author 150009974
- * @version 2.0
+ * @version 3.1
  */
 public interface IlluminationModel {
 
@@ -32,11 +32,24 @@ public interface IlluminationModel {
 
     /**
      * Configures the given {@link Graphics2D}
-     * such that it will correctly color the given {@link Homogeneous3DPolygon}.
+     * such that it will correctly color the given triangle.
      *
-     * @param g the {@link Graphics2D} to configure
-     * @param p the {@link Homogeneous3DPolygon} to configure for
+     * @param g        the {@link Graphics2D} to configure
+     * @param f        the {@link Face} to configure for
+     * @param triangle the index of the triangle in the {@link Face}
      */
-    void configure(Graphics2D g, Homogeneous3DPolygon p);
+    void configure(Graphics2D g, Face f, int triangle);
+
+    /**
+     * Calculates the color of every triangle of the given {@link Face} at once.
+     * The colors are the same as {@link #configure(Graphics2D, Face, int)} sets.
+     *
+     * @param f      the {@link Face} to shade
+     * @param colors the array to store the packed color of each triangle in,
+     *               indexed like the triangles in the {@link Face}
+     *
+     * @see model.PackedColor
+     */
+    void shade(Face f, int[] colors);
 
 }
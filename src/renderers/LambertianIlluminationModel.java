@@ -1,17 +1,20 @@
 package renderers;
 
+import model.Face;
 import model.Homogeneous3DPoint;
-import model.Homogeneous3DPolygon;
+import model.PackedColor;
+import model.VertexBuffer;
+import util.math.Kernels;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
  * Represents Lambert's Illumination Model.
  *
  * @author 150009974
- * @version 1.3
+ * @version 2.3
  */
 public class LambertianIlluminationModel implements IlluminationModel {
 
@@ -24,6 +27,24 @@ public class LambertianIlluminationModel implements IlluminationModel {
     /** The direction from which the object is viewed. Used with normals. */
     private Homogeneous3DPoint viewingDirection;
 
+    /** Working space for {@link #shade}: the dot product of each normal and the view. */
+    private double[] facing = new double[0];
+
+    /** Working space for {@link #shade}: the direction of light at each triangle. */
+    private double[] directions = new double[0];
+
+    /** Working space for {@link #shade}: the dot product of each normal and its light. */
+    private double[] dots = new double[0];
+
+    /** Working space for {@link #shade}: the red intensity at each triangle. */
+    private double[] redIntensities = new double[0];
+
+    /** Working space for {@link #shade}: the green intensity at each triangle. */
+    private double[] greenIntensities = new double[0];
+
+    /** Working space for {@link #shade}: the blue intensity at each triangle. */
+    private double[] blueIntensities = new double[0];
+
     /**
      * Creates a {@link LambertianIlluminationModel} with
      * the given diffuse coefficient.
@@ -49,12 +70,12 @@ public class LambertianIlluminationModel implements IlluminationModel {
     }
 
     @Override
-    public void configure(Graphics2D g, Homogeneous3DPolygon p) {
+    public void configure(Graphics2D g, Face f, int triangle) {
         double redIntensity = 0;
         double greenIntensity = 0;
         double blueIntensity = 0;
-        Homogeneous3DPoint mean = p.getMean();
-        Homogeneous3DPoint normal = getNormal(p, mean);
+        Homogeneous3DPoint mean = f.getMean(triangle);
+        Homogeneous3DPoint normal = getNormal(f, triangle);
 
         for (LightSource source : sources) {
             Homogeneous3DPoint wi = source.getIncomingLightDirection(mean);
@@ -68,40 +89,95 @@ public class LambertianIlluminationModel implements IlluminationModel {
             greenIntensity += dot * source.getGreen() * K;
             blueIntensity += dot * source.getBlue() * K;
         }
-        int red = Math.min((int) (mean.getRed() * redIntensity), 255);
-        int green = Math.min((int) (mean.getGreen() * greenIntensity), 255);
-        int blue = Math.min((int) (mean.getBlue() * blueIntensity), 255);
-        Color c = new Color(red, green, blue);
-        g.setColor(c);
+        int red = (int) (mean.getRed() * redIntensity);
+        int green = (int) (mean.getGreen() * greenIntensity);
+        int blue = (int) (mean.getBlue() * blueIntensity);
+        int rgb = PackedColor.pack(red, green, blue);
+        g.setColor(PackedColor.toColor(rgb));
     }
 
     /**
-     * Calculates and returns the normalized normal of the plane
-     * defined by the given {@link Homogeneous3DPolygon}.
+     * Shades all triangles with array kernels, rather than one triangle at a time.
+     * Each normal is flipped toward the {@link #viewingDirection} by the sign
+     * of its dot product with it, which gives the same products as
+     * {@link #getNormal(Face, int)}.
+     */
+    @Override
+    public void shade(final Face f, final int[] colors) {
+        double[] normals = f.getNormals();
+        double[] means = f.getMeans();
+        int[] meanColors = f.getMeanColors();
+        int n = meanColors.length;
+        ensureCapacity(n);
+        Kernels.dot(normals, viewingDirection.getX(), viewingDirection.getY(),
+                viewingDirection.getZ(), facing, n);
+        Arrays.fill(redIntensities, 0, n, 0);
+        Arrays.fill(greenIntensities, 0, n, 0);
+        Arrays.fill(blueIntensities, 0, n, 0);
+
+        for (LightSource source : sources) {
+            source.getIncomingLightDirections(means, directions, n);
+            Kernels.dot(normals, directions, dots, n);
+            double red = source.getRed();
+            double green = source.getGreen();
+            double blue = source.getBlue();
+            for (int t = 0; t < n; t++) {
+                double dot = facing[t] > 0 ? dots[t] : -dots[t];
+                if (dot > 0) {
+                    redIntensities[t] += dot * red * K;
+                    greenIntensities[t] += dot * green * K;
+                    blueIntensities[t] += dot * blue * K;
+                }
+            }
+        }
+        for (int t = 0; t < n; t++) {
+            int rgb = meanColors[t];
+            int red = (int) (PackedColor.red(rgb) * redIntensities[t]);
+            int green = (int) (PackedColor.green(rgb) * greenIntensities[t]);
+            int blue = (int) (PackedColor.blue(rgb) * blueIntensities[t]);
+            colors[t] = PackedColor.pack(red, green, blue);
+        }
+    }
+
+    /**
+     * Grows the working space of {@link #shade} to fit the given number of triangles.
+     *
+     * @param triangles the number of triangles
+     */
+    private void ensureCapacity(final int triangles) {
+        if (dots.length >= triangles) {
+            return;
+        }
+        facing = new double[triangles];
+        directions = new double[triangles * VertexBuffer.COORDINATES];
+        dots = new double[triangles];
+        redIntensities = new double[triangles];
+        greenIntensities = new double[triangles];
+        blueIntensities = new double[triangles];
+    }
+
+    /**
+     * Returns the normalized normal of the plane
+     * defined by the given triangle.
      * A plane has two normals. This method returns the one that points
      * toward the viewing direction.
      * That normal is identified by a positive dot product
      * with the {@link #viewingDirection}.
      *
-     * @param p the {@link Homogeneous3DPolygon} to calculate normal for
-     * @param mean the mean point of the polygon
+     * @param f        the {@link Face} that contains the triangle
+     * @param triangle the index of the triangle to get the normal of
      *
      * @return the normalized normal towards the viewing direction
+     *
+     * @see Face#getNormal(int)
      */
-    private Homogeneous3DPoint getNormal(final Homogeneous3DPolygon p,
-                                         final Homogeneous3DPoint mean) {
-        Homogeneous3DPoint v0 = p.getVertex(0);
-        Homogeneous3DPoint v1 = p.getVertex(1);
-        Homogeneous3DPoint a = Homogeneous3DPoint.subtract(v0, mean);
-        Homogeneous3DPoint b = Homogeneous3DPoint.subtract(v1, mean);
-        Homogeneous3DPoint nAB = Homogeneous3DPoint.cross(a, b);
-        nAB.normalize();
-        if (nAB.dot(viewingDirection) > 0) {
-            return nAB;
+    private Homogeneous3DPoint getNormal(final Face f, final int triangle) {
+        Homogeneous3DPoint normal = f.getNormal(triangle);
+        if (normal.dot(viewingDirection) > 0) {
+            return normal;
         }
-        Homogeneous3DPoint nBA = Homogeneous3DPoint.cross(b, a);
-        nBA.normalize();
-        return nBA;
+        return new Homogeneous3DPoint(-normal.getX(), -normal.getY(),
+                -normal.getZ(), normal.getRGB());
     }
 
 }
@@ -1,13 +1,14 @@
 package renderers;
 
 import model.Homogeneous3DPoint;
+import model.VertexBuffer;
 
 /**
  * Provides a way to determine how much light reaches a specific point.
  * Both angle and intensity.
  *
  * @author 150009974
- * @version 1.0
+ * @version 1.1
  */
 public interface LightSource {
 
@@ -22,6 +23,31 @@ public interface LightSource {
      */
     Homogeneous3DPoint getIncomingLightDirection(Homogeneous3DPoint p);
 
+    /**
+     * Calculates the normalized direction of light
+     * coming from this {@link LightSource}
+     * and reaching each of the given points.
+     * By default, each point is passed to
+     * {@link #getIncomingLightDirection(Homogeneous3DPoint)}.
+     *
+     * @param points the x,y,z coordinates of the points to reach
+     * @param dest   the array to store the x,y,z of each unit direction in
+     * @param n      the number of points
+     */
+    default void getIncomingLightDirections(final double[] points, final double[] dest,
+                                            final int n) {
+        for (int i = 0; i < n; i++) {
+            int offset = i * VertexBuffer.COORDINATES;
+            Homogeneous3DPoint p = new Homogeneous3DPoint(points[offset],
+                    points[offset + 1], points[offset + 2], 0);
+            Homogeneous3DPoint wi = getIncomingLightDirection(p);
+            double length = wi.getLength();
+            dest[offset] = wi.getX() / length;
+            dest[offset + 1] = wi.getY() / length;
+            dest[offset + 2] = wi.getZ() / length;
+        }
+    }
+
     /** @return the red color intensity of this {@link LightSource} */
     double getRed();
 
@@ -1,43 +1,48 @@
 package renderers;
 
-import model.Homogeneous3DPolygon;
-import org.jblas.DoubleMatrix;
+import model.Face;
+import model.Mesh;
+import util.math.Mat4;
+import util.math.Vec4;
 
 import java.awt.Shape;
 import java.awt.geom.Path2D;
 
 /**
  * Represents a Orthographic Projector.
- * Projects {@link Homogeneous3DPolygon}s by dropping the Z coordinate.
+ * Projects triangles by dropping the Z coordinate.
  *
  * @author 150009974
- * @version 1.0
+ * @version 2.1
  */
 public class OrthographicProjector implements Projector {
 
-    /** The standard Orthogonal Projection Matrix. */
-    private static final DoubleMatrix PROJECTION_MATRIX = new DoubleMatrix(3, 4);
+    /**
+     * The standard Orthogonal Projection Matrix.
+     * The projected X and Y are divided by the projected W.
+     */
+    private static final Mat4 PROJECTION_MATRIX = new Mat4();
 
-    static {
-        PROJECTION_MATRIX.put(0, 0, 1);
-        PROJECTION_MATRIX.put(1, 1, 1);
-        PROJECTION_MATRIX.put(2, 3, 1);
-    }
+    /** Working space for the projection of a single vertex. */
+    private final Vec4 projected = new Vec4();
 
     @Override
-    public Shape project(final Homogeneous3DPolygon polygon) {
+    public Shape project(final Face f, final int triangle) {
         Path2D.Double shape = new Path2D.Double();
-        DoubleMatrix first = polygon.getVertex(0).getMatrix();
-        DoubleMatrix start = PROJECTION_MATRIX.mmul(first);
-        double startX = start.get(0, 0) / start.get(2, 0);
-        double startY = start.get(1, 0) / start.get(2, 0);
+        int first = Mesh.getVertex(triangle, 0);
+        Vec4 start = PROJECTION_MATRIX.transform(f.getX(first), f.getY(first),
+                f.getZ(first), 1, projected);
+        double startX = start.getX() / start.getW();
+        double startY = start.getY() / start.getW();
         shape.moveTo(startX, startY);
-        polygon.forEachVertex(v -> {
-            DoubleMatrix p = PROJECTION_MATRIX.mmul(v.getMatrix());
-            double x = p.get(0, 0) / p.get(2, 0);
-            double y = p.get(1, 0) / p.get(2, 0);
+        for (int corner = 0; corner < Mesh.CORNERS; corner++) {
+            int v = Mesh.getVertex(triangle, corner);
+            Vec4 p = PROJECTION_MATRIX.transform(f.getX(v), f.getY(v), f.getZ(v),
+                    1, projected);
+            double x = p.getX() / p.getW();
+            double y = p.getY() / p.getW();
             shape.lineTo(x, y);
-        });
+        }
         shape.lineTo(startX, startY);
         shape.closePath();
         return shape;
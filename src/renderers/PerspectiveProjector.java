@@ -1,7 +1,9 @@
 package renderers;
 
-import model.Homogeneous3DPolygon;
-import org.jblas.DoubleMatrix;
+import model.Face;
+import model.Mesh;
+import util.math.Mat4;
+import util.math.Vec4;
 
 import java.awt.Shape;
 import java.awt.geom.Path2D;
@@ -10,12 +12,18 @@ import java.awt.geom.Path2D;
  * Represents a Perspective Projector.
  *
  * @author 150009974
- * @version 1.1
+ * @version 2.1
  */
 public class PerspectiveProjector implements Projector {
 
-    /** The projection matrix to use. */
-    private DoubleMatrix projectionMatrix = DoubleMatrix.zeros(3, 4);
+    /**
+     * The projection matrix to use.
+     * The projected X and Y are divided by the projected W.
+     */
+    private final Mat4 projectionMatrix = new Mat4();
+
+    /** Working space for the projection of a single vertex. */
+    private final Vec4 projected = new Vec4();
 
     /**
      * Creates a {@link PerspectiveProjector} for a screen at Z coordinate = f.
@@ -23,34 +31,38 @@ public class PerspectiveProjector implements Projector {
      * @param f the Z coordinate of the target screen
      */
     public PerspectiveProjector(final double f) {
-        projectionMatrix.put(0, 0, 1);
-        projectionMatrix.put(1, 1, 1);
-        projectionMatrix.put(2, 2, 1 / f);
+        projectionMatrix.set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 1 / f, 0);
     }
 
     /** @return the Z coordinate of the target screen */
     public double getF() {
-        return 1 / projectionMatrix.get(2, 2);
+        return 1 / projectionMatrix.get(3, 2);
     }
 
     @Override
-    public Shape project(final Homogeneous3DPolygon polygon) {
+    public Shape project(final Face f, final int triangle) {
         Path2D.Double shape = new Path2D.Double();
-        DoubleMatrix first = polygon.getVertex(0).getMatrix();
-        DoubleMatrix start = projectionMatrix.mmul(first);
-        double startX = start.get(0, 0) / start.get(2, 0);
-        double startY = start.get(1, 0) / start.get(2, 0);
+        int first = Mesh.getVertex(triangle, 0);
+        Vec4 start = projectionMatrix.transform(f.getX(first), f.getY(first),
+                f.getZ(first), 1, projected);
+        double startX = start.getX() / start.getW();
+        double startY = start.getY() / start.getW();
         shape.moveTo(startX, startY);
-        polygon.forEachVertex(v -> {
-            DoubleMatrix p = projectionMatrix.mmul(v.getMatrix());
-            if (p.get(2, 0) == 0) {
+        for (int corner = 0; corner < Mesh.CORNERS; corner++) {
+            int v = Mesh.getVertex(triangle, corner);
+            Vec4 p = projectionMatrix.transform(f.getX(v), f.getY(v), f.getZ(v),
+                    1, projected);
+            if (p.getW() == 0) {
                 // Infinitely far away, do not render.
-                return;
+                continue;
             }
-            double x = p.get(0, 0) / p.get(2, 0);
-            double y = p.get(1, 0) / p.get(2, 0);
+            double x = p.getX() / p.getW();
+            double y = p.getY() / p.getW();
             shape.lineTo(x, y);
-        });
+        }
         shape.lineTo(startX, startY);
         shape.closePath();
         return shape;
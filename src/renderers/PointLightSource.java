@@ -1,6 +1,7 @@
 package renderers;
 
 import model.Homogeneous3DPoint;
+import model.VertexBuffer;
 
 import java.awt.Color;
 
@@ -8,7 +9,7 @@ import java.awt.Color;
  * Represents a Point Light Source.
  *
  * @author 150009974
- * @version 3.1
+ * @version 3.2
  */
 public class PointLightSource implements LightSource {
 
@@ -43,6 +44,24 @@ public class PointLightSource implements LightSource {
         return Homogeneous3DPoint.subtract(source, p);
     }
 
+    /** Calculates the directions from the coordinates, without creating points. */
+    @Override
+    public void getIncomingLightDirections(final double[] points, final double[] dest,
+                                           final int n) {
+        double sx = source.getX();
+        double sy = source.getY();
+        double sz = source.getZ();
+        for (int i = 0; i < n * VertexBuffer.COORDINATES; i += VertexBuffer.COORDINATES) {
+            double x = sx - points[i];
+            double y = sy - points[i + 1];
+            double z = sz - points[i + 2];
+            double length = Math.sqrt(x * x + y * y + z * z);
+            dest[i] = x / length;
+            dest[i + 1] = y / length;
+            dest[i + 2] = z / length;
+        }
+    }
+
     @Override
     public double getRed() {
         return source.getRed() / 255d;
@@ -2,60 +2,71 @@ package renderers;
 
 import model.Face;
 import model.Homogeneous3DPoint;
-import model.Homogeneous3DPolygon;
+import model.PackedColor;
+import util.math.Mat4;
 
 import javax.swing.JPanel;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Shape;
-import java.util.ArrayList;
-import java.util.Collections;
 
 /**
  * Represents a a simple renderer for previewing Face.
+ * The previewed {@link Face} is not modified,
+ * it is scaled and centered through a {@link FaceView}.
  *
  * @author 150009974
- * @version 2.0
+ * @version 3.2
  */
 public class PreviewRenderer extends JPanel {
 
     /** The {@link Projector} from 3D to 2D. */
     private Projector projector = new OrthographicProjector();
 
-    /** The current {@link Face} to draw */
-    private Face current;
+    /** The current {@link Face} to draw, as seen on this panel. */
+    private FaceView current = new FaceView();
 
-    /** The {@link #current} {@link Face}'s initial center. */
-    private Homogeneous3DPoint originalCenter;
+    /** The factor by which the {@link Face} is scaled when drawn. */
+    private double scale;
 
-    /** Creates a {@link PreviewRenderer} with default configuration. */
+    /** Creates a {@link PreviewRenderer} that draws {@link Face}s unscaled. */
     public PreviewRenderer() {
+        this(1);
+    }
+
+    /**
+     * Creates a {@link PreviewRenderer} that draws {@link Face}s
+     * scaled by the given factor.
+     *
+     * @param s the factor to scale by
+     */
+    public PreviewRenderer(final double s) {
+        scale = s;
         setLayout(null);
         setFocusable(true);
         setBackground(Color.WHITE);
     }
 
-    /** @param f the {@link Face} to draw */
-    public void setFace(final Face f) {
-        current = f;
-        originalCenter = current.getCenter();
-        int x = this.getWidth() / 2;
-        int y = this.getHeight() / 2;
-        current.setCenter(new Homogeneous3DPoint(x, y, 0));
-    }
-
     /**
-     * Undoes all transformation done on the {@link #current} {@link Face},
-     * returns it and forgets about it.
+     * Sets the {@link Face} to draw.
+     * It is drawn scaled and centered on this panel,
+     * but the {@link Face} itself is not modified.
      *
-     * @return the originally given {@link Face}
+     * @param f the {@link Face} to draw
      */
-    public Face restoreFace() {
-        current.setCenter(originalCenter);
-        Face f = current;
-        current = null;
-        return f;
+    public void setFace(final Face f) {
+        current.setFace(f);
+        Homogeneous3DPoint origin = f.getCenter();
+        Mat4 model = new Mat4().scaling(scale, scale, scale);
+        Mat4 translation = new Mat4().translation(this.getWidth() / 2 - origin.getX(),
+                this.getHeight() / 2 - origin.getY(), -origin.getZ());
+        current.setModel(model.premul(translation));
+    }
+
+    /** @return the {@link Face} being drawn, or null if there is none */
+    public Face getFace() {
+        return current.getFace();
     }
 
     @Override
@@ -70,15 +81,14 @@ public class PreviewRenderer extends JPanel {
      * @param g the {@link Graphics2D} to use for rendering
      */
     public void renderFace(final Graphics2D g) {
-        if (current == null) {
+        Face view = current.getView();
+        if (view == null) {
             return;
         }
-        ArrayList<Homogeneous3DPolygon> polygons = current.getPolygons();
-        Collections.sort(polygons);
-        for (Homogeneous3DPolygon polygon : polygons) {
-            Color c = polygon.getMean().getColor();
+        for (int triangle : view.getTrianglesByDepth()) {
+            Color c = PackedColor.toColor(view.getMeanRGB(triangle));
             g.setColor(c);
-            Shape projection = projector.project(polygon);
+            Shape projection = projector.project(view, triangle);
             g.fill(projection);
         }
     }
@@ -1,6 +1,6 @@
 package renderers;
 
-import model.Homogeneous3DPolygon;
+import model.Face;
 
 import java.awt.Shape;
 
@@ -9,17 +9,19 @@ import java.awt.Shape;
  * Deals only with coordinates.
  *
  * @author 150009974
- * @version 1.0
+ * @version 2.0
  */
 public interface Projector {
 
     /**
-     * Creates a 2D {@link Shape} projection of the given {@link Homogeneous3DPolygon}.
+     * Creates a 2D {@link Shape} projection of the given triangle
+     * of the given {@link Face}.
      *
-     * @param p the {@link Homogeneous3DPolygon} to project
+     * @param f        the {@link Face} to project
+     * @param triangle the index of the triangle to project
      *
      * @return the projected {@link Shape}
      */
-    Shape project(Homogeneous3DPolygon p);
+    Shape project(Face f, int triangle);
 
 }
@@ -2,8 +2,8 @@ package renderers;
 
 import model.Face;
 import model.Homogeneous3DPoint;
-import model.Homogeneous3DPolygon;
-import org.jblas.DoubleMatrix;
+import model.PackedColor;
+import util.math.Mat4;
 
 import javax.swing.JPanel;
 import java.awt.Color;
@@ -12,16 +12,17 @@ import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Collections;
 
 import static main.Main.PROPS;
 
 /**
  * Represents a Renderer for synthesised faces.
+ * The rendered {@link Face} is not modified.
+ * Rotations and scaling are composed into the model matrix of a {@link FaceView}.
+ * Triangles are only shaded again when the view or the light source changes.
  *
  * @author 150009974
- * @version 1.2
+ * @version 2.4
  */
 public class SynthesisedRenderer extends JPanel {
 
@@ -47,82 +48,43 @@ public class SynthesisedRenderer extends JPanel {
     private static final double ROTATION_STEP = PROPS.getDouble("rotation step");
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s down around the X axis. */
-    private static final DoubleMatrix RX_UP = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RX_UP = new Mat4();
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s up around the X axis. */
-    private static final DoubleMatrix RX_DOWN = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RX_DOWN = new Mat4();
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s left around the Y axis. */
-    private static final DoubleMatrix RY_LEFT = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RY_LEFT = new Mat4();
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s right around the Y axis. */
-    private static final DoubleMatrix RY_RIGHT = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RY_RIGHT = new Mat4();
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s clockwise around the Z axis. */
-    private static final DoubleMatrix RZ_CLOCK = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RZ_CLOCK = new Mat4();
 
     /** Matrix for rotation of {@link Homogeneous3DPoint}s counter clockwise around the Z axis. */
-    private static final DoubleMatrix RZ_COUNTER = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 RZ_COUNTER = new Mat4();
 
     /** Matrix for enlarging size. */
-    private static final DoubleMatrix ENLARGE = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 ENLARGE = new Mat4();
 
     /** Matrix for reducing size. */
-    private static final DoubleMatrix REDUCE = DoubleMatrix.zeros(4, 4);
+    private static final Mat4 REDUCE = new Mat4();
 
     static {
-        double cosR = Math.cos(ROTATION_STEP);
-        double sinR = Math.sin(ROTATION_STEP);
-
-        RX_DOWN.put(0, 0, 1);
-        RX_DOWN.put(1, 1, cosR);
-        RX_DOWN.put(1, 2, -sinR);
-        RX_DOWN.put(2, 1, sinR);
-        RX_DOWN.put(2, 2, cosR);
-        RX_DOWN.put(3, 3, 1);
-        RX_UP.put(0, 0, 1);
-        RX_UP.put(1, 1, cosR);
-        RX_UP.put(1, 2, sinR);
-        RX_UP.put(2, 1, -sinR);
-        RX_UP.put(2, 2, cosR);
-        RX_UP.put(3, 3, 1);
-
-        RY_LEFT.put(0, 0, cosR);
-        RY_LEFT.put(0, 2, sinR);
-        RY_LEFT.put(1, 1, 1);
-        RY_LEFT.put(2, 0, -sinR);
-        RY_LEFT.put(2, 2, cosR);
-        RY_LEFT.put(3, 3, 1);
-        RY_RIGHT.put(0, 0, cosR);
-        RY_RIGHT.put(0, 2, -sinR);
-        RY_RIGHT.put(1, 1, 1);
-        RY_RIGHT.put(2, 0, sinR);
-        RY_RIGHT.put(2, 2, cosR);
-        RY_RIGHT.put(3, 3, 1);
-
-        RZ_CLOCK.put(0, 0, cosR);
-        RZ_CLOCK.put(0, 1, -sinR);
-        RZ_CLOCK.put(1, 0, sinR);
-        RZ_CLOCK.put(1, 1, cosR);
-        RZ_CLOCK.put(2, 2, 1);
-        RZ_CLOCK.put(3, 3, 1);
-        RZ_COUNTER.put(0, 0, cosR);
-        RZ_COUNTER.put(0, 1, sinR);
-        RZ_COUNTER.put(1, 0, -sinR);
-        RZ_COUNTER.put(1, 1, cosR);
-        RZ_COUNTER.put(2, 2, 1);
-        RZ_COUNTER.put(3, 3, 1);
+        RX_DOWN.rotationX(ROTATION_STEP);
+        RX_UP.rotationX(-ROTATION_STEP);
+
+        RY_LEFT.rotationY(ROTATION_STEP);
+        RY_RIGHT.rotationY(-ROTATION_STEP);
+
+        RZ_CLOCK.rotationZ(ROTATION_STEP);
+        RZ_COUNTER.rotationZ(-ROTATION_STEP);
 
         double enlargeFactor = 1.1;
-        ENLARGE.put(0, 0, enlargeFactor);
-        ENLARGE.put(1, 1, enlargeFactor);
-        ENLARGE.put(2, 2, enlargeFactor);
-        ENLARGE.put(3, 3, 1);
+        ENLARGE.scaling(enlargeFactor, enlargeFactor, enlargeFactor);
         double reduceFactor = 0.9;
-        REDUCE.put(0, 0, reduceFactor);
-        REDUCE.put(1, 1, reduceFactor);
-        REDUCE.put(2, 2, reduceFactor);
-        REDUCE.put(3, 3, 1);
+        REDUCE.scaling(reduceFactor, reduceFactor, reduceFactor);
     }
     //</editor-fold>
 
@@ -135,14 +97,26 @@ public class SynthesisedRenderer extends JPanel {
     /** The {@link IlluminationModel} that calculates the colors. */
     private IlluminationModel illuminationModel;
 
-    /** The {@link Face} being rendered. */
-    private Face current;
+    /** The {@link Face} being rendered, as seen on this panel. */
+    private FaceView current = new FaceView();
+
+    /** Matrix for translating the {@link #current} view to the origin. */
+    private final Mat4 toOrigin = new Mat4();
+
+    /** Matrix for translating the {@link #current} view to its center. */
+    private final Mat4 toCenter = new Mat4();
 
-    /** Matrix for translating the {@link #current} {@link Face} to the origin. */
-    private DoubleMatrix toOrigin;
+    /** Working space for composing transformations. */
+    private final Mat4 composed = new Mat4();
 
-    /** Matrix for translating the {@link #current} {@link Face} to its center. */
-    private DoubleMatrix toCenter;
+    /** The packed color of each triangle of the current view. */
+    private int[] shades = new int[0];
+
+    /**
+     * The revision of the {@link #current} view that the {@link #shades} are of,
+     * or -1 if they are stale.
+     */
+    private long shadedRevision = -1;
 
     /**
      * Creates a {@link SynthesisedRenderer} with default configuration.
@@ -178,6 +152,7 @@ public class SynthesisedRenderer extends JPanel {
         illuminationModel = new LambertianIlluminationModel(1, view);
         source = new DirectionalLightSource(x, y, Integer.MIN_VALUE, LIGHT);
         illuminationModel.addSource(source);
+        shadedRevision = -1;
     }
 
     /**
@@ -196,12 +171,14 @@ public class SynthesisedRenderer extends JPanel {
                 double y = getHeight() / 2.0;
                 source = new DirectionalLightSource(x, y, Integer.MIN_VALUE, LIGHT);
                 illuminationModel.addSource(source);
+                shadedRevision = -1;
             }
         } else if (code == KeyEvent.VK_F) {
             if (!(source instanceof PointLightSource)) {
                 illuminationModel.removeSource(source);
                 source = PRESET_POINT;
                 illuminationModel.addSource(source);
+                shadedRevision = -1;
             }
         }
     }
@@ -211,7 +188,7 @@ public class SynthesisedRenderer extends JPanel {
      * then if the {@link #projector} is a {@link PerspectiveProjector},
      * it is re-instantiated with a new target screen F.
      * If the projector is an {@link OrthographicProjector},
-     * then the {@link #current} {@link Face} is scaled respectively.
+     * then the {@link #current} view is scaled respectively.
      *
      * @param code the {@link KeyEvent#getKeyCode()} raised by a key press
      */
@@ -275,61 +252,93 @@ public class SynthesisedRenderer extends JPanel {
     }
 
     /**
-     * Transforms the {@link #current} {@link Face}
+     * Transforms the {@link #current} view
      * via the given transformation matrix.
      * Transformation happens by first translating towards the origin,
      * then multiplying the rotation matrix,
      * and finally translating back to the center.
+     * Only the model matrix changes, the vertexes are transformed when drawn.
      *
      * @param transformation the matrix to transform by
      *
      * @see #toOrigin
      * @see #toCenter
      */
-    private void transform(final DoubleMatrix transformation) {
-        for (Homogeneous3DPoint point : current.getPoints()) {
-            // Move towards origin, transform relative to origin, return back
-            DoubleMatrix m = point.getMatrix();
-            m.data = toOrigin.mmul(m).data;
-            m.data = transformation.mmul(m).data;
-            m.data = toCenter.mmul(m).data;
-        }
+    private void transform(final Mat4 transformation) {
+        // Move towards origin, transform relative to origin, return back
+        composed.set(toCenter).mul(transformation).mul(toOrigin);
+        current.transform(composed);
     }
 
     /**
      * Creates and stores a transformation matrix that will
-     * translate a point to the origin (0, 0, 0).
+     * translate a point from the given center to the origin (0, 0, 0).
+     *
+     * @param center the center of the view
      */
-    private void storeToOriginTranslationMatrix() {
-        Homogeneous3DPoint center = current.getCenter();
-        toOrigin = DoubleMatrix.eye(4);
-        toOrigin.put(0, 3, -center.getX());
-        toOrigin.put(1, 3, -center.getY());
-        toOrigin.put(2, 3, -center.getZ());
+    private void storeToOriginTranslationMatrix(final Homogeneous3DPoint center) {
+        toOrigin.translation(-center.getX(), -center.getY(), -center.getZ());
     }
 
     /**
      * Creates and stores a transformation matrix that will
-     * translate a point to the {@link #current} {@link Face}'s center.
+     * translate a point from the origin to the given center.
+     *
+     * @param center the center of the view
      */
-    private void storeToCenterTranslationMatrix() {
-        Homogeneous3DPoint center = current.getCenter();
-        toCenter = DoubleMatrix.eye(4);
-        toCenter.put(0, 3, center.getX());
-        toCenter.put(1, 3, center.getY());
-        toCenter.put(2, 3, center.getZ());
+    private void storeToCenterTranslationMatrix(final Homogeneous3DPoint center) {
+        toCenter.translation(center.getX(), center.getY(), center.getZ());
     }
 
-    /** @param f the {@link Face} to draw */
+    /**
+     * Sets the {@link Face} to draw.
+     * It is drawn inverted, scaled to fit, and centered on this panel,
+     * but the {@link Face} itself is not modified.
+     *
+     * @param f the {@link Face} to draw
+     */
     public void setFace(final Face f) {
-        current = f;
-        current.scale(-SCREEN_FIT_FACTOR);
+        current.setFace(f);
         int x = this.getWidth() / 2;
         int y = this.getHeight() / 2;
         Homogeneous3DPoint c = new Homogeneous3DPoint(x, y, 0);
-        current.setCenter(c);
-        storeToOriginTranslationMatrix();
-        storeToCenterTranslationMatrix();
+        Homogeneous3DPoint origin = f.getCenter();
+        double fit = -SCREEN_FIT_FACTOR;
+        composed.translation(c.getX() - origin.getX(), c.getY() - origin.getY(),
+                c.getZ() - origin.getZ());
+        current.setModel(composed.mul(new Mat4().scaling(fit, fit, fit)));
+        storeToOriginTranslationMatrix(c);
+        storeToCenterTranslationMatrix(c);
+    }
+
+    /**
+     * Replaces the {@link Face} to draw, keeping the rotation and zoom,
+     * so that a {@link Face} can be updated while it is being explored.
+     * If there is no {@link Face} yet, it is set like {@link #setFace(Face)}.
+     *
+     * @param f the {@link Face} to draw
+     *
+     * @return the previously drawn {@link Face}, which the caller must close,
+     * or null if there was none
+     */
+    public Face replaceFace(final Face f) {
+        if (current.getFace() == null) {
+            setFace(f);
+            return null;
+        }
+        return current.replaceFace(f);
+    }
+
+    /**
+     * Returns the {@link Face} being drawn and forgets about it.
+     * The {@link Face} is exactly as it was given.
+     *
+     * @return the originally given {@link Face}, or null if there is none
+     */
+    public Face restoreFace() {
+        Face f = current.getFace();
+        current.setFace(null);
+        return f;
     }
 
     @Override
@@ -344,14 +353,21 @@ public class SynthesisedRenderer extends JPanel {
      * @param g the {@link Graphics2D} to use for rendering
      */
     public void renderFace(final Graphics2D g) {
-        if (current == null) {
+        Face view = current.getView();
+        if (view == null) {
             return;
         }
-        ArrayList<Homogeneous3DPolygon> polygons = current.getPolygons();
-        Collections.sort(polygons);
-        for (Homogeneous3DPolygon polygon : polygons) {
-            illuminationModel.configure(g, polygon);
-            Shape projection = projector.project(polygon);
+        int[] triangles = view.getTrianglesByDepth();
+        if (current.getRevision() != shadedRevision) {
+            if (shades.length < triangles.length) {
+                shades = new int[triangles.length];
+            }
+            illuminationModel.shade(view, shades);
+            shadedRevision = current.getRevision();
+        }
+        for (int triangle : triangles) {
+            g.setColor(PackedColor.toColor(shades[triangle]));
+            Shape projection = projector.project(view, triangle);
             g.fill(projection);
         }
     }
@@ -0,0 +1,352 @@
+package util.file.editing;
+
+import util.log.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads numbers from a file of comma, space, or line separated values,
+ * such as a CSV file.
+ * The file is memory-mapped and parsed directly from its bytes,
+ * so reading a number does not create any {@link String}s.
+ * Only plain ASCII decimal numbers are supported,
+ * optionally signed, with a fraction and an exponent.
+ *
+ * @version 1.0
+ */
+public class NumericReader {
+
+    /** The number of values to allocate for, when the count is not known. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The largest number of significant digits that are accumulated exactly.
+     * Any more digits only shift the decimal exponent.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * The largest integer up to which all integers are exact doubles.
+     * Used to decide whether the fast path gives a correctly rounded result.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** The exactly representable powers of ten, 10^0 to 10^22. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Reads all numbers in the specified file as doubles.
+     *
+     * @param filename the name of the file to read
+     * @param l        {@link Logger} used for logging {@link IOException}s
+     *
+     * @return all numbers in the file, in order
+     */
+    public static double[] readDoubles(final String filename, final Logger l) {
+        NumericReader reader = new NumericReader(filename, l);
+        double[] values = new double[INITIAL_CAPACITY];
+        int size = 0;
+        while (reader.hasNext()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = reader.nextDouble();
+        }
+        reader.close();
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Reads all numbers in the specified file as integers.
+     *
+     * @param filename the name of the file to read
+     * @param l        {@link Logger} used for logging {@link IOException}s
+     *
+     * @return all numbers in the file, in order
+     */
+    public static int[] readInts(final String filename, final Logger l) {
+        NumericReader reader = new NumericReader(filename, l);
+        int[] values = new int[INITIAL_CAPACITY];
+        int size = 0;
+        while (reader.hasNext()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = reader.nextInt();
+        }
+        reader.close();
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Checks whether the given byte separates two values.
+     *
+     * @param b the byte to check
+     *
+     * @return true if it is a comma or whitespace
+     */
+    private static boolean isSeparator(final byte b) {
+        return b == ',' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /** A {@link Logger} to write all errors to. */
+    private Logger l;
+
+    /** The contents of the file. Empty if the file could not be read. */
+    private ByteBuffer bytes;
+
+    /** The position of the next byte to read in {@link #bytes}. */
+    private int position;
+
+    /**
+     * Memory-maps the given file for reading.
+     * If the file cannot be read, it is treated as empty
+     * and the {@link IOException} is logged.
+     *
+     * @param filename filename of input file
+     * @param logger   {@link Logger} to be used for logging
+     *                 {@link IOException}s.
+     */
+    public NumericReader(final String filename, final Logger logger) {
+        this.l = logger;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            defaultCatch(e);
+            bytes = ByteBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Memory-maps the given file for reading.
+     * {@link IOException}s will be printed to standard error.
+     *
+     * @param filename filename of input file
+     */
+    public NumericReader(final String filename) {
+        this(filename, null);
+    }
+
+    /**
+     * The default behaviour for caught {@link Exception}s.
+     *
+     * @param e the caught {@link Exception}
+     */
+    private void defaultCatch(final Exception e) {
+        if (l == null) {
+            e.printStackTrace();
+        } else {
+            l.log(e);
+        }
+    }
+
+    /**
+     * Skips any separators and checks whether another value follows.
+     *
+     * @return true if there is another value to read
+     */
+    public boolean hasNext() {
+        int limit = bytes.limit();
+        while (position < limit && isSeparator(bytes.get(position))) {
+            position++;
+        }
+        return position < limit;
+    }
+
+    /**
+     * Reads the next value as an integer.
+     *
+     * @return the next value
+     *
+     * @throws NoSuchElementException if there are no more values
+     * @throws NumberFormatException  if the value is not an integer
+     */
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more values at byte " + position);
+        }
+        int limit = bytes.limit();
+        int start = position;
+        boolean negative = false;
+        byte b = bytes.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (position < limit && !isSeparator(bytes.get(position))) {
+            b = bytes.get(position);
+            digits++;
+            if (b < '0' || b > '9' || digits > 10) {
+                throw invalid(start);
+            }
+            value = value * 10 + (b - '0');
+            position++;
+        }
+        value = negative ? -value : value;
+        if (digits == 0 || value != (int) value) {
+            throw invalid(start);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next value as a double.
+     * Values with up to 15 significant digits and small exponents,
+     * which covers all model files, are parsed exactly without allocating.
+     * Any other value falls back to {@link Double#parseDouble(String)},
+     * so the result is always correctly rounded.
+     *
+     * @return the next value
+     *
+     * @throws NoSuchElementException if there are no more values
+     * @throws NumberFormatException  if the value is not a number
+     */
+    public double nextDouble() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more values at byte " + position);
+        }
+        int limit = bytes.limit();
+        int start = position;
+        boolean negative = false;
+        byte b = bytes.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        while (position < limit) {
+            b = bytes.get(position);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (digits < MAX_DIGITS) {
+                    if (mantissa != 0 || b != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else if (!seenPoint) {
+                    // Digit beyond the exact ones, only its place matters
+                    exponent++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (!seenDigit) {
+            throw invalid(start);
+        }
+        if (position < limit && (b == 'e' || b == 'E')) {
+            position++;
+            exponent += nextExponent(start);
+        }
+        if (position < limit && !isSeparator(bytes.get(position))) {
+            throw invalid(start);
+        }
+
+        double value;
+        if (mantissa < MAX_EXACT_MANTISSA && digits < MAX_DIGITS
+                && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so one operation rounds correctly
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text(start, position));
+    }
+
+    /**
+     * Reads the exponent of a double, right after the 'e' or 'E'.
+     *
+     * @param start the position of the value, for error messages
+     *
+     * @return the exponent
+     */
+    private int nextExponent(final int start) {
+        int limit = bytes.limit();
+        boolean negative = false;
+        if (position < limit && (bytes.get(position) == '-' || bytes.get(position) == '+')) {
+            negative = bytes.get(position) == '-';
+            position++;
+        }
+        int exponent = 0;
+        int digits = 0;
+        while (position < limit) {
+            byte b = bytes.get(position);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            // Saturate, anything this large is zero or infinity anyway
+            exponent = Math.min(exponent * 10 + (b - '0'), 100_000);
+            digits++;
+            position++;
+        }
+        if (digits == 0) {
+            throw invalid(start);
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    /**
+     * Creates an exception for the malformed value starting at the given position.
+     *
+     * @param start the position of the first byte of the value
+     *
+     * @return the exception to throw
+     */
+    private NumberFormatException invalid(final int start) {
+        int end = start;
+        while (end < bytes.limit() && !isSeparator(bytes.get(end))) {
+            end++;
+        }
+        String message = "Invalid number \"" + text(start, end) + "\" at byte " + start;
+        return new NumberFormatException(message);
+    }
+
+    /**
+     * Gets the bytes between the given positions as text.
+     *
+     * @param start the first position, inclusive
+     * @param end   the last position, exclusive
+     *
+     * @return the text
+     */
+    private String text(final int start, final int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = (char) bytes.get(i);
+        }
+        return new String(chars);
+    }
+
+    /** Releases the file. The mapping is released once it is unreachable. */
+    public void close() {
+        bytes = ByteBuffer.allocate(0);
+        position = 0;
+    }
+
+}
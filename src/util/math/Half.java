@@ -0,0 +1,100 @@
+package util.math;
+
+/**
+ * Converts between floats and IEEE 754 half precision floats,
+ * which are stored in the 16 bits of a short.
+ * Halves have an 11 bit significand, so they keep about 3 decimal digits.
+ *
+ * @version 1.0
+ */
+public final class Half {
+
+    /** The bits of a half that hold the sign. */
+    private static final int SIGN = 0x8000;
+
+    /** The bits of a half that hold the exponent, all set for infinity and NaN. */
+    private static final int INFINITY = 0x7C00;
+
+    /** The difference between the exponent biases of floats and halves. */
+    private static final int BIAS_DIFFERENCE = 127 - 15;
+
+    /**
+     * Rounds the given float to the nearest half, ties to even.
+     * Values too large for a half become infinite.
+     *
+     * @param f the float to convert
+     *
+     * @return the bits of the half
+     */
+    public static short fromFloat(final float f) {
+        int bits = Float.floatToIntBits(f);
+        int sign = (bits >>> 16) & SIGN;
+        int floatExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (floatExponent == 0xFF) {
+            // Infinity stays infinite, NaN stays NaN
+            return (short) (sign | INFINITY | (mantissa == 0 ? 0 : 0x200));
+        }
+        int exponent = floatExponent - BIAS_DIFFERENCE;
+        if (exponent >= 0x1F) {
+            return (short) (sign | INFINITY);
+        }
+        if (exponent <= 0) {
+            // Subnormal half, including the implicit leading 1
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            return (short) (sign | round(mantissa, shift));
+        }
+        // A carry out of the mantissa correctly increments the exponent
+        return (short) (sign | (exponent << 10) + round(mantissa, 13));
+    }
+
+    /**
+     * Shifts the given bits right, rounding to nearest, ties to even.
+     *
+     * @param bits  the bits to shift
+     * @param shift the number of bits to shift by, at least 1
+     *
+     * @return the rounded, shifted bits
+     */
+    private static int round(final int bits, final int shift) {
+        int result = bits >>> shift;
+        int remainder = bits & ((1 << shift) - 1);
+        int halfway = 1 << (shift - 1);
+        if (remainder > halfway || remainder == halfway && (result & 1) != 0) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Converts the given half to a float, which is always exact.
+     *
+     * @param half the bits of the half
+     *
+     * @return the float of equal value
+     */
+    public static float toFloat(final short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & SIGN) << 16;
+        int exponent = (bits & INFINITY) >>> 10;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            // Zero or subnormal, which is the mantissa times 2^-24
+            float value = mantissa * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+        return Float.intBitsToFloat(sign | (exponent + BIAS_DIFFERENCE) << 23 | mantissa << 13);
+    }
+
+    /** Hides the constructor for this utility class. */
+    private Half() {
+    }
+
+}
@@ -0,0 +1,366 @@
+package util.math;
+
+/**
+ * Represents a mutable 4x4 matrix for transforming homogeneous coordinates.
+ * The sixteen entries are stored as fields, rather than in an array,
+ * so that the JIT compiler can keep them in registers.
+ * All operations modify this matrix or a given destination
+ * and never allocate.
+ * Multiplication reads all operands before writing,
+ * so the destination may be one of the operands.
+ *
+ * @version 1.0
+ */
+public final class Mat4 {
+
+    /** The number of rows and columns. */
+    public static final int SIZE = 4;
+
+    /** Row 0. */
+    private double m00, m01, m02, m03;
+
+    /** Row 1. */
+    private double m10, m11, m12, m13;
+
+    /** Row 2. */
+    private double m20, m21, m22, m23;
+
+    /** Row 3. */
+    private double m30, m31, m32, m33;
+
+    /** Creates an identity {@link Mat4}. */
+    public Mat4() {
+        identity();
+    }
+
+    /**
+     * Creates a copy of the given {@link Mat4}.
+     *
+     * @param that the {@link Mat4} to copy
+     */
+    public Mat4(final Mat4 that) {
+        set(that);
+    }
+
+    /**
+     * Sets this {@link Mat4} to the identity.
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 identity() {
+        return set(1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Sets all entries of this {@link Mat4}, row by row.
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 set(final double a00, final double a01, final double a02, final double a03,
+                    final double a10, final double a11, final double a12, final double a13,
+                    final double a20, final double a21, final double a22, final double a23,
+                    final double a30, final double a31, final double a32, final double a33) {
+        m00 = a00;
+        m01 = a01;
+        m02 = a02;
+        m03 = a03;
+        m10 = a10;
+        m11 = a11;
+        m12 = a12;
+        m13 = a13;
+        m20 = a20;
+        m21 = a21;
+        m22 = a22;
+        m23 = a23;
+        m30 = a30;
+        m31 = a31;
+        m32 = a32;
+        m33 = a33;
+        return this;
+    }
+
+    /**
+     * Copies all entries of the given {@link Mat4}.
+     *
+     * @param that the {@link Mat4} to copy
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 set(final Mat4 that) {
+        return set(that.m00, that.m01, that.m02, that.m03,
+                that.m10, that.m11, that.m12, that.m13,
+                that.m20, that.m21, that.m22, that.m23,
+                that.m30, that.m31, that.m32, that.m33);
+    }
+
+    /**
+     * Sets this {@link Mat4} to a translation by the given offsets.
+     *
+     * @param x the offset along the X axis
+     * @param y the offset along the Y axis
+     * @param z the offset along the Z axis
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 translation(final double x, final double y, final double z) {
+        return set(1, 0, 0, x,
+                0, 1, 0, y,
+                0, 0, 1, z,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Sets this {@link Mat4} to a scaling by the given factors.
+     *
+     * @param x the factor along the X axis
+     * @param y the factor along the Y axis
+     * @param z the factor along the Z axis
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 scaling(final double x, final double y, final double z) {
+        return set(x, 0, 0, 0,
+                0, y, 0, 0,
+                0, 0, z, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Sets this {@link Mat4} to a rotation around the X axis.
+     *
+     * @param angle the angle to rotate by, in radians
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 rotationX(final double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return set(1, 0, 0, 0,
+                0, cos, -sin, 0,
+                0, sin, cos, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Sets this {@link Mat4} to a rotation around the Y axis.
+     *
+     * @param angle the angle to rotate by, in radians
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 rotationY(final double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return set(cos, 0, sin, 0,
+                0, 1, 0, 0,
+                -sin, 0, cos, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Sets this {@link Mat4} to a rotation around the Z axis.
+     *
+     * @param angle the angle to rotate by, in radians
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 rotationZ(final double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return set(cos, -sin, 0, 0,
+                sin, cos, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Gets the entry at the given row and column.
+     *
+     * @param row    the row, from 0 to 3
+     * @param column the column, from 0 to 3
+     *
+     * @return the entry
+     */
+    public double get(final int row, final int column) {
+        switch (row * SIZE + column) {
+            case 0:
+                return m00;
+            case 1:
+                return m01;
+            case 2:
+                return m02;
+            case 3:
+                return m03;
+            case 4:
+                return m10;
+            case 5:
+                return m11;
+            case 6:
+                return m12;
+            case 7:
+                return m13;
+            case 8:
+                return m20;
+            case 9:
+                return m21;
+            case 10:
+                return m22;
+            case 11:
+                return m23;
+            case 12:
+                return m30;
+            case 13:
+                return m31;
+            case 14:
+                return m32;
+            case 15:
+                return m33;
+            default:
+                throw new IndexOutOfBoundsException(row + "," + column);
+        }
+    }
+
+    /**
+     * Multiplies this {@link Mat4} by the given one, (this * right),
+     * and stores the result in this {@link Mat4}.
+     *
+     * @param right the {@link Mat4} to multiply by
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 mul(final Mat4 right) {
+        return mul(right, this);
+    }
+
+    /**
+     * Multiplies the given {@link Mat4} by this one, (left * this),
+     * and stores the result in this {@link Mat4}.
+     *
+     * @param left the {@link Mat4} to multiply with
+     *
+     * @return this {@link Mat4}
+     */
+    public Mat4 premul(final Mat4 left) {
+        return left.mul(this, this);
+    }
+
+    /**
+     * Multiplies this {@link Mat4} by the given one, (this * right),
+     * and stores the result in the given destination.
+     *
+     * @param r    the {@link Mat4} to multiply by
+     * @param dest the {@link Mat4} to store the product in
+     *
+     * @return the destination
+     */
+    public Mat4 mul(final Mat4 r, final Mat4 dest) {
+        return dest.set(
+                m00 * r.m00 + m01 * r.m10 + m02 * r.m20 + m03 * r.m30,
+                m00 * r.m01 + m01 * r.m11 + m02 * r.m21 + m03 * r.m31,
+                m00 * r.m02 + m01 * r.m12 + m02 * r.m22 + m03 * r.m32,
+                m00 * r.m03 + m01 * r.m13 + m02 * r.m23 + m03 * r.m33,
+                m10 * r.m00 + m11 * r.m10 + m12 * r.m20 + m13 * r.m30,
+                m10 * r.m01 + m11 * r.m11 + m12 * r.m21 + m13 * r.m31,
+                m10 * r.m02 + m11 * r.m12 + m12 * r.m22 + m13 * r.m32,
+                m10 * r.m03 + m11 * r.m13 + m12 * r.m23 + m13 * r.m33,
+                m20 * r.m00 + m21 * r.m10 + m22 * r.m20 + m23 * r.m30,
+                m20 * r.m01 + m21 * r.m11 + m22 * r.m21 + m23 * r.m31,
+                m20 * r.m02 + m21 * r.m12 + m22 * r.m22 + m23 * r.m32,
+                m20 * r.m03 + m21 * r.m13 + m22 * r.m23 + m23 * r.m33,
+                m30 * r.m00 + m31 * r.m10 + m32 * r.m20 + m33 * r.m30,
+                m30 * r.m01 + m31 * r.m11 + m32 * r.m21 + m33 * r.m31,
+                m30 * r.m02 + m31 * r.m12 + m32 * r.m22 + m33 * r.m32,
+                m30 * r.m03 + m31 * r.m13 + m32 * r.m23 + m33 * r.m33);
+    }
+
+    /**
+     * Transforms the given homogeneous coordinates
+     * and stores the result in the given destination.
+     *
+     * @param x    the X coordinate
+     * @param y    the Y coordinate
+     * @param z    the Z coordinate
+     * @param w    the W coordinate
+     * @param dest the {@link Vec4} to store the result in
+     *
+     * @return the destination
+     */
+    public Vec4 transform(final double x, final double y, final double z,
+                          final double w, final Vec4 dest) {
+        return dest.set(m00 * x + m01 * y + m02 * z + m03 * w,
+                m10 * x + m11 * y + m12 * z + m13 * w,
+                m20 * x + m21 * y + m22 * z + m23 * w,
+                m30 * x + m31 * y + m32 * z + m33 * w);
+    }
+
+    /**
+     * Transforms the given {@link Vec4}
+     * and stores the result in the given destination.
+     * The destination may be the given {@link Vec4}.
+     *
+     * @param v    the {@link Vec4} to transform
+     * @param dest the {@link Vec4} to store the result in
+     *
+     * @return the destination
+     */
+    public Vec4 transform(final Vec4 v, final Vec4 dest) {
+        return transform(v.getX(), v.getY(), v.getZ(), v.getW(), dest);
+    }
+
+    /**
+     * Transforms the X coordinate of the point (x, y, z, 1).
+     * Together with {@link #transformY} and {@link #transformZ},
+     * this allows transforming points without a {@link Vec4}.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     *
+     * @return the transformed X coordinate
+     */
+    public double transformX(final double x, final double y, final double z) {
+        return m00 * x + m01 * y + m02 * z + m03;
+    }
+
+    /**
+     * Transforms the Y coordinate of the point (x, y, z, 1).
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     *
+     * @return the transformed Y coordinate
+     *
+     * @see #transformX(double, double, double)
+     */
+    public double transformY(final double x, final double y, final double z) {
+        return m10 * x + m11 * y + m12 * z + m13;
+    }
+
+    /**
+     * Transforms the Z coordinate of the point (x, y, z, 1).
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     *
+     * @return the transformed Z coordinate
+     *
+     * @see #transformX(double, double, double)
+     */
+    public double transformZ(final double x, final double y, final double z) {
+        return m20 * x + m21 * y + m22 * z + m23;
+    }
+
+    @Override
+    public String toString() {
+        return "Mat4{" + m00 + "," + m01 + "," + m02 + "," + m03 + ";"
+                + m10 + "," + m11 + "," + m12 + "," + m13 + ";"
+                + m20 + "," + m21 + "," + m22 + "," + m23 + ";"
+                + m30 + "," + m31 + "," + m32 + "," + m33 + "}";
+    }
+
+}
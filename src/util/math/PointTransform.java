@@ -0,0 +1,137 @@
+package util.math;
+
+import org.jblas.DoubleMatrix;
+import org.jblas.SimpleBlas;
+
+/**
+ * Transforms many points at once by a single {@link Mat4}.
+ * The points are stored as consecutive x,y,z coordinates,
+ * which is the same as a column-major 3xN matrix.
+ * They are treated as homogeneous with W equal to 1,
+ * so a transformation is a 3x3 product plus a translation.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public final class PointTransform {
+
+    /**
+     * The number of coordinates per point: X, Y, and Z.
+     * The only definition, used by {@link Kernels} and by the vertex storage.
+     */
+    public static final int COORDINATES = 3;
+
+    /**
+     * Transforms the given points in a single pass over memory.
+     * The source and destination may be the same array.
+     *
+     * @param m      the matrix to transform by
+     * @param src    the coordinates of the points to transform
+     * @param dest   the array to store the transformed coordinates in
+     * @param points the number of points
+     */
+    public static void transform(final Mat4 m, final double[] src,
+                                 final double[] dest, final int points) {
+        double m00 = m.get(0, 0);
+        double m01 = m.get(0, 1);
+        double m02 = m.get(0, 2);
+        double m03 = m.get(0, 3);
+        double m10 = m.get(1, 0);
+        double m11 = m.get(1, 1);
+        double m12 = m.get(1, 2);
+        double m13 = m.get(1, 3);
+        double m20 = m.get(2, 0);
+        double m21 = m.get(2, 1);
+        double m22 = m.get(2, 2);
+        double m23 = m.get(2, 3);
+        int n = points * COORDINATES;
+        for (int i = 0; i < n; i += COORDINATES) {
+            double x = src[i];
+            double y = src[i + 1];
+            double z = src[i + 2];
+            dest[i] = m00 * x + m01 * y + m02 * z + m03;
+            dest[i + 1] = m10 * x + m11 * y + m12 * z + m13;
+            dest[i + 2] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+
+    /**
+     * Transforms the given single precision points in a single pass over memory.
+     * The arithmetic is done in double precision.
+     * The source and destination may be the same array.
+     *
+     * @param m      the matrix to transform by
+     * @param src    the coordinates of the points to transform
+     * @param dest   the array to store the transformed coordinates in
+     * @param points the number of points
+     */
+    public static void transform(final Mat4 m, final float[] src,
+                                 final float[] dest, final int points) {
+        double m00 = m.get(0, 0);
+        double m01 = m.get(0, 1);
+        double m02 = m.get(0, 2);
+        double m03 = m.get(0, 3);
+        double m10 = m.get(1, 0);
+        double m11 = m.get(1, 1);
+        double m12 = m.get(1, 2);
+        double m13 = m.get(1, 3);
+        double m20 = m.get(2, 0);
+        double m21 = m.get(2, 1);
+        double m22 = m.get(2, 2);
+        double m23 = m.get(2, 3);
+        int n = points * COORDINATES;
+        for (int i = 0; i < n; i += COORDINATES) {
+            double x = src[i];
+            double y = src[i + 1];
+            double z = src[i + 2];
+            dest[i] = (float) (m00 * x + m01 * y + m02 * z + m03);
+            dest[i + 1] = (float) (m10 * x + m11 * y + m12 * z + m13);
+            dest[i + 2] = (float) (m20 * x + m21 * y + m22 * z + m23);
+        }
+    }
+
+    /**
+     * Transforms the given points as a single matrix product through jblas.
+     * The destination is first filled with the translation,
+     * then the 3x3 part of the matrix times the 3xN points is added to it.
+     * The source and destination must be different arrays,
+     * each holding exactly the coordinates of the given number of points.
+     *
+     * @param m      the matrix to transform by
+     * @param src    the coordinates of the points to transform
+     * @param dest   the array to store the transformed coordinates in
+     * @param points the number of points
+     *
+     * @throws IllegalArgumentException if the source and destination are the same
+     */
+    public static void gemm(final Mat4 m, final double[] src,
+                            final double[] dest, final int points) {
+        if (src == dest) {
+            throw new IllegalArgumentException("gemm cannot transform in place");
+        }
+        DoubleMatrix linear = new DoubleMatrix(COORDINATES, COORDINATES);
+        for (int row = 0; row < COORDINATES; row++) {
+            for (int column = 0; column < COORDINATES; column++) {
+                linear.put(row, column, m.get(row, column));
+            }
+        }
+        double tx = m.get(0, 3);
+        double ty = m.get(1, 3);
+        double tz = m.get(2, 3);
+        int n = points * COORDINATES;
+        for (int i = 0; i < n; i += COORDINATES) {
+            dest[i] = tx;
+            dest[i + 1] = ty;
+            dest[i + 2] = tz;
+        }
+        // Both matrices use the arrays directly, without copying
+        DoubleMatrix a = new DoubleMatrix(COORDINATES, points, src);
+        DoubleMatrix c = new DoubleMatrix(COORDINATES, points, dest);
+        SimpleBlas.gemm(1, linear, a, 1, c);
+    }
+
+    /** Hides the constructor for this utility class. */
+    private PointTransform() {
+    }
+
+}
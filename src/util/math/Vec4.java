@@ -0,0 +1,105 @@
+package util.math;
+
+/**
+ * Represents a mutable homogeneous vector (x, y, z, w).
+ *
+ * @version 1.0
+ */
+public final class Vec4 {
+
+    /** The X coordinate. */
+    private double x;
+
+    /** The Y coordinate. */
+    private double y;
+
+    /** The Z coordinate. */
+    private double z;
+
+    /** The W coordinate. */
+    private double w;
+
+    /** Creates a {@link Vec4} at the origin, with W equal to 1. */
+    public Vec4() {
+        this(0, 0, 0, 1);
+    }
+
+    /**
+     * Creates a {@link Vec4} with the given coordinates.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @param w the W coordinate
+     */
+    public Vec4(final double x, final double y, final double z, final double w) {
+        set(x, y, z, w);
+    }
+
+    /**
+     * Sets the coordinates of this {@link Vec4}.
+     *
+     * @param newX the X coordinate
+     * @param newY the Y coordinate
+     * @param newZ the Z coordinate
+     * @param newW the W coordinate
+     *
+     * @return this {@link Vec4}
+     */
+    public Vec4 set(final double newX, final double newY,
+                    final double newZ, final double newW) {
+        x = newX;
+        y = newY;
+        z = newZ;
+        w = newW;
+        return this;
+    }
+
+    /**
+     * Copies the coordinates of the given {@link Vec4}.
+     *
+     * @param that the {@link Vec4} to copy
+     *
+     * @return this {@link Vec4}
+     */
+    public Vec4 set(final Vec4 that) {
+        return set(that.x, that.y, that.z, that.w);
+    }
+
+    /** @return the X coordinate */
+    public double getX() {
+        return x;
+    }
+
+    /** @return the Y coordinate */
+    public double getY() {
+        return y;
+    }
+
+    /** @return the Z coordinate */
+    public double getZ() {
+        return z;
+    }
+
+    /** @return the W coordinate */
+    public double getW() {
+        return w;
+    }
+
+    /**
+     * Calculates the dot product of the X, Y, and Z coordinates.
+     *
+     * @param that the second {@link Vec4} to multiply
+     *
+     * @return this * that, ignoring W
+     */
+    public double dot3(final Vec4 that) {
+        return x * that.x + y * that.y + z * that.z;
+    }
+
+    @Override
+    public String toString() {
+        return "Vec4{" + x + "," + y + "," + z + "," + w + "}";
+    }
+
+}
@@ -0,0 +1,8 @@
+/**
+ * This package provides small, fixed-size vectors and matrices
+ * for homogeneous 3D coordinates.
+ * Operations are done in place or into a given destination,
+ * so that they do not allocate.
+ * Large linear algebra should still use jblas.
+ */
+package util.math;
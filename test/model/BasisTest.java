@@ -0,0 +1,97 @@
+package model;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static model.VertexBuffer.COORDINATES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a {@link Basis} only reads the columns a synthesis needs,
+ * and reads each of them once.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+public class BasisTest {
+
+    /** The number of points of each column. */
+    private static final int POINTS = 10;
+
+    /** The number of columns. */
+    private static final int COLUMNS = 8;
+
+    /** The columns read from the source. */
+    private final Set<Integer> read = new HashSet<>();
+
+    /** The number of times any column was read. */
+    private int reads = 0;
+
+    /**
+     * Reads a column whose values are its index plus their position divided by 1000.
+     *
+     * @param column the index of the column
+     *
+     * @return the values of the column
+     */
+    private DoubleBuffer column(final int column) {
+        read.add(column);
+        reads++;
+        double[] values = new double[POINTS * COORDINATES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column + i / 1000.0;
+        }
+        return DoubleBuffer.wrap(values);
+    }
+
+    /** Only the columns with a non-zero coefficient are read. */
+    @Test
+    public void loadsOnlyNonZeroColumns() {
+        Basis basis = Basis.onDemand(POINTS, COLUMNS, this::column);
+        assertEquals(0, reads);
+        double[] coefficients = new double[COLUMNS];
+        coefficients[2] = 0.5;
+        coefficients[6] = -1;
+        basis.load(coefficients);
+        assertEquals(new HashSet<>(Arrays.asList(2, 6)), read);
+
+        basis.load(coefficients);
+        basis.load(6);
+        assertEquals(2, reads);
+
+        double[] sum = new double[POINTS * COORDINATES];
+        basis.addColumn(2, 0.5, sum, 0, POINTS);
+        basis.addColumn(6, -1, sum, 0, POINTS);
+        double[] expected = new double[sum.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = 0.5 * (2 + i / 1000.0) - (6 + i / 1000.0);
+        }
+        assertArrayEquals(expected, sum, 1e-12);
+    }
+
+    /** Only a range of points is added. */
+    @Test
+    public void addsRanges() {
+        Basis basis = Basis.onDemand(POINTS, COLUMNS, this::column);
+        basis.load(1);
+        double[] sum = new double[POINTS * COORDINATES];
+        basis.addColumn(1, 2, sum, 3, 5);
+        for (int i = 0; i < sum.length; i++) {
+            boolean inRange = i >= 3 * COORDINATES && i < 5 * COORDINATES;
+            assertEquals(inRange ? 2 * (1 + i / 1000.0) : 0, sum[i], 1e-12);
+        }
+    }
+
+    /** A column with the wrong number of values is rejected. */
+    @Test(expected = IllegalStateException.class)
+    public void rejectsWrongLength() {
+        Basis basis = Basis.onDemand(POINTS, COLUMNS, column -> DoubleBuffer.allocate(1));
+        basis.load(0);
+    }
+
+}
@@ -0,0 +1,335 @@
+package model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static model.VertexBuffer.COORDINATES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a {@link ModelFile} reads back what was written to it,
+ * in every {@link ModelFile.Encoding}, with and without compression,
+ * and that it rejects files that are not whole model files.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public class ModelFileTest {
+
+    /** The number of points of each face. */
+    private static final int POINTS = 200;
+
+    /** The number of triangles of the mesh. */
+    private static final int TRIANGLES = 50;
+
+    /** The number of components. */
+    private static final int COMPONENTS = 3;
+
+    /** Holds the model files. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The mesh indexes that are written. */
+    private final int[] indexes = new int[TRIANGLES * Mesh.CORNERS];
+
+    /** The average shape and color that are written. */
+    private final double[][] averages = new double[2][POINTS * COORDINATES];
+
+    /** The shape and color weights that are written. */
+    private final double[][] weights = new double[2][COMPONENTS];
+
+    /** The shape and color of each component that are written. */
+    private final double[][][] basis = new double[2][COMPONENTS][POINTS * COORDINATES];
+
+    /** Fills in a random model. */
+    public ModelFileTest() {
+        Random random = new Random(11);
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = random.nextInt(POINTS);
+        }
+        for (int s = 0; s < 2; s++) {
+            for (int i = 0; i < averages[s].length; i++) {
+                averages[s][i] = random.nextGaussian() * 1000;
+            }
+            for (int c = 0; c < COMPONENTS; c++) {
+                weights[s][c] = random.nextDouble() * 100;
+                for (int i = 0; i < basis[s][c].length; i++) {
+                    basis[s][c][i] = random.nextGaussian() * (c + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the model to a new file.
+     *
+     * @param encoding   the way to store the components
+     * @param compressed whether to deflate the components
+     *
+     * @return the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private File write(final ModelFile.Encoding encoding, final boolean compressed)
+            throws IOException {
+        File file = folder.newFile();
+        try (ModelFile.Writer writer = ModelFile.create(file.getPath(), POINTS, TRIANGLES,
+                COMPONENTS, encoding, compressed)) {
+            writer.putIndexes(indexes);
+            writer.putAverage(averages[0], averages[1]);
+            writer.putWeights(weights[0], weights[1]);
+            for (int c = 0; c < COMPONENTS; c++) {
+                writer.putShapeComponent(c, basis[0][c]);
+                writer.putColorComponent(c, basis[1][c]);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @param buffer the values to copy
+     *
+     * @return the remaining values of the buffer
+     */
+    private static double[] toArray(final DoubleBuffer buffer) {
+        double[] values = new double[buffer.remaining()];
+        buffer.duplicate().get(values);
+        return values;
+    }
+
+    /**
+     * Checks that a stored component is within its recorded error of the written one,
+     * and that the error is within what the encoding allows.
+     *
+     * @param expected the written values
+     * @param actual   the stored values
+     * @param error    the recorded error
+     * @param encoding the way the values are stored
+     */
+    private static void assertWithinError(final double[] expected, final DoubleBuffer actual,
+                                          final double error,
+                                          final ModelFile.Encoding encoding) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : expected) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double range = max - min;
+        switch (encoding) {
+            case INT16:
+                assertTrue(error <= range / (2 * Short.MAX_VALUE));
+                break;
+            case HALF:
+                assertTrue(error <= range / 2048);
+                break;
+            default:
+                assertEquals(0, error, 0);
+                break;
+        }
+        assertArrayEquals(expected, toArray(actual), error);
+    }
+
+    /**
+     * Writes and reads back the model in the given way.
+     *
+     * @param encoding   the way to store the components
+     * @param compressed whether to deflate the components
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void assertRoundTrip(final ModelFile.Encoding encoding, final boolean compressed)
+            throws IOException {
+        ModelFile model = ModelFile.open(write(encoding, compressed).getPath());
+        assertNotNull(model);
+        assertEquals(POINTS, model.getPointCount());
+        assertEquals(TRIANGLES, model.getTriangleCount());
+        assertEquals(COMPONENTS, model.getComponentCount());
+        assertEquals(encoding, model.getEncoding());
+        assertEquals(compressed, model.isCompressed());
+
+        IntBuffer storedIndexes = model.getIndexes();
+        int[] read = new int[storedIndexes.remaining()];
+        storedIndexes.get(read);
+        assertArrayEquals(indexes, read);
+        assertArrayEquals(averages[0], toArray(model.getAverageShape()), 0);
+        assertArrayEquals(averages[1], toArray(model.getAverageColor()), 0);
+        assertArrayEquals(weights[0], toArray(model.getShapeWeights()), 0);
+        assertArrayEquals(weights[1], toArray(model.getColorWeights()), 0);
+        for (int c = 0; c < COMPONENTS; c++) {
+            assertWithinError(basis[0][c], model.getShapeComponent(c),
+                    model.getShapeError(c), encoding);
+            assertWithinError(basis[1][c], model.getColorComponent(c),
+                    model.getColorError(c), encoding);
+        }
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void roundTripsEveryEncoding() throws IOException {
+        for (ModelFile.Encoding encoding : ModelFile.Encoding.values()) {
+            assertRoundTrip(encoding, false);
+            assertRoundTrip(encoding, true);
+        }
+    }
+
+    /** There is no model without a file. */
+    @Test
+    public void missingFile() {
+        assertNull(ModelFile.open(new File(folder.getRoot(), "missing.fmdl").getPath()));
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        for (ModelFile.Encoding encoding : ModelFile.Encoding.values()) {
+            for (boolean compressed : new boolean[]{false, true}) {
+                File file = write(encoding, compressed);
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(raf.length() - 1);
+                }
+                assertNull(encoding + (compressed ? ", compressed" : ""),
+                        ModelFile.open(file.getPath()));
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(40);
+                }
+                assertNull(ModelFile.open(file.getPath()));
+            }
+        }
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File file = write(ModelFile.Encoding.DOUBLE, false);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.write('X');
+        }
+        assertNull(ModelFile.open(file.getPath()));
+
+        file = write(ModelFile.Encoding.DOUBLE, false);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(Integer.BYTES);
+            raf.write(ModelFile.VERSION + 1);
+        }
+        assertNull(ModelFile.open(file.getPath()));
+
+        file = write(ModelFile.Encoding.DOUBLE, false);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(5 * Integer.BYTES);
+            raf.write(ModelFile.Encoding.values().length);
+        }
+        assertNull(ModelFile.open(file.getPath()));
+    }
+
+    /**
+     * Components of a single point take 48 bytes as doubles but 128 once aligned,
+     * so this many only fit in a single mapping if the padding is ignored.
+     *
+     * @throws IOException if a file cannot be written
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void countsThePaddingOfComponents() throws IOException {
+        ModelFile.create(folder.newFile().getPath(), 1, 0, 12_000_000,
+                ModelFile.Encoding.DOUBLE, false).close();
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test(expected = IllegalStateException.class)
+    public void rejectsCorruptComponents() throws IOException {
+        File file = write(ModelFile.Encoding.INT16, true);
+        long data = firstComponent(POINTS, TRIANGLES, COMPONENTS);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(data);
+            // The zlib header of the best compression
+            assertEquals(0x78, raf.read());
+            assertEquals(0xDA, raf.read());
+            raf.seek(data);
+            raf.write(new byte[]{0, 0});
+        }
+        ModelFile model = ModelFile.open(file.getPath());
+        assertNotNull(model);
+        model.getColorComponent(0);
+        model.getShapeComponent(0);
+    }
+
+    /**
+     * Replaces a component larger than one chunk of input
+     * with a deflate stream of only a few values,
+     * followed by the rest of the original stream.
+     *
+     * @throws IOException if a file cannot be written
+     */
+    @Test(expected = IllegalStateException.class, timeout = 10_000)
+    public void rejectsComponentsThatEndEarly() throws IOException {
+        int points = 10_000;
+        Random random = new Random(13);
+        double[] component = new double[points * COORDINATES];
+        for (int i = 0; i < component.length; i++) {
+            component[i] = random.nextGaussian();
+        }
+        File file = folder.newFile();
+        try (ModelFile.Writer writer = ModelFile.create(file.getPath(), points, 0, 1,
+                ModelFile.Encoding.INT16, true)) {
+            writer.putIndexes(new int[0]);
+            writer.putAverage(new double[component.length], new double[component.length]);
+            writer.putWeights(new double[1], new double[1]);
+            writer.putShapeComponent(0, component);
+            writer.putColorComponent(0, component);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(new byte[10]);
+        deflater.finish();
+        byte[] stream = new byte[64];
+        int length = deflater.deflate(stream);
+        assertTrue(deflater.finished());
+        deflater.end();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(firstComponent(points, 0, 1));
+            raf.write(stream, 0, length);
+        }
+        ModelFile model = ModelFile.open(file.getPath());
+        assertNotNull(model);
+        model.getShapeComponent(0);
+    }
+
+    /**
+     * @param points     the number of points of a face
+     * @param triangles  the number of triangles in the mesh
+     * @param components the number of components
+     *
+     * @return the offset of the first shape component,
+     * which is written first, right after the fixed blocks
+     */
+    private static long firstComponent(final int points, final int triangles,
+                                       final int components) {
+        return 64 + align(triangles * Mesh.CORNERS * Integer.BYTES)
+                + 2 * align(points * COORDINATES * Double.BYTES)
+                + 2 * align(components * Double.BYTES) + align(2 * components * 40);
+    }
+
+    /**
+     * @param offset the offset to align
+     *
+     * @return the offset rounded up to the next multiple of 64 bytes
+     */
+    private static long align(final long offset) {
+        return (offset + 63) / 64 * 64;
+    }
+
+}
@@ -0,0 +1,245 @@
+package model;
+
+import org.jblas.DoubleMatrix;
+import org.junit.Test;
+
+import static main.Main.PROPS;
+import static model.RandomModel.TOLERANCE;
+import static model.RandomModel.assertFace;
+import static model.RandomModel.assertSameFace;
+import static model.VertexBuffer.COORDINATES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the syntheses of a {@link MorphableModel} against a naive
+ * mean + basis * (weights .* coefficients), calculated one value at a time,
+ * and sparse and batch syntheses against the dense one.
+ *
+ * @author 150009974
+ * @version 1.4
+ */
+public class MorphableModelTest {
+
+    /** The number of points of each face. */
+    private static final int POINTS = 500;
+
+    /** The number of components. */
+    private static final int COMPONENTS = 20;
+
+    /** The largest number of {@link Face}s synthesised by a single gemm. */
+    private static final int BATCH_COLUMNS = PROPS.getInt("synthesis batch columns");
+
+    /** The model being tested. */
+    private final RandomModel fixture = new RandomModel(5, POINTS, COMPONENTS);
+
+    /** The {@link MorphableModel} of the {@link #fixture}. */
+    private final MorphableModel model = fixture.getModel();
+
+    /** The mean face is synthesised from no coefficients. */
+    @Test
+    public void zeroCoefficientsGiveTheMean() {
+        double[] zeros = new double[COMPONENTS];
+        assertFace(fixture.expected(zeros), model.synthesise(zeros));
+    }
+
+    /** A dense synthesis matches the naive one. */
+    @Test
+    public void denseSynthesis() {
+        for (int t = 0; t < 5; t++) {
+            double[] coefficients = fixture.coefficients();
+            assertFace(fixture.expected(coefficients), model.synthesise(coefficients));
+        }
+    }
+
+    /** Synthesising into an existing {@link Face} gives the same {@link Face}. */
+    @Test
+    public void synthesiseIntoReusesTheTarget() {
+        Face target = model.synthesise(new double[COMPONENTS]);
+        for (int t = 0; t < 3; t++) {
+            double[] coefficients = fixture.coefficients();
+            model.synthesiseInto(coefficients, target);
+            assertFace(fixture.expected(coefficients), target);
+        }
+    }
+
+    /** Faces large enough to be synthesised in ranges match the naive synthesis. */
+    @Test
+    public void largeSynthesis() {
+        RandomModel large = new RandomModel(6, 60_000, 3);
+        double[] coefficients = large.coefficients();
+        assertFace(large.expected(coefficients), large.getModel().synthesise(coefficients));
+    }
+
+    /**
+     * A reduced rank keeps the shape components that contribute the most,
+     * and reports whether it left any out.
+     */
+    @Test
+    public void reducedRank() {
+        double[] coefficients = fixture.coefficients();
+        assertFace(fixture.expected(coefficients),
+                model.synthesise(coefficients, COMPONENTS));
+
+        double[] sparse = new double[COMPONENTS];
+        sparse[3] = coefficients[3];
+        sparse[11] = coefficients[11];
+        assertFace(fixture.expected(sparse), model.synthesise(sparse, 2));
+        assertEquals(1, model.getShapeEnergy(sparse, 2), 0);
+
+        double first = sparse[3] * fixture.getShapeWeight(3);
+        double second = sparse[11] * fixture.getShapeWeight(11);
+        int largest = Math.abs(first) >= Math.abs(second) ? 3 : 11;
+        double[] kept = new double[COMPONENTS];
+        kept[largest] = sparse[largest];
+        double[][] expected = fixture.expected(kept);
+        Face face = model.synthesise(sparse, 1);
+        for (int p = 0; p < POINTS; p++) {
+            assertEquals(expected[0][p * COORDINATES], face.getX(p), TOLERANCE);
+            assertEquals(expected[0][p * COORDINATES + 1], face.getY(p), TOLERANCE);
+            assertEquals(expected[0][p * COORDINATES + 2], face.getZ(p), TOLERANCE);
+        }
+        double energy = Math.max(first * first, second * second)
+                / (first * first + second * second);
+        assertEquals(energy, model.getShapeEnergy(sparse, 1), 1e-12);
+
+        Face target = model.synthesise(new double[COMPONENTS]);
+        assertFalse(model.synthesiseInto(sparse, 2, target));
+        assertFace(fixture.expected(sparse), target);
+        assertTrue(model.synthesiseInto(sparse, 1, target));
+        assertTrue(model.synthesiseInto(coefficients, COMPONENTS - 1, target));
+        assertFalse(model.synthesiseInto(coefficients, COMPONENTS, target));
+    }
+
+    /**
+     * Checks that a sparse synthesis matches the dense synthesis
+     * of the same coefficients, and the naive one.
+     *
+     * @param components   the index of each non-zero component
+     * @param coefficients the coefficient of each of those components
+     */
+    private void assertSparseLikeDense(final int[] components, final double[] coefficients) {
+        double[] dense = new double[COMPONENTS];
+        for (int i = 0; i < components.length; i++) {
+            dense[components[i]] += coefficients[i];
+        }
+        Face sparse = model.synthesise(components, coefficients);
+        assertFace(fixture.expected(dense), sparse);
+        assertSameFace(model.synthesise(dense), sparse, TOLERANCE);
+    }
+
+    /** A few components are added one by one, like the dense synthesis. */
+    @Test
+    public void sparseSynthesis() {
+        assertSparseLikeDense(new int[0], new double[0]);
+        assertSparseLikeDense(new int[]{7}, new double[]{0.8});
+        assertSparseLikeDense(new int[]{19, 0, 4}, fixture.coefficients(3));
+    }
+
+    /** A component listed more than once gets the sum of its coefficients. */
+    @Test
+    public void sparseRepeatedComponents() {
+        assertSparseLikeDense(new int[]{2, 9, 2}, new double[]{0.5, -0.25, 0.3});
+    }
+
+    /** Many components are scattered into a dense synthesis. */
+    @Test
+    public void sparseManyComponents() {
+        int[] components = new int[COMPONENTS / 2];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = 2 * i + 1;
+        }
+        assertSparseLikeDense(components, fixture.coefficients(components.length));
+    }
+
+    /** Components must exist. */
+    @Test(expected = IllegalArgumentException.class)
+    public void sparseRejectsMissingComponents() {
+        model.synthesise(new int[]{COMPONENTS}, new double[]{1});
+    }
+
+    /** Every component must have a coefficient. */
+    @Test(expected = IllegalArgumentException.class)
+    public void sparseRejectsMismatchedArrays() {
+        model.synthesise(new int[]{1, 2}, new double[]{1});
+    }
+
+    /**
+     * Checks that a batch {@link Face} matches the dense synthesis of its coefficients.
+     *
+     * @param coefficients the coefficients of the batch, one column per {@link Face}
+     * @param column       the column of the {@link Face}
+     * @param actual       the {@link Face} synthesised in the batch
+     */
+    private void assertBatchLikeDense(final DoubleMatrix coefficients, final int column,
+                                      final Face actual) {
+        double[] dense = coefficients.getColumn(column).toArray();
+        assertSameFace(model.synthesise(dense), actual, TOLERANCE);
+    }
+
+    /** Every column of a batch, across several gemms, matches the dense synthesis. */
+    @Test
+    public void batchSynthesis() {
+        int faces = BATCH_COLUMNS + 3;
+        DoubleMatrix coefficients = new DoubleMatrix(COMPONENTS, faces);
+        for (int m = 0; m < faces; m++) {
+            coefficients.putColumn(m, new DoubleMatrix(fixture.coefficients()));
+        }
+        Face[] batch = model.synthesise(coefficients);
+        assertEquals(faces, batch.length);
+        for (int m = 0; m < faces; m++) {
+            assertBatchLikeDense(coefficients, m, batch[m]);
+        }
+        assertFace(fixture.expected(coefficients.getColumn(faces - 1).toArray()),
+                batch[faces - 1]);
+    }
+
+    /** A batch can be synthesised into existing {@link VertexBuffer}s. */
+    @Test
+    public void batchSynthesisIntoBuffers() {
+        DoubleMatrix coefficients = new DoubleMatrix(COMPONENTS, 3);
+        coefficients.putColumn(0, new DoubleMatrix(fixture.coefficients()));
+        coefficients.put(5, 2, 1);
+        VertexBuffer[] outputs = new VertexBuffer[3];
+        for (int m = 0; m < outputs.length; m++) {
+            outputs[m] = VertexBuffer.allocate(POINTS);
+        }
+        model.synthesise(coefficients, outputs);
+        for (int m = 0; m < outputs.length; m++) {
+            assertBatchLikeDense(coefficients, m, new Face(outputs[m]));
+        }
+    }
+
+    /** There must be one row of coefficients per component. */
+    @Test(expected = IllegalArgumentException.class)
+    public void batchRejectsWrongRows() {
+        model.synthesise(new DoubleMatrix(COMPONENTS - 1, 2));
+    }
+
+    /** There must be one output per column, of the right size. */
+    @Test
+    public void batchRejectsWrongOutputs() {
+        DoubleMatrix coefficients = new DoubleMatrix(COMPONENTS, 2);
+        VertexBuffer[][] wrong = {
+                {VertexBuffer.allocate(POINTS)},
+                {VertexBuffer.allocate(POINTS), VertexBuffer.allocate(POINTS - 1)},
+        };
+        for (VertexBuffer[] outputs : wrong) {
+            try {
+                model.synthesise(coefficients, outputs);
+                fail("Synthesised into " + outputs.length + " outputs");
+            } catch (IllegalArgumentException expected) {
+                // Rejected before anything is written
+            }
+        }
+    }
+
+    /** Coefficients must match the components. */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongCoefficientCount() {
+        model.synthesise(new double[COMPONENTS + 1]);
+    }
+
+}
@@ -0,0 +1,165 @@
+package model;
+
+import org.jblas.DoubleMatrix;
+
+import java.util.Random;
+
+import static model.VertexBuffer.COORDINATES;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A random {@link MorphableModel} for tests, with the matrices it was created from,
+ * so that its syntheses can be checked against a naive calculation.
+ * Colors stay well within 0 to 255 for coefficients between -1 and 1.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+final class RandomModel {
+
+    /** The largest difference allowed between two coordinates that are calculated alike. */
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * Checks that a {@link Face} has the expected shape and color.
+     * Colors are truncated to whole channels, so rounding may move them by one.
+     *
+     * @param expected the x,y,z then the r,g,b of every point
+     * @param actual   the synthesised {@link Face}
+     */
+    static void assertFace(final double[][] expected, final Face actual) {
+        assertEquals(expected[0].length / COORDINATES, actual.size());
+        for (int p = 0; p < actual.size(); p++) {
+            int i = p * COORDINATES;
+            assertEquals(expected[0][i], actual.getX(p), TOLERANCE);
+            assertEquals(expected[0][i + 1], actual.getY(p), TOLERANCE);
+            assertEquals(expected[0][i + 2], actual.getZ(p), TOLERANCE);
+            int rgb = actual.getRGB(p);
+            assertEquals((int) expected[1][i], PackedColor.red(rgb), 1);
+            assertEquals((int) expected[1][i + 1], PackedColor.green(rgb), 1);
+            assertEquals((int) expected[1][i + 2], PackedColor.blue(rgb), 1);
+        }
+    }
+
+    /**
+     * Checks that two {@link Face}s have the same shape and color.
+     *
+     * @param expected  the expected {@link Face}
+     * @param actual    the actual {@link Face}
+     * @param tolerance the largest difference allowed between two coordinates,
+     *                  0 for bit-identical {@link Face}s,
+     *                  otherwise colors may differ by one
+     */
+    static void assertSameFace(final Face expected, final Face actual, final double tolerance) {
+        assertEquals(expected.size(), actual.size());
+        int channels = tolerance == 0 ? 0 : 1;
+        for (int p = 0; p < expected.size(); p++) {
+            assertEquals(expected.getX(p), actual.getX(p), tolerance);
+            assertEquals(expected.getY(p), actual.getY(p), tolerance);
+            assertEquals(expected.getZ(p), actual.getZ(p), tolerance);
+            int expectedRGB = expected.getRGB(p);
+            int actualRGB = actual.getRGB(p);
+            assertEquals(PackedColor.red(expectedRGB), PackedColor.red(actualRGB), channels);
+            assertEquals(PackedColor.green(expectedRGB), PackedColor.green(actualRGB), channels);
+            assertEquals(PackedColor.blue(expectedRGB), PackedColor.blue(actualRGB), channels);
+        }
+    }
+
+    /** Generates the model and coefficients. */
+    private final Random random;
+
+    /** The shape and color means. */
+    private final DoubleMatrix[] means = new DoubleMatrix[2];
+
+    /** The shape and color bases. */
+    private final DoubleMatrix[] bases = new DoubleMatrix[2];
+
+    /** The shape and color weights. */
+    private final double[][] weights = new double[2][];
+
+    /** The model created from the matrices. */
+    private final MorphableModel model;
+
+    /**
+     * Creates a random model.
+     *
+     * @param seed       the seed of the model and of its coefficients
+     * @param points     the number of points of each face
+     * @param components the number of components
+     */
+    RandomModel(final long seed, final int points, final int components) {
+        random = new Random(seed);
+        int rows = points * COORDINATES;
+        for (int s = 0; s < 2; s++) {
+            means[s] = new DoubleMatrix(rows, 1);
+            bases[s] = new DoubleMatrix(rows, components);
+            weights[s] = new double[components];
+            for (int i = 0; i < rows; i++) {
+                means[s].data[i] = s == 0 ? random.nextGaussian() * 100
+                        : 64 + random.nextDouble() * 128;
+            }
+            for (int i = 0; i < bases[s].data.length; i++) {
+                bases[s].data[i] = random.nextGaussian();
+            }
+            for (int k = 0; k < components; k++) {
+                weights[s][k] = random.nextDouble() * 60 / components;
+            }
+        }
+        model = new MorphableModel(means[0], bases[0], weights[0],
+                means[1], bases[1], weights[1]);
+    }
+
+    /** @return the model */
+    MorphableModel getModel() {
+        return model;
+    }
+
+    /**
+     * @param component the index of a component
+     *
+     * @return the shape weight of that component
+     */
+    double getShapeWeight(final int component) {
+        return weights[0][component];
+    }
+
+    /** @return random coefficients between -1 and 1, one per component */
+    double[] coefficients() {
+        return coefficients(model.getComponentCount());
+    }
+
+    /**
+     * @param count the number of coefficients
+     *
+     * @return random coefficients between -1 and 1
+     */
+    double[] coefficients(final int count) {
+        double[] coefficients = new double[count];
+        for (int k = 0; k < count; k++) {
+            coefficients[k] = random.nextDouble() * 2 - 1;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Synthesises the given coefficients one value at a time.
+     *
+     * @param coefficients the coefficient of each component
+     *
+     * @return the x,y,z then the r,g,b of every point
+     */
+    double[][] expected(final double[] coefficients) {
+        double[][] expected = new double[2][means[0].rows];
+        for (int s = 0; s < 2; s++) {
+            for (int i = 0; i < expected[s].length; i++) {
+                double value = means[s].get(i);
+                for (int k = 0; k < coefficients.length; k++) {
+                    value += bases[s].get(i, k) * weights[s][k] * coefficients[k];
+                }
+                expected[s][i] = value;
+            }
+        }
+        return expected;
+    }
+
+}
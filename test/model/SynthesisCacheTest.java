@@ -0,0 +1,48 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a {@link SynthesisCache} keeps working after a synthesis fails.
+ *
+ * @author 150009974
+ * @version 1.0
+ */
+public class SynthesisCacheTest {
+
+    /** The coefficients synthesised by every test. */
+    private static final double[] COEFFICIENTS = {0.25, 0.75};
+
+    /**
+     * @param coefficients the coefficients to synthesise
+     *
+     * @return a {@link Face} of one point, at the given coefficients
+     */
+    private static Face synthesise(final double[] coefficients) {
+        return new Face(new double[]{coefficients[0], coefficients[1], 0},
+                new int[]{PackedColor.pack(0, 0, 0)});
+    }
+
+    /** A synthesis that throws an {@link Error} does not block later requests. */
+    @Test(timeout = 10_000)
+    public void recoversFromErrors() {
+        SynthesisCache cache = new SynthesisCache(1 << 20, 0.001);
+        try {
+            cache.get(COEFFICIENTS, coefficients -> {
+                throw new UnsatisfiedLinkError("No native BLAS");
+            });
+            fail("The error was not thrown");
+        } catch (UnsatisfiedLinkError expected) {
+            // Thrown to the caller, as it was by the synthesiser
+        }
+        Face face = cache.get(COEFFICIENTS, SynthesisCacheTest::synthesise);
+        assertEquals(0.75, face.getY(0), 0);
+        assertEquals(2, cache.getMisses());
+        cache.get(COEFFICIENTS, SynthesisCacheTest::synthesise);
+        assertEquals(1, cache.getHits());
+    }
+
+}
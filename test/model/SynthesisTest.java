@@ -0,0 +1,114 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static main.Main.PROPS;
+import static model.RandomModel.TOLERANCE;
+import static model.RandomModel.assertSameFace;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a {@link Synthesis} updated one coefficient at a time
+ * stays close to a full synthesis of its coefficients,
+ * and is exactly a full synthesis once it is refreshed.
+ *
+ * @author 150009974
+ * @version 1.1
+ */
+public class SynthesisTest {
+
+    /** The number of points of each face. */
+    private static final int POINTS = 400;
+
+    /** The number of components. */
+    private static final int COMPONENTS = 12;
+
+    /** The number of changed coefficients after which everything is recalculated. */
+    private static final int REFRESH_INTERVAL = PROPS.getInt("synthesis refresh interval");
+
+    /** The model being synthesised from. */
+    private final RandomModel fixture = new RandomModel(3, POINTS, COMPONENTS);
+
+    /** The {@link MorphableModel} of the {@link #fixture}. */
+    private final MorphableModel model = fixture.getModel();
+
+    /** Picks the changes to make. */
+    private final Random random = new Random(4);
+
+    /** A new {@link Synthesis} is a full synthesis of its coefficients. */
+    @Test
+    public void startsFromAFullSynthesis() {
+        double[] coefficients = fixture.coefficients();
+        Synthesis synthesis = model.startSynthesis(coefficients);
+        assertSameFace(model.synthesise(coefficients), synthesis.toFace(), 0);
+    }
+
+    /**
+     * Changes before the refresh interval are added incrementally and stay close,
+     * and the change that reaches the interval recalculates everything exactly.
+     */
+    @Test
+    public void incrementalUntilRefreshed() {
+        double[] coefficients = fixture.coefficients();
+        Synthesis synthesis = model.startSynthesis(coefficients);
+        for (int change = 1; change < REFRESH_INTERVAL; change++) {
+            int component = random.nextInt(COMPONENTS);
+            coefficients[component] += random.nextDouble() - 0.5;
+            synthesis.setCoefficient(component, coefficients[component]);
+            assertSameFace(model.synthesise(coefficients), synthesis.toFace(), TOLERANCE);
+        }
+        coefficients[0] += 0.25;
+        synthesis.setCoefficient(0, coefficients[0]);
+        assertSameFace(model.synthesise(coefficients), synthesis.toFace(), 0);
+    }
+
+    /** Setting a coefficient to its current value changes nothing. */
+    @Test
+    public void unchangedCoefficientsAreNotCounted() {
+        double[] coefficients = fixture.coefficients();
+        Synthesis synthesis = model.startSynthesis(coefficients);
+        for (int change = 1; change < REFRESH_INTERVAL; change++) {
+            synthesis.setCoefficients(coefficients);
+            coefficients[change % COMPONENTS] *= -1;
+            synthesis.setCoefficient(change % COMPONENTS, coefficients[change % COMPONENTS]);
+        }
+        // Only the changes above count, so this one reaches the interval
+        coefficients[1] += 0.5;
+        synthesis.setCoefficient(1, coefficients[1]);
+        assertSameFace(model.synthesise(coefficients), synthesis.toFace(), 0);
+    }
+
+    /** An explicit refresh recalculates everything exactly. */
+    @Test
+    public void refresh() {
+        double[] coefficients = fixture.coefficients();
+        Synthesis synthesis = model.startSynthesis(new double[COMPONENTS]);
+        synthesis.setCoefficients(coefficients);
+        synthesis.refresh();
+        Face target = model.synthesise(new double[COMPONENTS]);
+        synthesis.toFace(target);
+        assertSameFace(model.synthesise(coefficients), target, 0);
+    }
+
+    /** The coefficients are copied in and out. */
+    @Test
+    public void coefficientsAreCopied() {
+        double[] coefficients = fixture.coefficients();
+        Synthesis synthesis = model.startSynthesis(coefficients);
+        double[] expected = coefficients.clone();
+        coefficients[0] = 7;
+        assertArrayEquals(expected, synthesis.getCoefficients(), 0);
+        synthesis.getCoefficients()[0] = 7;
+        assertEquals(expected[0], synthesis.getCoefficient(0), 0);
+    }
+
+    /** Coefficients must match the components. */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongCoefficientCount() {
+        model.startSynthesis(fixture.coefficients()).setCoefficients(new double[COMPONENTS - 1]);
+    }
+
+}
@@ -0,0 +1,207 @@
+package util.file.editing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that {@link NumericReader} reads exactly what {@link Double#parseDouble(String)}
+ * and {@link Integer#parseInt(String)} would, and rejects what they would reject.
+ *
+ * @version 1.0
+ */
+public class NumericReaderTest {
+
+    /** Holds the files that are read. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes the given text to a new file.
+     *
+     * @param text the contents of the file
+     *
+     * @return the name of the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private String write(final String text) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        return file.getPath();
+    }
+
+    /**
+     * Reads the given values and checks each one is bit for bit what
+     * {@link Double#parseDouble(String)} gives.
+     *
+     * @param values the values to read
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void assertParsedLikeJava(final String... values) throws IOException {
+        double[] read = NumericReader.readDoubles(write(String.join(",", values)), null);
+        assertEquals(values.length, read.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], Double.doubleToLongBits(Double.parseDouble(values[i])),
+                    Double.doubleToLongBits(read[i]));
+        }
+    }
+
+    /**
+     * Reads the only value in the given text, expecting it to be malformed.
+     *
+     * @param text the text to read
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void assertRejected(final String text) throws IOException {
+        NumericReader reader = new NumericReader(write(text));
+        try {
+            reader.nextDouble();
+            fail("Read \"" + text + "\" as a number");
+        } catch (NumberFormatException expected) {
+            // Rejected, as Double.parseDouble would
+        }
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void fastPathMatchesParseDouble() throws IOException {
+        Random random = new Random(7);
+        String[] values = new String[10_000];
+        for (int i = 0; i < values.length; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 8);
+            switch (i % 4) {
+                case 0:
+                    values[i] = Double.toString(value);
+                    break;
+                case 1:
+                    values[i] = String.format("%.6f", value);
+                    break;
+                case 2:
+                    values[i] = String.format("%.9e", value);
+                    break;
+                default:
+                    values[i] = Long.toString(random.nextLong() % 1_000_000_000_000L);
+                    break;
+            }
+        }
+        assertParsedLikeJava(values);
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void exponents() throws IOException {
+        assertParsedLikeJava("1e10", "1E-5", "-2.5e+3", "1e22", "1e23", "4.5e-22", "4.5e-23",
+                "1e-400", "1e400", "-1e400", "2.2250738585072014E-308", "4.9e-324",
+                "1.7976931348623157E308", "123e0", "0e99999999");
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void longMantissas() throws IOException {
+        assertParsedLikeJava("9007199254740993", "12345678901234567890123",
+                "0.1234567890123456789", "3.141592653589793238462643383279",
+                "0.000000000000000000000000001234567890123456789",
+                "99999999999999999999e-30", "1234567890123456789012.5e-3");
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void signsAndPoints() throws IOException {
+        assertParsedLikeJava(".5", "5.", "-0", "-0.0", "+3", "-.25", "000123.4500", "0");
+        double[] read = NumericReader.readDoubles(write("-0"), null);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(read[0]));
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void separators() throws IOException {
+        String name = write("  1,2\r\n3\t4 ,, 5\n\n6\r\n");
+        assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, NumericReader.readDoubles(name, null), 0);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6}, NumericReader.readInts(name, null));
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void malformedDoubles() throws IOException {
+        for (String text : new String[]{"1.2.3", "abc", "1e", "1e+", "-", "+", ".", "1x", "e5",
+                "--1", "1-2", "0x10", "NaN", "Infinity"}) {
+            assertRejected(text);
+        }
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void ints() throws IOException {
+        NumericReader reader = new NumericReader(write("0 -7 +12 2147483647 -2147483648"));
+        assertEquals(0, reader.nextInt());
+        assertEquals(-7, reader.nextInt());
+        assertEquals(12, reader.nextInt());
+        assertEquals(Integer.MAX_VALUE, reader.nextInt());
+        assertEquals(Integer.MIN_VALUE, reader.nextInt());
+        assertFalse(reader.hasNext());
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void malformedInts() throws IOException {
+        for (String text : new String[]{"2147483648", "-2147483649", "99999999999", "1.5",
+                "1e3", "-", "x"}) {
+            NumericReader reader = new NumericReader(write(text));
+            try {
+                reader.nextInt();
+                fail("Read \"" + text + "\" as an integer");
+            } catch (NumberFormatException expected) {
+                // Rejected, as Integer.parseInt would
+            }
+        }
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test(expected = NoSuchElementException.class)
+    public void readingPastTheEnd() throws IOException {
+        NumericReader reader = new NumericReader(write("1, "));
+        assertEquals(1, reader.nextDouble(), 0);
+        assertFalse(reader.hasNext());
+        reader.nextDouble();
+    }
+
+    /** @throws IOException if a file cannot be written */
+    @Test
+    public void growsPastTheInitialCapacity() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(i).append('\n');
+        }
+        double[] read = NumericReader.readDoubles(write(text.toString()), null);
+        assertEquals(5000, read.length);
+        for (int i = 0; i < read.length; i++) {
+            assertEquals(i, read[i], 0);
+        }
+    }
+
+    /** A file that cannot be read is treated as empty. */
+    @Test
+    public void missingFileIsEmpty() {
+        String name = new File(folder.getRoot(), "missing.csv").getPath();
+        NumericReader reader = new NumericReader(name, null);
+        assertFalse(reader.hasNext());
+        assertEquals(0, NumericReader.readDoubles(name, null).length);
+        assertEquals(0, NumericReader.readInts(name, null).length);
+    }
+
+}